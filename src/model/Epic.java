@@ -1,19 +1,45 @@
 package model;
 
+import util.IntOrderedSet;
+
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 public class Epic extends Task {
-    private final List<Integer> subTasksIds = new ArrayList<>();
+    private final IntOrderedSet subTasksIds = new IntOrderedSet();
 
     public Epic(String name, String description) {
         super(name, description, TaskStatus.NEW, LocalDateTime.MIN.plusYears(1), Duration.ZERO);
     }
 
     public List<Integer> getSubTasksIds() {
-        return subTasksIds;
+        return subTasksIds.stream().boxed().toList();
+    }
+
+    public IntStream getSubTasksIdsStream() {
+        return subTasksIds.stream();
+    }
+
+    public int getSubTasksCount() {
+        return subTasksIds.size();
+    }
+
+    public boolean containsSubTaskId(int subTaskId) {
+        return subTasksIds.contains(subTaskId);
+    }
+
+    public boolean addSubTaskId(int subTaskId) {
+        return subTasksIds.add(subTaskId);
+    }
+
+    public boolean removeSubTaskId(int subTaskId) {
+        return subTasksIds.remove(subTaskId);
+    }
+
+    public void clearSubTaskIds() {
+        subTasksIds.clear();
     }
 
     @Override
@@ -33,16 +59,16 @@ public class Epic extends Task {
     }
 
     @Override
-    public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+    protected void updateEndTime() {
     }
 
-    @Override
-    public void setDuration(Duration duration) {
-        this.duration = duration;
+    public void setEndTime(LocalDateTime endTime) {
+        this.endMinutes = toEpochMinutes(endTime);
     }
 
-    public void setEndTime(LocalDateTime endTime) {
-        this.endTime = endTime;
+    public void setSchedule(long startMinutes, long durationMinutes, long endMinutes) {
+        this.startMinutes = startMinutes;
+        this.durationMinutes = durationMinutes;
+        this.endMinutes = endMinutes;
     }
 }
@@ -18,6 +18,13 @@ public class SubTask extends Task {
         this.epicId = epicId;
     }
 
+    public SubTask(Integer id, int epicId, String name, String description, TaskStatus status, long startMinutes,
+                   long durationMinutes) {
+        super(id, name, description, status, startMinutes, durationMinutes);
+
+        this.epicId = epicId;
+    }
+
     @Override
     public TaskType getType() {
         return TaskType.SUBTASK;
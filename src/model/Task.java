@@ -2,35 +2,37 @@ package model;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Objects;
 
 public class Task {
+    public static final long NO_TIME = Long.MIN_VALUE;
+
     protected Integer id;
     protected String name;
     protected String description;
     protected TaskStatus taskStatus;
-    protected Duration duration;
-    protected LocalDateTime startTime;
-    protected LocalDateTime endTime;
+    protected transient long durationMinutes;
+    protected transient long startMinutes;
+    protected transient long endMinutes;
 
     public Task(String name, String description, TaskStatus taskStatus, LocalDateTime startTime, Duration duration) {
-        this.id = null;
-        this.name = name;
-        this.description = description;
-        this.taskStatus = taskStatus;
-        this.startTime = startTime;
-        this.duration = duration;
-        this.endTime = this.startTime.plus(this.duration);
+        this(null, name, description, taskStatus, startTime, duration);
     }
 
     public Task(Integer id, String name, String description, TaskStatus taskStatus, LocalDateTime startTime, Duration duration) {
+        this(id, name, description, taskStatus, toEpochMinutes(startTime), duration.toMinutes());
+    }
+
+    public Task(Integer id, String name, String description, TaskStatus taskStatus, long startMinutes,
+                long durationMinutes) {
         this.id = id;
         this.name = name;
         this.description = description;
         this.taskStatus = taskStatus;
-        this.startTime = startTime;
-        this.duration = duration;
-        this.endTime = this.startTime.plus(this.duration);
+        this.startMinutes = startMinutes;
+        this.durationMinutes = durationMinutes;
+        this.endMinutes = startMinutes == NO_TIME ? NO_TIME : startMinutes + durationMinutes;
     }
 
     public Task(Task task) {
@@ -38,9 +40,17 @@ public class Task {
         this.name = task.name;
         this.description = task.description;
         this.taskStatus = task.taskStatus;
-        this.startTime = task.startTime;
-        this.duration = task.duration;
-        this.endTime = task.endTime;
+        this.startMinutes = task.startMinutes;
+        this.durationMinutes = task.durationMinutes;
+        this.endMinutes = task.endMinutes;
+    }
+
+    public static long toEpochMinutes(LocalDateTime time) {
+        return time == null ? NO_TIME : Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static LocalDateTime fromEpochMinutes(long minutes) {
+        return minutes == NO_TIME ? null : LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
     }
 
     @Override
@@ -64,8 +74,8 @@ public class Task {
                 ", description='" + description + '\'' +
                 ", taskStatus=" + taskStatus +
                 ", epicId=" + getEpicId() +
-                ", duration=" + duration.toMinutes() +
-                ", startTime=" + startTime +
+                ", duration=" + durationMinutes +
+                ", startTime=" + getStartTime() +
                 "}";
     }
 
@@ -112,33 +122,49 @@ public class Task {
     public boolean compareAllFields(Task task) {
         return (Objects.equals(id, task.id)) && (name.equals(task.name)) && (description.equals(task.description)) &&
                 (taskStatus == task.taskStatus) && (getType() == task.getType()) &&
-                duration.equals(task.getDuration()) && startTime.equals(task.getStartTime()) &&
-                endTime.equals(task.getEndTime());
+                durationMinutes == task.durationMinutes && startMinutes == task.startMinutes &&
+                endMinutes == task.endMinutes;
     }
 
     public Duration getDuration() {
-        return duration;
+        return Duration.ofMinutes(durationMinutes);
     }
 
     public void setDuration(Duration duration) {
-        this.duration = duration;
-        this.endTime = this.startTime.plus(this.duration);
+        this.durationMinutes = duration.toMinutes();
+        updateEndTime();
     }
 
     public LocalDateTime getStartTime() {
-        return startTime;
+        return fromEpochMinutes(startMinutes);
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
-        this.endTime = this.startTime.plus(this.duration);
+        this.startMinutes = toEpochMinutes(startTime);
+        updateEndTime();
     }
 
     public LocalDateTime getEndTime() {
-        return endTime;
+        return fromEpochMinutes(endMinutes);
+    }
+
+    public long getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public long getStartMinutes() {
+        return startMinutes;
+    }
+
+    public long getEndMinutes() {
+        return endMinutes;
+    }
+
+    protected void updateEndTime() {
+        this.endMinutes = startMinutes == NO_TIME ? NO_TIME : startMinutes + durationMinutes;
     }
 
     public boolean isCrossed(Task task) {
-        return (startTime.isBefore(task.getEndTime()) && endTime.isAfter(task.getStartTime()));
+        return startMinutes < task.endMinutes && endMinutes > task.startMinutes;
     }
 }
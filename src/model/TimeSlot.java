@@ -0,0 +1,52 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class TimeSlot {
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+
+    public TimeSlot(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public TimeSlot(long startMinutes, long endMinutes) {
+        this(Task.fromEpochMinutes(startMinutes), Task.fromEpochMinutes(endMinutes));
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public Duration getDuration() {
+        return Duration.between(start, end);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TimeSlot timeSlot = (TimeSlot) o;
+        return Objects.equals(start, timeSlot.start) && Objects.equals(end, timeSlot.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return "TimeSlot{" +
+                "start=" + start +
+                ", end=" + end +
+                '}';
+    }
+}
@@ -1,14 +1,75 @@
 package service;
 
+import service.columnar.ColumnarTaskManager;
+import service.file.BTreeTaskManager;
+import service.file.MappedMirrorTaskManager;
+import service.memory.AsyncHistoryManager;
+import service.memory.CompactHistoryManager;
+import service.memory.ConcurrentHistoryManager;
+import service.memory.ConcurrentTaskManager;
 import service.memory.InMemoryHistoryManager;
 import service.memory.InMemoryTaskManager;
+import service.memory.ThreadSafeTaskManager;
+import service.offheap.OffHeapTaskManager;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Managers {
     public static TaskManager getDefault() {
         return new InMemoryTaskManager(getDefaultHistory());
     }
 
+    public static TaskManager getWithCompactHistory(int historyCapacity) {
+        // История получает поиск задач при создании, а сам менеджер появляется следом.
+        AtomicReference<TaskManager> owner = new AtomicReference<>();
+        TaskManager taskManager = new InMemoryTaskManager(
+                new CompactHistoryManager(historyCapacity, id -> owner.get().findTask(id)));
+        owner.set(taskManager);
+        return taskManager;
+    }
+
+    public static TaskManager getColumnar() {
+        return new ColumnarTaskManager(getDefaultHistory());
+    }
+
+    public static TaskManager getOffHeap() {
+        return new OffHeapTaskManager(getDefaultHistory());
+    }
+
+    public static TaskManager getThreadSafe() {
+        return new ThreadSafeTaskManager(getDefaultHistory());
+    }
+
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager(getConcurrentHistory());
+    }
+
+    public static MappedMirrorTaskManager getMappedMirror(Path file) {
+        return new MappedMirrorTaskManager(getDefaultHistory(), file);
+    }
+
+    public static BTreeTaskManager getBTree(Path file) {
+        return new BTreeTaskManager(getDefaultHistory(), file);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
+
+    public static HistoryManager getConcurrentHistory(int capacity) {
+        return new ConcurrentHistoryManager(capacity);
+    }
+
+    public static AsyncHistoryManager getAsyncHistory() {
+        return new AsyncHistoryManager(getDefaultHistory(), 4096, AsyncHistoryManager.OverflowPolicy.DROP);
+    }
 }
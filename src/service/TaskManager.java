@@ -3,11 +3,21 @@ package service;
 import model.Epic;
 import model.SubTask;
 import model.Task;
+import model.TimeSlot;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.NavigableSet;
 import java.util.TreeSet;
 
 public interface TaskManager {
+    Comparator<Task> PRIORITY_ORDER = Comparator.comparingLong(Task::getStartMinutes)
+            .thenComparingLong(Task::getEndMinutes)
+            .thenComparing(Task::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    int TOP_VIEWED_CAPACITY = 1024;
+
     Task create(Task task);
 
     Epic createEpic(Epic epic);
@@ -16,6 +26,8 @@ public interface TaskManager {
 
     Task get(int id);
 
+    Task findTask(int id);
+
     Epic getEpic(int id);
 
     SubTask getSubTask(int id);
@@ -42,6 +54,16 @@ public interface TaskManager {
 
     TreeSet<Task> getPrioritizedTasks();
 
+    NavigableSet<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    List<Task> nextAfter(LocalDateTime time, int limit);
+
+    List<Task> previousBefore(LocalDateTime time, int limit);
+
+    TimeSlot findFreeSlot(LocalDateTime after, Duration duration);
+
+    List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration);
+
     void clearTasks();
 
     void clearEpics();
@@ -55,4 +77,6 @@ public interface TaskManager {
     SubTask addSubTaskToEpic(Epic epic, SubTask subTask);
 
     List<Task> getHistory();
+
+    List<Task> getTopViewed(int k);
 }
@@ -0,0 +1,663 @@
+package service.columnar;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import model.TimeSlot;
+import service.HistoryManager;
+import service.Managers;
+import service.TaskManager;
+import service.exeptions.NotFoundException;
+import service.memory.ViewTracker;
+import util.IntIntMap;
+import util.IntObjectMap;
+import util.IntOrderedSet;
+import util.LongMultiset;
+import util.StringPool;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+public class ColumnarTaskManager implements TaskManager {
+    private static final byte FREE = -1;
+    private static final int MIN_CAPACITY = 16;
+    private static final int NO_ROW = -1;
+    private static final long EMPTY_EPIC_START = Task.toEpochMinutes(LocalDateTime.MIN);
+    private static final long EMPTY_EPIC_END = Task.toEpochMinutes(LocalDateTime.MIN.plusYears(1));
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private int[] ids = new int[MIN_CAPACITY];
+    private byte[] types = new byte[MIN_CAPACITY];
+    private byte[] statuses = new byte[MIN_CAPACITY];
+    private int[] epicIds = new int[MIN_CAPACITY];
+    private long[] starts = new long[MIN_CAPACITY];
+    private long[] durations = new long[MIN_CAPACITY];
+    private long[] ends = new long[MIN_CAPACITY];
+    private int[] names = new int[MIN_CAPACITY];
+    private int[] descriptions = new int[MIN_CAPACITY];
+    // Колонки эпиков: число новых и выполненных подзадач; у остальных строк не используются.
+    private int[] newCounts = new int[MIN_CAPACITY];
+    private int[] doneCounts = new int[MIN_CAPACITY];
+    private int rowCount;
+    private int liveCount;
+
+    private final IntIntMap rowsById = new IntIntMap();
+    private final StringPool strings = new StringPool();
+    private final IntObjectMap<IntOrderedSet> epicSubTasks = new IntObjectMap<>();
+    // Начала и концы подзадач каждого эпика: крайние значения не пересчитываются по всем подзадачам.
+    private final IntObjectMap<LongMultiset> epicStarts = new IntObjectMap<>();
+    private final IntObjectMap<LongMultiset> epicEnds = new IntObjectMap<>();
+
+    // Ссылки дерева расписания: три соседних значения на строку.
+    private int[] scheduleLinks = new int[MIN_CAPACITY * 3];
+    private final RowSchedule schedule = new RowSchedule(new RowSchedule.Rows() {
+        @Override
+        public long start(int row) {
+            return starts[row];
+        }
+
+        @Override
+        public long end(int row) {
+            return ends[row];
+        }
+
+        @Override
+        public int id(int row) {
+            return ids[row];
+        }
+
+        @Override
+        public Task materialize(int row) {
+            return ColumnarTaskManager.this.materialize(row);
+        }
+
+        @Override
+        public int link(int row, int link) {
+            return scheduleLinks[row * 3 + link];
+        }
+
+        @Override
+        public void setLink(int row, int link, int value) {
+            scheduleLinks[row * 3 + link] = value;
+        }
+    });
+
+    private int newTaskId = 0;
+    private final ViewTracker views;
+
+    public ColumnarTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public ColumnarTaskManager(HistoryManager historyManager) {
+        this.views = new ViewTracker(historyManager);
+    }
+
+    private int generateId() {
+        return ++newTaskId;
+    }
+
+    @Override
+    public Task create(Task task) {
+        schedule.checkTaskTime(task.getStartMinutes(), task.getEndMinutes(), 0);
+        task.setId(generateId());
+        int row = appendRow(task, TaskType.TASK, 0);
+        scheduleInsert(row);
+        return task;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(generateId());
+        int row = appendRow(epic, TaskType.EPIC, 0);
+        epicSubTasks.put(epic.getId(), new IntOrderedSet());
+        epicStarts.put(epic.getId(), new LongMultiset());
+        epicEnds.put(epic.getId(), new LongMultiset());
+        updateEpic(row);
+        copyEpicFields(row, epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        int epicRow = rowOf(subTask.getEpicId(), TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + subTask.getEpicId());
+        }
+
+        schedule.checkTaskTime(subTask.getStartMinutes(), subTask.getEndMinutes(), 0);
+        subTask.setId(generateId());
+        int row = appendRow(subTask, TaskType.SUBTASK, subTask.getEpicId());
+        scheduleInsert(row);
+        epicSubTasks.get(subTask.getEpicId()).add(subTask.getId());
+        contribute(epicRow, row, 1);
+        updateEpic(epicRow);
+        return subTask;
+    }
+
+    @Override
+    public Task get(int id) {
+        int row = rowOf(id, TaskType.TASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена задача " + id);
+        }
+        Task task = materialize(row);
+        views.record(task);
+        return task;
+    }
+
+    @Override
+    public Task findTask(int id) {
+        int row = rowsById.get(id, NO_ROW);
+        return row == NO_ROW ? null : materialize(row);
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        int row = rowOf(id, TaskType.EPIC);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + id);
+        }
+        Epic epic = (Epic) materialize(row);
+        views.record(epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        int row = rowOf(id, TaskType.SUBTASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена подзадача " + id);
+        }
+        SubTask subTask = (SubTask) materialize(row);
+        views.record(subTask);
+        return subTask;
+    }
+
+    @Override
+    public Task update(Task task) {
+        schedule.checkTaskTime(task.getStartMinutes(), task.getEndMinutes(), task.getId());
+
+        int row = rowOf(task.getId(), TaskType.TASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена задача " + task.getId());
+        }
+
+        scheduleRemove(row);
+        writeRow(row, task);
+        scheduleInsert(row);
+        return materialize(row);
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        int row = rowOf(epic.getId(), TaskType.EPIC);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        names[row] = replaceString(names[row], epic.getName());
+        descriptions[row] = replaceString(descriptions[row], epic.getDescription());
+        return (Epic) materialize(row);
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subTask) {
+        schedule.checkTaskTime(subTask.getStartMinutes(), subTask.getEndMinutes(), subTask.getId());
+
+        int row = rowOf(subTask.getId(), TaskType.SUBTASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена подзадача " + subTask.getId());
+        }
+
+        // Прежний вклад подзадачи снимается до перезаписи строки, новый добавляется после.
+        IntOrderedSet members = epicSubTasks.get(epicIds[row]);
+        int epicRow = members != null && members.contains(subTask.getId())
+                ? rowOf(epicIds[row], TaskType.EPIC) : NO_ROW;
+        if (epicRow != NO_ROW) {
+            contribute(epicRow, row, -1);
+        }
+        scheduleRemove(row);
+        writeRow(row, subTask);
+        scheduleInsert(row);
+        if (epicRow != NO_ROW) {
+            contribute(epicRow, row, 1);
+            updateEpic(epicRow);
+        }
+        return (SubTask) materialize(row);
+    }
+
+    @Override
+    public Task delete(int id) {
+        views.forget(id);
+        int row = rowOf(id, TaskType.TASK);
+        if (row == NO_ROW) {
+            return null;
+        }
+        Task removed = materialize(row);
+        deleteRow(row);
+        return removed;
+    }
+
+    @Override
+    public Epic deleteEpic(int id) {
+        views.forget(id);
+        int row = rowOf(id, TaskType.EPIC);
+        if (row == NO_ROW) {
+            return null;
+        }
+        Epic removed = (Epic) materialize(row);
+        IntOrderedSet members = epicSubTasks.remove(id);
+        epicStarts.remove(id);
+        epicEnds.remove(id);
+        members.forEach(subTaskId -> {
+            int subTaskRow = rowOf(subTaskId, TaskType.SUBTASK);
+            if (subTaskRow != NO_ROW) {
+                deleteRow(subTaskRow);
+            }
+            views.forget(subTaskId);
+        });
+        deleteRow(rowOf(id, TaskType.EPIC));
+        return removed;
+    }
+
+    @Override
+    public SubTask deleteSubTask(int id) {
+        views.forget(id);
+        int row = rowOf(id, TaskType.SUBTASK);
+        if (row == NO_ROW) {
+            return null;
+        }
+        SubTask removed = (SubTask) materialize(row);
+        int epicId = epicIds[row];
+        IntOrderedSet members = epicSubTasks.get(epicId);
+        if (members != null && members.remove(id)) {
+            int epicRow = rowOf(epicId, TaskType.EPIC);
+            contribute(epicRow, row, -1);
+            updateEpic(epicRow);
+        }
+        deleteRow(row);
+        return removed;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return collect(TaskType.TASK);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return collect(TaskType.EPIC);
+    }
+
+    @Override
+    public List<SubTask> getSubtasks() {
+        return collect(TaskType.SUBTASK);
+    }
+
+    @Override
+    public List<SubTask> getEpicSubtasks(int id) {
+        IntOrderedSet members = epicSubTasks.get(id);
+        if (members == null) {
+            throw new NotFoundException("Не найден эпик " + id);
+        }
+        List<SubTask> result = new ArrayList<>(members.size());
+        members.forEach(subTaskId -> {
+            int row = rowOf(subTaskId, TaskType.SUBTASK);
+            if (row != NO_ROW) {
+                result.add((SubTask) materialize(row));
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public TreeSet<Task> getPrioritizedTasks() {
+        return schedule.getPrioritizedTasks();
+    }
+
+    @Override
+    public NavigableSet<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return schedule.getPrioritizedTasks(from, to);
+    }
+
+    @Override
+    public List<Task> nextAfter(LocalDateTime time, int limit) {
+        return schedule.nextAfter(time, limit);
+    }
+
+    @Override
+    public List<Task> previousBefore(LocalDateTime time, int limit) {
+        return schedule.previousBefore(time, limit);
+    }
+
+    @Override
+    public TimeSlot findFreeSlot(LocalDateTime after, Duration duration) {
+        return schedule.findFreeSlot(after, duration);
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        return schedule.findFreeSlots(from, to, minDuration);
+    }
+
+    public int countByStatus(TaskType type, TaskStatus status) {
+        byte typeCode = (byte) type.ordinal();
+        byte statusCode = (byte) status.ordinal();
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] == typeCode && statuses[row] == statusCode) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void clearTasks() {
+        clearRows(TaskType.TASK);
+    }
+
+    @Override
+    public void clearEpics() {
+        clearRows(TaskType.SUBTASK);
+        clearRows(TaskType.EPIC);
+        epicSubTasks.clear();
+        epicStarts.clear();
+        epicEnds.clear();
+    }
+
+    @Override
+    public void clearSubTasks() {
+        clearRows(TaskType.SUBTASK);
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] == TaskType.EPIC.ordinal()) {
+                clearEpic(row);
+            }
+        }
+    }
+
+    @Override
+    public void removeSubTaskFromEpic(Epic epic, Integer subTaskId) {
+        int epicRow = rowOf(epic.getId(), TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        if (epicSubTasks.get(epic.getId()).remove(subTaskId)) {
+            contribute(epicRow, rowOf(subTaskId, TaskType.SUBTASK), -1);
+        }
+        epic.removeSubTaskId(subTaskId);
+        updateEpic(epicRow);
+        copyEpicFields(epicRow, epic);
+    }
+
+    @Override
+    public void removeAllSubtasksFromEpic(Epic epic) {
+        int epicRow = rowOf(epic.getId(), TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        clearEpic(epicRow);
+        epic.clearSubTaskIds();
+        copyEpicFields(epicRow, epic);
+    }
+
+    @Override
+    public SubTask addSubTaskToEpic(Epic epic, SubTask subTask) {
+        if (epic == null)
+            return null;
+        int epicRow = rowOf(epic.getId(), TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        int row = rowOf(subTask.getId(), TaskType.SUBTASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена подзадача " + subTask.getId());
+        }
+        // Эпик подзадачи хранится в её строке, поэтому при переносе она уходит из прежнего эпика.
+        int ownerId = epicIds[row];
+        if (ownerId != epic.getId()) {
+            epicIds[row] = epic.getId();
+            IntOrderedSet owner = epicSubTasks.get(ownerId);
+            if (owner != null && owner.remove(subTask.getId())) {
+                int ownerRow = rowOf(ownerId, TaskType.EPIC);
+                contribute(ownerRow, row, -1);
+                updateEpic(ownerRow);
+            }
+        }
+        if (epicSubTasks.get(epic.getId()).add(subTask.getId())) {
+            contribute(epicRow, row, 1);
+        }
+        epic.addSubTaskId(subTask.getId());
+        updateEpic(epicRow);
+        copyEpicFields(epicRow, epic);
+        return subTask;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return views.getHistory();
+    }
+
+    @Override
+    public List<Task> getTopViewed(int k) {
+        return views.getTopViewed(k, this::findTask);
+    }
+
+    private int rowOf(int id, TaskType type) {
+        int row = rowsById.get(id, NO_ROW);
+        return row != NO_ROW && types[row] == type.ordinal() ? row : NO_ROW;
+    }
+
+    private int appendRow(Task task, TaskType type, int epicId) {
+        if (rowCount == ids.length) {
+            ensureRoom();
+        }
+        int row = rowCount++;
+        ids[row] = task.getId();
+        types[row] = (byte) type.ordinal();
+        epicIds[row] = epicId;
+        names[row] = StringPool.NULL_REF;
+        descriptions[row] = StringPool.NULL_REF;
+        newCounts[row] = 0;
+        doneCounts[row] = 0;
+        writeRow(row, task);
+        rowsById.put(task.getId(), row);
+        liveCount++;
+        return row;
+    }
+
+    private void writeRow(int row, Task task) {
+        names[row] = replaceString(names[row], task.getName());
+        descriptions[row] = replaceString(descriptions[row], task.getDescription());
+        statuses[row] = (byte) task.getTaskStatus().ordinal();
+        starts[row] = task.getStartMinutes();
+        durations[row] = task.getDurationMinutes();
+        ends[row] = task.getEndMinutes();
+    }
+
+    private int replaceString(int oldRef, String value) {
+        int newRef = strings.acquire(value);
+        strings.release(oldRef);
+        return newRef;
+    }
+
+    private void deleteRow(int row) {
+        scheduleRemove(row);
+        strings.release(names[row]);
+        strings.release(descriptions[row]);
+        rowsById.remove(ids[row]);
+        types[row] = FREE;
+        liveCount--;
+        while (rowCount > 0 && types[rowCount - 1] == FREE) {
+            rowCount--;
+        }
+    }
+
+    private void clearRows(TaskType type) {
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] == type.ordinal()) {
+                views.forget(ids[row]);
+                deleteRow(row);
+            }
+        }
+    }
+
+    private void ensureRoom() {
+        if (liveCount > rowCount / 2) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            types = Arrays.copyOf(types, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            epicIds = Arrays.copyOf(epicIds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            names = Arrays.copyOf(names, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            newCounts = Arrays.copyOf(newCounts, capacity);
+            doneCounts = Arrays.copyOf(doneCounts, capacity);
+            scheduleLinks = Arrays.copyOf(scheduleLinks, capacity * 3);
+        }
+        compact();
+    }
+
+    private void compact() {
+        int[] scheduled = schedule.toArray();
+        int[] newRows = new int[rowCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] == FREE) {
+                continue;
+            }
+            newRows[row] = count;
+            ids[count] = ids[row];
+            types[count] = types[row];
+            statuses[count] = statuses[row];
+            epicIds[count] = epicIds[row];
+            starts[count] = starts[row];
+            durations[count] = durations[row];
+            ends[count] = ends[row];
+            names[count] = names[row];
+            descriptions[count] = descriptions[row];
+            newCounts[count] = newCounts[row];
+            doneCounts[count] = doneCounts[row];
+            rowsById.put(ids[count], count);
+            count++;
+        }
+        rowCount = count;
+        // Порядок расписания при переносе строк не меняется: дерево строится заново по готовому порядку.
+        for (int i = 0; i < scheduled.length; i++) {
+            scheduled[i] = newRows[scheduled[i]];
+        }
+        schedule.rebuild(scheduled);
+    }
+
+    // Добавляет (sign = 1) или снимает (sign = -1) вклад подзадачи в колонки эпика и его множества времён.
+    private void contribute(int epicRow, int row, int sign) {
+        int epicId = ids[epicRow];
+        if (statuses[row] == TaskStatus.NEW.ordinal()) {
+            newCounts[epicRow] += sign;
+        } else if (statuses[row] == TaskStatus.DONE.ordinal()) {
+            doneCounts[epicRow] += sign;
+        }
+        durations[epicRow] += sign * durations[row];
+        if (sign > 0) {
+            epicStarts.get(epicId).add(starts[row]);
+            epicEnds.get(epicId).add(ends[row]);
+        } else {
+            epicStarts.get(epicId).remove(starts[row]);
+            epicEnds.get(epicId).remove(ends[row]);
+        }
+    }
+
+    private void clearEpic(int epicRow) {
+        int epicId = ids[epicRow];
+        epicSubTasks.get(epicId).clear();
+        epicStarts.get(epicId).clear();
+        epicEnds.get(epicId).clear();
+        newCounts[epicRow] = 0;
+        doneCounts[epicRow] = 0;
+        updateEpic(epicRow);
+    }
+
+    // Поля эпика выводятся из накопленных счётчиков и крайних времён без обхода подзадач.
+    private void updateEpic(int epicRow) {
+        int epicId = ids[epicRow];
+        int size = epicSubTasks.get(epicId).size();
+        if (size == 0) {
+            statuses[epicRow] = (byte) TaskStatus.NEW.ordinal();
+            starts[epicRow] = EMPTY_EPIC_START;
+            durations[epicRow] = 0;
+            ends[epicRow] = EMPTY_EPIC_END;
+            return;
+        }
+
+        TaskStatus status = TaskStatus.IN_PROGRESS;
+        if (newCounts[epicRow] == size) {
+            status = TaskStatus.NEW;
+        } else if (doneCounts[epicRow] == size) {
+            status = TaskStatus.DONE;
+        }
+        statuses[epicRow] = (byte) status.ordinal();
+        starts[epicRow] = epicStarts.get(epicId).first();
+        ends[epicRow] = Math.max(epicEnds.get(epicId).last(), EMPTY_EPIC_END);
+    }
+
+    private void copyEpicFields(int epicRow, Epic epic) {
+        epic.setTaskStatus(STATUSES[statuses[epicRow]]);
+        epic.setSchedule(starts[epicRow], durations[epicRow], ends[epicRow]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> collect(TaskType type) {
+        List<T> result = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] == type.ordinal()) {
+                result.add((T) materialize(row));
+            }
+        }
+        return result;
+    }
+
+    private Task materialize(int row) {
+        String name = strings.get(names[row]);
+        String description = strings.get(descriptions[row]);
+        TaskStatus status = STATUSES[statuses[row]];
+        return switch (TYPES[types[row]]) {
+            case TASK -> new Task(ids[row], name, description, status, starts[row], durations[row]);
+            case SUBTASK -> new SubTask(ids[row], epicIds[row], name, description, status, starts[row],
+                    durations[row]);
+            case EPIC -> {
+                Epic epic = new Epic(name, description);
+                epic.setId(ids[row]);
+                copyEpicFields(row, epic);
+                epicSubTasks.get(ids[row]).forEach(epic::addSubTaskId);
+                yield epic;
+            }
+        };
+    }
+
+    private boolean isScheduled(int row) {
+        return starts[row] != Task.NO_TIME && types[row] != TaskType.EPIC.ordinal();
+    }
+
+    private void scheduleInsert(int row) {
+        if (isScheduled(row)) {
+            schedule.insert(row);
+        }
+    }
+
+    private void scheduleRemove(int row) {
+        if (isScheduled(row)) {
+            schedule.remove(row);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package service.columnar;
+
+import model.Task;
+import model.TimeSlot;
+import service.TaskManager;
+import service.exeptions.TaskTimeValidateException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Расписание строк, упорядоченное по (начало, конец, id): декартово дерево, узлом которого служит сама строка.
+// Ключи и ссылки дерева хранит менеджер в своих строках, поэтому вставка и удаление стоят O(log n) без сдвигов.
+// Приоритет узла - перемешанный id: он не меняется при переносе строки, и форма дерева остаётся допустимой.
+public final class RowSchedule {
+    public static final int NONE = -1;
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int PARENT = 2;
+
+    public interface Rows {
+        long start(int row);
+
+        long end(int row);
+
+        int id(int row);
+
+        Task materialize(int row);
+
+        int link(int row, int link);
+
+        void setLink(int row, int link, int value);
+    }
+
+    private final Rows rows;
+    private int root = NONE;
+    private int size;
+
+    public RowSchedule(Rows rows) {
+        this.rows = rows;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void insert(int row) {
+        rows.setLink(row, LEFT, NONE);
+        rows.setLink(row, RIGHT, NONE);
+        rows.setLink(row, PARENT, NONE);
+        size++;
+        if (root == NONE) {
+            root = row;
+            return;
+        }
+        int node = root;
+        while (true) {
+            int side = compare(row, node) < 0 ? LEFT : RIGHT;
+            int child = rows.link(node, side);
+            if (child == NONE) {
+                rows.setLink(node, side, row);
+                rows.setLink(row, PARENT, node);
+                break;
+            }
+            node = child;
+        }
+        while (rows.link(row, PARENT) != NONE && priority(row) > priority(rows.link(row, PARENT))) {
+            rotateUp(row);
+        }
+    }
+
+    public void remove(int row) {
+        while (true) {
+            int left = rows.link(row, LEFT);
+            int right = rows.link(row, RIGHT);
+            if (left == NONE || right == NONE) {
+                replace(row, left == NONE ? right : left);
+                size--;
+                return;
+            }
+            rotateUp(priority(left) > priority(right) ? left : right);
+        }
+    }
+
+    public void clear() {
+        root = NONE;
+        size = 0;
+    }
+
+    // Строки в порядке расписания.
+    public int[] toArray() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int row = first(); row != NONE; row = next(row)) {
+            result[count++] = row;
+        }
+        return result;
+    }
+
+    // Массовое построение по уже упорядоченным строкам за O(n): правый край дерева держится на стеке.
+    public void rebuild(int[] sorted) {
+        int[] stack = new int[sorted.length];
+        int depth = 0;
+        for (int row : sorted) {
+            int last = NONE;
+            while (depth > 0 && priority(stack[depth - 1]) < priority(row)) {
+                last = stack[--depth];
+            }
+            rows.setLink(row, LEFT, last);
+            rows.setLink(row, RIGHT, NONE);
+            if (last != NONE) {
+                rows.setLink(last, PARENT, row);
+            }
+            if (depth > 0) {
+                rows.setLink(stack[depth - 1], RIGHT, row);
+                rows.setLink(row, PARENT, stack[depth - 1]);
+            } else {
+                rows.setLink(row, PARENT, NONE);
+            }
+            stack[depth++] = row;
+        }
+        root = depth > 0 ? stack[0] : NONE;
+        size = sorted.length;
+    }
+
+    public TreeSet<Task> getPrioritizedTasks() {
+        TreeSet<Task> result = new TreeSet<>(TaskManager.PRIORITY_ORDER);
+        for (int row = first(); row != NONE; row = next(row)) {
+            result.add(rows.materialize(row));
+        }
+        return result;
+    }
+
+    public NavigableSet<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        long end = to == null ? Long.MAX_VALUE : Task.toEpochMinutes(to);
+        TreeSet<Task> result = new TreeSet<>(TaskManager.PRIORITY_ORDER);
+        for (int row = from == null ? first() : ceiling(Task.toEpochMinutes(from));
+                row != NONE && rows.start(row) < end; row = next(row)) {
+            result.add(rows.materialize(row));
+        }
+        return Collections.unmodifiableNavigableSet(result);
+    }
+
+    public List<Task> nextAfter(LocalDateTime time, int limit) {
+        List<Task> result = new ArrayList<>();
+        for (int row = ceiling(Task.toEpochMinutes(time)); row != NONE && result.size() < limit; row = next(row)) {
+            result.add(rows.materialize(row));
+        }
+        return result;
+    }
+
+    public List<Task> previousBefore(LocalDateTime time, int limit) {
+        List<Task> result = new ArrayList<>();
+        for (int row = lower(Task.toEpochMinutes(time)); row != NONE && result.size() < limit; row = previous(row)) {
+            result.add(rows.materialize(row));
+        }
+        return result;
+    }
+
+    public TimeSlot findFreeSlot(LocalDateTime after, Duration duration) {
+        long length = duration.toMinutes();
+        long cursor = freeFrom(Task.toEpochMinutes(after));
+        for (int row = ceiling(cursor); row != NONE; row = next(row)) {
+            if (rows.start(row) - cursor >= length) {
+                break;
+            }
+            cursor = Math.max(cursor, rows.end(row));
+        }
+        return new TimeSlot(cursor, cursor + length);
+    }
+
+    public List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        long length = Math.max(minDuration.toMinutes(), 1);
+        long end = Task.toEpochMinutes(to);
+        long cursor = freeFrom(Task.toEpochMinutes(from));
+        List<TimeSlot> result = new ArrayList<>();
+        for (int row = ceiling(cursor); row != NONE; row = next(row)) {
+            long start = rows.start(row);
+            if (start >= end) {
+                break;
+            }
+            if (start - cursor >= length) {
+                result.add(new TimeSlot(cursor, start));
+            }
+            cursor = Math.max(cursor, rows.end(row));
+        }
+        if (end - cursor >= length) {
+            result.add(new TimeSlot(cursor, end));
+        }
+        return result;
+    }
+
+    // Пересечение возможно только с ближайшей задачей, начавшейся раньше конца проверяемой.
+    public void checkTaskTime(long start, long end, int selfId) {
+        if (start == Task.NO_TIME) {
+            return;
+        }
+        for (int row = lower(end); row != NONE; row = previous(row)) {
+            if (rows.id(row) == selfId) {
+                continue;
+            }
+            if (rows.start(row) < end && rows.end(row) > start) {
+                throw new TaskTimeValidateException("Пересечение с задачей " + rows.materialize(row).getName());
+            }
+            return;
+        }
+    }
+
+    private long freeFrom(long minutes) {
+        int row = lower(minutes);
+        return row == NONE ? minutes : Math.max(minutes, rows.end(row));
+    }
+
+    // Первая строка, начинающаяся не раньше minutes.
+    private int ceiling(long minutes) {
+        int result = NONE;
+        for (int node = root; node != NONE; ) {
+            if (rows.start(node) >= minutes) {
+                result = node;
+                node = rows.link(node, LEFT);
+            } else {
+                node = rows.link(node, RIGHT);
+            }
+        }
+        return result;
+    }
+
+    // Последняя строка, начинающаяся раньше minutes.
+    private int lower(long minutes) {
+        int result = NONE;
+        for (int node = root; node != NONE; ) {
+            if (rows.start(node) < minutes) {
+                result = node;
+                node = rows.link(node, RIGHT);
+            } else {
+                node = rows.link(node, LEFT);
+            }
+        }
+        return result;
+    }
+
+    private int first() {
+        int node = root;
+        if (node == NONE) {
+            return NONE;
+        }
+        while (rows.link(node, LEFT) != NONE) {
+            node = rows.link(node, LEFT);
+        }
+        return node;
+    }
+
+    private int next(int row) {
+        return step(row, RIGHT, LEFT);
+    }
+
+    private int previous(int row) {
+        return step(row, LEFT, RIGHT);
+    }
+
+    // Соседний узел в порядке обхода: крайний в поддереве со стороны forward или первый предок с той стороны.
+    private int step(int row, int forward, int back) {
+        int child = rows.link(row, forward);
+        if (child != NONE) {
+            while (rows.link(child, back) != NONE) {
+                child = rows.link(child, back);
+            }
+            return child;
+        }
+        int parent = rows.link(row, PARENT);
+        while (parent != NONE && rows.link(parent, forward) == row) {
+            row = parent;
+            parent = rows.link(row, PARENT);
+        }
+        return parent;
+    }
+
+    private void rotateUp(int row) {
+        int parent = rows.link(row, PARENT);
+        int side = rows.link(parent, LEFT) == row ? LEFT : RIGHT;
+        int opposite = side == LEFT ? RIGHT : LEFT;
+        int middle = rows.link(row, opposite);
+        rows.setLink(parent, side, middle);
+        if (middle != NONE) {
+            rows.setLink(middle, PARENT, parent);
+        }
+        replace(parent, row);
+        rows.setLink(row, opposite, parent);
+        rows.setLink(parent, PARENT, row);
+    }
+
+    // Ставит replacement на место row у родителя row.
+    private void replace(int row, int replacement) {
+        int parent = rows.link(row, PARENT);
+        if (replacement != NONE) {
+            rows.setLink(replacement, PARENT, parent);
+        }
+        if (parent == NONE) {
+            root = replacement;
+        } else if (rows.link(parent, LEFT) == row) {
+            rows.setLink(parent, LEFT, replacement);
+        } else {
+            rows.setLink(parent, RIGHT, replacement);
+        }
+    }
+
+    private int compare(int first, int second) {
+        int compare = Long.compare(rows.start(first), rows.start(second));
+        if (compare == 0) {
+            compare = Long.compare(rows.end(first), rows.end(second));
+        }
+        return compare != 0 ? compare : Integer.compare(rows.id(first), rows.id(second));
+    }
+
+    private int priority(int row) {
+        int hash = rows.id(row) * 0x9E3779B9;
+        return hash ^ hash >>> 16;
+    }
+}
@@ -0,0 +1,107 @@
+package service.converter;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import util.ByteArrayBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class BinaryTaskConverter {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private BinaryTaskConverter() {
+    }
+
+    public static void write(Task task, ByteArrayBuilder out) {
+        out.write(task.getType().ordinal());
+        writeVarLong(task.getId(), out);
+        out.write(task.getTaskStatus().ordinal());
+        if (task.getType() == TaskType.SUBTASK) {
+            writeVarLong(task.getEpicId(), out);
+        }
+        // Ноль зарезервирован под задачу без времени, остальные значения сдвинуты на единицу.
+        writeVarLong(task.getStartMinutes() == Task.NO_TIME ? 0 : zigZag(task.getStartMinutes()) + 1, out);
+        writeVarLong(zigZag(task.getDurationMinutes()), out);
+        writeString(task.getName(), out);
+        writeString(task.getDescription(), out);
+    }
+
+    public static Task read(ByteBuffer in) {
+        TaskType type = TYPES[in.get()];
+        int id = (int) readVarLong(in);
+        TaskStatus status = STATUSES[in.get()];
+        int epicId = type == TaskType.SUBTASK ? (int) readVarLong(in) : 0;
+        long start = readVarLong(in);
+        long startMinutes = start == 0 ? Task.NO_TIME : unZigZag(start - 1);
+        long durationMinutes = unZigZag(readVarLong(in));
+        String name = readString(in);
+        String description = readString(in);
+
+        Task task = switch (type) {
+            case EPIC -> new Epic(name, description);
+            case SUBTASK -> new SubTask(id, epicId, name, description, status, startMinutes, durationMinutes);
+            default -> new Task(id, name, description, status, startMinutes, durationMinutes);
+        };
+        task.setId(id);
+        return task;
+    }
+
+    private static void writeVarLong(long value, ByteArrayBuilder out) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeString(String value, ByteArrayBuilder out) {
+        if (value == null) {
+            out.write(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1, out);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+}
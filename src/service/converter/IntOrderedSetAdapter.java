@@ -0,0 +1,32 @@
+package service.converter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import util.IntOrderedSet;
+
+import java.io.IOException;
+import java.util.PrimitiveIterator;
+
+public class IntOrderedSetAdapter extends TypeAdapter<IntOrderedSet> {
+    @Override
+    public void write(JsonWriter jsonWriter, IntOrderedSet set) throws IOException {
+        jsonWriter.beginArray();
+        PrimitiveIterator.OfInt iterator = set.iterator();
+        while (iterator.hasNext()) {
+            jsonWriter.value(iterator.nextInt());
+        }
+        jsonWriter.endArray();
+    }
+
+    @Override
+    public IntOrderedSet read(JsonReader jsonReader) throws IOException {
+        IntOrderedSet set = new IntOrderedSet();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            set.add(jsonReader.nextInt());
+        }
+        jsonReader.endArray();
+        return set;
+    }
+}
@@ -0,0 +1,78 @@
+package service.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import model.Epic;
+import model.Task;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+public class TaskAdapterFactory implements TypeAdapterFactory {
+    private static final String FIELD_DURATION = "duration";
+    private static final String FIELD_START_TIME = "startTime";
+    private static final String FIELD_END_TIME = "endTime";
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!Task.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        TypeAdapter<JsonElement> elementAdapter = gson.getAdapter(JsonElement.class);
+        TypeAdapter<LocalDateTime> timeAdapter = gson.getAdapter(LocalDateTime.class);
+        TypeAdapter<Duration> durationAdapter = gson.getAdapter(Duration.class);
+
+        return new TypeAdapter<>() {
+            @Override
+            public void write(JsonWriter jsonWriter, T value) throws IOException {
+                if (value == null) {
+                    jsonWriter.nullValue();
+                    return;
+                }
+                Task task = (Task) value;
+                JsonObject json = delegate.toJsonTree(value).getAsJsonObject();
+                json.add(FIELD_DURATION, durationAdapter.toJsonTree(task.getDuration()));
+                json.add(FIELD_START_TIME, toJsonOrNull(timeAdapter, task.getStartTime()));
+                json.add(FIELD_END_TIME, toJsonOrNull(timeAdapter, task.getEndTime()));
+                elementAdapter.write(jsonWriter, json);
+            }
+
+            @Override
+            public T read(JsonReader jsonReader) throws IOException {
+                JsonElement element = elementAdapter.read(jsonReader);
+                if (element == null || element.isJsonNull()) {
+                    return null;
+                }
+                JsonObject json = element.getAsJsonObject();
+                T value = delegate.fromJsonTree(json);
+                Task task = (Task) value;
+                Duration duration = readField(durationAdapter, json, FIELD_DURATION);
+                task.setStartTime(readField(timeAdapter, json, FIELD_START_TIME));
+                task.setDuration(duration == null ? Duration.ZERO : duration);
+                if (task instanceof Epic epic && json.has(FIELD_END_TIME)) {
+                    epic.setEndTime(readField(timeAdapter, json, FIELD_END_TIME));
+                }
+                return value;
+            }
+        };
+    }
+
+    private static <V> JsonElement toJsonOrNull(TypeAdapter<V> adapter, V value) {
+        return value == null ? JsonNull.INSTANCE : adapter.toJsonTree(value);
+    }
+
+    private static <V> V readField(TypeAdapter<V> adapter, JsonObject json, String field) {
+        JsonElement element = json.get(field);
+        return element == null || element.isJsonNull() ? null : adapter.fromJsonTree(element);
+    }
+}
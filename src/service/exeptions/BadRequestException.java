@@ -0,0 +1,7 @@
+package service.exeptions;
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,308 @@
+package service.file;
+
+import java.nio.ByteBuffer;
+
+// B+-дерево в страницах PageFile. Ключ составной (long, long, int), значение long; корень хранится
+// в заголовке файла по смещению rootField. Листья связаны в двусвязный список для обхода диапазонов.
+// Узлы при удалении не сливаются: пустые листья остаются в списке и пропускаются курсором.
+final class BPlusTree {
+    private static final byte LEAF = 1;
+    private static final byte INNER = 2;
+
+    private static final int NODE_TYPE = 0;
+    private static final int NODE_COUNT = 4;
+    private static final int NODE_NEXT = 8;
+    private static final int NODE_PREV = 12;
+    private static final int NODE_HEADER = 16;
+    private static final int INNER_FIRST_CHILD = NODE_HEADER;
+    private static final int INNER_ENTRIES = NODE_HEADER + Integer.BYTES;
+
+    private static final int KEY_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int LEAF_ENTRY = KEY_SIZE + Long.BYTES;
+    private static final int INNER_ENTRY = KEY_SIZE + Integer.BYTES;
+    private static final int LEAF_CAPACITY = (PageFile.PAGE_SIZE - NODE_HEADER) / LEAF_ENTRY;
+    private static final int INNER_CAPACITY = (PageFile.PAGE_SIZE - INNER_ENTRIES) / INNER_ENTRY;
+    private static final int MAX_HEIGHT = 32;
+
+    static final long NOT_FOUND = -1;
+
+    private final PageFile pages;
+    private final int rootField;
+    private final ByteBuffer scratch = ByteBuffer.allocate(PageFile.PAGE_SIZE + LEAF_ENTRY);
+
+    BPlusTree(PageFile pages, int rootField) {
+        this.pages = pages;
+        this.rootField = rootField;
+    }
+
+    static void create(PageFile pages, int rootField) {
+        int root = pages.allocate();
+        pages.write(root).put(NODE_TYPE, LEAF);
+        pages.write(0).putInt(rootField, root);
+    }
+
+    long get(long a, long b, int c) {
+        int leaf = findLeaf(a, b, c, null, null);
+        ByteBuffer node = pages.read(leaf);
+        int position = lowerBound(node, a, b, c);
+        if (position < count(node) && compare(node, leafEntry(position), a, b, c) == 0) {
+            return node.getLong(leafEntry(position) + KEY_SIZE);
+        }
+        return NOT_FOUND;
+    }
+
+    void put(long a, long b, int c, long value) {
+        int[] path = new int[MAX_HEIGHT];
+        int[] slots = new int[MAX_HEIGHT];
+        int leaf = findLeaf(a, b, c, path, slots);
+        int depth = depthOf(path);
+
+        ByteBuffer node = pages.write(leaf);
+        int count = count(node);
+        int position = lowerBound(node, a, b, c);
+        if (position < count && compare(node, leafEntry(position), a, b, c) == 0) {
+            node.putLong(leafEntry(position) + KEY_SIZE, value);
+            return;
+        }
+        if (count < LEAF_CAPACITY) {
+            node.put(leafEntry(position + 1), node, leafEntry(position), (count - position) * LEAF_ENTRY);
+            putKey(node, leafEntry(position), a, b, c);
+            node.putLong(leafEntry(position) + KEY_SIZE, value);
+            node.putInt(NODE_COUNT, count + 1);
+            return;
+        }
+
+        // Лист полон: половина записей уходит в новый правый лист, его первый ключ поднимается в родителя.
+        scratch.put(0, node, NODE_HEADER, position * LEAF_ENTRY);
+        putKey(scratch, position * LEAF_ENTRY, a, b, c);
+        scratch.putLong(position * LEAF_ENTRY + KEY_SIZE, value);
+        scratch.put((position + 1) * LEAF_ENTRY, node, leafEntry(position), (count - position) * LEAF_ENTRY);
+        int total = count + 1;
+        int leftCount = total / 2;
+
+        int right = pages.allocate();
+        ByteBuffer rightNode = pages.write(right);
+        rightNode.put(NODE_TYPE, LEAF);
+        node.put(NODE_HEADER, scratch, 0, leftCount * LEAF_ENTRY);
+        rightNode.put(NODE_HEADER, scratch, leftCount * LEAF_ENTRY, (total - leftCount) * LEAF_ENTRY);
+        node.putInt(NODE_COUNT, leftCount);
+        rightNode.putInt(NODE_COUNT, total - leftCount);
+
+        int next = node.getInt(NODE_NEXT);
+        rightNode.putInt(NODE_NEXT, next);
+        rightNode.putInt(NODE_PREV, leaf);
+        node.putInt(NODE_NEXT, right);
+        if (next != 0) {
+            pages.write(next).putInt(NODE_PREV, right);
+        }
+        insertSeparator(path, slots, depth, leaf, rightNode.getLong(NODE_HEADER),
+                rightNode.getLong(NODE_HEADER + Long.BYTES), rightNode.getInt(NODE_HEADER + 2 * Long.BYTES), right);
+    }
+
+    boolean remove(long a, long b, int c) {
+        int leaf = findLeaf(a, b, c, null, null);
+        ByteBuffer node = pages.read(leaf);
+        int count = count(node);
+        int position = lowerBound(node, a, b, c);
+        if (position >= count || compare(node, leafEntry(position), a, b, c) != 0) {
+            return false;
+        }
+        node = pages.write(leaf);
+        node.put(leafEntry(position), node, leafEntry(position + 1), (count - position - 1) * LEAF_ENTRY);
+        node.putInt(NODE_COUNT, count - 1);
+        return true;
+    }
+
+    // Курсор на первой записи с ключом не меньше заданного.
+    Cursor seek(long a, long b, int c) {
+        int leaf = findLeaf(a, b, c, null, null);
+        return new Cursor(leaf, lowerBound(pages.read(leaf), a, b, c));
+    }
+
+    final class Cursor {
+        private int page;
+        private int index;
+
+        private Cursor(int page, int index) {
+            this.page = page;
+            this.index = index;
+        }
+
+        boolean valid() {
+            ByteBuffer node = pages.read(page);
+            while (index >= count(node) && node.getInt(NODE_NEXT) != 0) {
+                page = node.getInt(NODE_NEXT);
+                index = 0;
+                node = pages.read(page);
+            }
+            return index >= 0 && index < count(node);
+        }
+
+        void next() {
+            index++;
+        }
+
+        void previous() {
+            index--;
+            ByteBuffer node = pages.read(page);
+            while (index < 0 && node.getInt(NODE_PREV) != 0) {
+                page = node.getInt(NODE_PREV);
+                node = pages.read(page);
+                index = count(node) - 1;
+            }
+        }
+
+        long key1() {
+            return pages.read(page).getLong(leafEntry(index));
+        }
+
+        long key2() {
+            return pages.read(page).getLong(leafEntry(index) + Long.BYTES);
+        }
+
+        int key3() {
+            return pages.read(page).getInt(leafEntry(index) + 2 * Long.BYTES);
+        }
+
+        long value() {
+            return pages.read(page).getLong(leafEntry(index) + KEY_SIZE);
+        }
+
+        void setValue(long value) {
+            pages.write(page).putLong(leafEntry(index) + KEY_SIZE, value);
+        }
+    }
+
+    private void insertSeparator(int[] path, int[] slots, int depth, int left, long a, long b, int c, int right) {
+        for (int level = depth - 1; level >= 0; level--) {
+            ByteBuffer node = pages.write(path[level]);
+            int count = count(node);
+            int position = slots[level];
+            if (count < INNER_CAPACITY) {
+                node.put(innerEntry(position + 1), node, innerEntry(position), (count - position) * INNER_ENTRY);
+                putKey(node, innerEntry(position), a, b, c);
+                node.putInt(innerEntry(position) + KEY_SIZE, right);
+                node.putInt(NODE_COUNT, count + 1);
+                return;
+            }
+
+            // Средний ключ поднимается выше, его правый потомок становится первым потомком нового узла.
+            scratch.put(0, node, INNER_ENTRIES, position * INNER_ENTRY);
+            putKey(scratch, position * INNER_ENTRY, a, b, c);
+            scratch.putInt(position * INNER_ENTRY + KEY_SIZE, right);
+            scratch.put((position + 1) * INNER_ENTRY, node, innerEntry(position), (count - position) * INNER_ENTRY);
+            int total = count + 1;
+            int middle = total / 2;
+
+            int sibling = pages.allocate();
+            ByteBuffer siblingNode = pages.write(sibling);
+            siblingNode.put(NODE_TYPE, INNER);
+            siblingNode.putInt(INNER_FIRST_CHILD, scratch.getInt(middle * INNER_ENTRY + KEY_SIZE));
+            siblingNode.put(INNER_ENTRIES, scratch, (middle + 1) * INNER_ENTRY, (total - middle - 1) * INNER_ENTRY);
+            siblingNode.putInt(NODE_COUNT, total - middle - 1);
+            node.put(INNER_ENTRIES, scratch, 0, middle * INNER_ENTRY);
+            node.putInt(NODE_COUNT, middle);
+
+            a = scratch.getLong(middle * INNER_ENTRY);
+            b = scratch.getLong(middle * INNER_ENTRY + Long.BYTES);
+            c = scratch.getInt(middle * INNER_ENTRY + 2 * Long.BYTES);
+            left = path[level];
+            right = sibling;
+        }
+
+        int root = pages.allocate();
+        ByteBuffer node = pages.write(root);
+        node.put(NODE_TYPE, INNER);
+        node.putInt(INNER_FIRST_CHILD, left);
+        putKey(node, innerEntry(0), a, b, c);
+        node.putInt(innerEntry(0) + KEY_SIZE, right);
+        node.putInt(NODE_COUNT, 1);
+        pages.write(0).putInt(rootField, root);
+    }
+
+    // Спуск от корня; при вставке запоминает пройденные узлы и номера потомков.
+    private int findLeaf(long a, long b, int c, int[] path, int[] slots) {
+        int page = pages.read(0).getInt(rootField);
+        int depth = 0;
+        while (true) {
+            ByteBuffer node = pages.read(page);
+            if (node.get(NODE_TYPE) == LEAF) {
+                return page;
+            }
+            int slot = upperBound(node, a, b, c);
+            if (path != null) {
+                path[depth] = page;
+                slots[depth] = slot;
+            }
+            depth++;
+            page = slot == 0 ? node.getInt(INNER_FIRST_CHILD) : node.getInt(innerEntry(slot - 1) + KEY_SIZE);
+        }
+    }
+
+    // Страница 0 занята заголовком файла, поэтому ноль отмечает конец пути.
+    private static int depthOf(int[] path) {
+        int depth = 0;
+        while (path[depth] != 0) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static int count(ByteBuffer node) {
+        return node.getInt(NODE_COUNT);
+    }
+
+    private static int leafEntry(int index) {
+        return NODE_HEADER + index * LEAF_ENTRY;
+    }
+
+    private static int innerEntry(int index) {
+        return INNER_ENTRIES + index * INNER_ENTRY;
+    }
+
+    private static void putKey(ByteBuffer node, int offset, long a, long b, int c) {
+        node.putLong(offset, a);
+        node.putLong(offset + Long.BYTES, b);
+        node.putInt(offset + 2 * Long.BYTES, c);
+    }
+
+    private static int compare(ByteBuffer node, int offset, long a, long b, int c) {
+        int result = Long.compare(node.getLong(offset), a);
+        if (result == 0) {
+            result = Long.compare(node.getLong(offset + Long.BYTES), b);
+        }
+        if (result == 0) {
+            result = Integer.compare(node.getInt(offset + 2 * Long.BYTES), c);
+        }
+        return result;
+    }
+
+    private static int lowerBound(ByteBuffer node, long a, long b, int c) {
+        int low = 0;
+        int high = count(node);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(node, leafEntry(mid), a, b, c) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Число ключей узла, не превышающих заданный, то есть номер потомка для спуска.
+    private static int upperBound(ByteBuffer node, long a, long b, int c) {
+        int low = 0;
+        int high = count(node);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(node, innerEntry(mid), a, b, c) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
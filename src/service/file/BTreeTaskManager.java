@@ -0,0 +1,928 @@
+package service.file;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import model.TimeSlot;
+import service.HistoryManager;
+import service.TaskManager;
+import service.exeptions.ManagerIOException;
+import service.exeptions.NotFoundException;
+import service.exeptions.TaskTimeValidateException;
+import service.memory.ViewTracker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Доска целиком на диске: B+-деревья в файле страниц и записи задач в соседнем файле RECORDS_SUFFIX.
+// Индекс по id хранит ссылку на запись вместе с типом, расписание упорядочено по (начало, конец, id),
+// индекс эпиков хранит пары (эпик, подзадача), а два индекса времён - начала и концы подзадач каждого эпика,
+// откуда крайние значения берутся без чтения соседних записей. Данные согласованы на диске после flush и close.
+public class BTreeTaskManager implements TaskManager, AutoCloseable {
+    static final byte[] MAGIC = {'K', 'N', 'B', 'T'};
+    static final int VERSION = 2;
+    static final String RECORDS_SUFFIX = ".records";
+    static final String COMPACTED_SUFFIX = ".tmp";
+    // Ненулевое значение: индекс уже ссылается на сжатый файл записей, который ещё не переименован.
+    static final int HEADER_COMPACTION = 40;
+    public static final int DEFAULT_CACHE_PAGES = 1024;
+
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_MAX_ID = 8;
+    private static final int HEADER_ID_ROOT = 12;
+    private static final int HEADER_SCHEDULE_ROOT = 16;
+    private static final int HEADER_EPIC_ROOT = 20;
+    private static final int HEADER_RECORDS_END = 24;
+    private static final int HEADER_RECORDS_GARBAGE = 32;
+    private static final int HEADER_EPIC_STARTS_ROOT = 44;
+    private static final int HEADER_EPIC_ENDS_ROOT = 48;
+
+    // Запись: длина, тип, статус, id, эпик, начало, длительность, конец, у эпика - число подзадач, новых
+    // и выполненных среди них, затем длины строк и сами строки.
+    private static final int R_LENGTH = 0;
+    private static final int R_TYPE = 4;
+    private static final int R_STATUS = 5;
+    private static final int R_ID = 6;
+    private static final int R_EPIC_ID = 10;
+    private static final int R_START = 14;
+    private static final int R_DURATION = 22;
+    private static final int R_END = 30;
+    private static final int R_SUBTASKS = 38;
+    private static final int R_NEW_SUBTASKS = 42;
+    private static final int R_DONE_SUBTASKS = 46;
+    private static final int R_NAME_LENGTH = 50;
+    private static final int R_DESCRIPTION_LENGTH = 54;
+    private static final int R_FIXED = 58;
+    private static final int NULL_STRING = -1;
+
+    private static final int TYPE_BITS = 2;
+    private static final int BATCH = 1024;
+    private static final int COPY_BUFFER = 1 << 20;
+    private static final long EMPTY_EPIC_START = Task.toEpochMinutes(LocalDateTime.MIN);
+    private static final long EMPTY_EPIC_END = Task.toEpochMinutes(LocalDateTime.MIN.plusYears(1));
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final Path file;
+    private final Path recordsFile;
+    private final Path compactedFile;
+    private final Path compactedRecordsFile;
+    private final int cachePages;
+    private PageFile pages;
+    private PageFile records;
+    private BPlusTree ids;
+    private BPlusTree schedule;
+    private BPlusTree epicSubTasks;
+    private BPlusTree epicStarts;
+    private BPlusTree epicEnds;
+
+    private int newTaskId;
+    private final ViewTracker views;
+
+    public BTreeTaskManager(HistoryManager historyManager, Path file) {
+        this(historyManager, file, DEFAULT_CACHE_PAGES);
+    }
+
+    // cachePages - размер кеша каждого из двух файлов в страницах.
+    public BTreeTaskManager(HistoryManager historyManager, Path file, int cachePages) {
+        this.views = new ViewTracker(historyManager);
+        this.file = file;
+        this.recordsFile = file.resolveSibling(file.getFileName() + RECORDS_SUFFIX);
+        this.compactedFile = file.resolveSibling(file.getFileName() + COMPACTED_SUFFIX);
+        this.compactedRecordsFile = recordsFile.resolveSibling(recordsFile.getFileName() + COMPACTED_SUFFIX);
+        this.cachePages = cachePages;
+        this.pages = new PageFile(file, cachePages);
+        if (pages.pageCount() == 0) {
+            pages.allocate();
+            ByteBuffer header = pages.write(0);
+            header.put(0, MAGIC);
+            header.putInt(HEADER_VERSION, VERSION);
+            BPlusTree.create(pages, HEADER_ID_ROOT);
+            BPlusTree.create(pages, HEADER_SCHEDULE_ROOT);
+            BPlusTree.create(pages, HEADER_EPIC_ROOT);
+            BPlusTree.create(pages, HEADER_EPIC_STARTS_ROOT);
+            BPlusTree.create(pages, HEADER_EPIC_ENDS_ROOT);
+        }
+        checkHeader();
+        finishCompaction();
+        this.records = new PageFile(recordsFile, cachePages);
+        openTrees();
+        newTaskId = pages.read(0).getInt(HEADER_MAX_ID);
+
+        // Сжатие, когда мусора не меньше, чем живых записей.
+        long garbage = pages.read(0).getLong(HEADER_RECORDS_GARBAGE);
+        if (garbage > 0 && garbage * 2 >= pages.read(0).getLong(HEADER_RECORDS_END)) {
+            compactRecords();
+        }
+    }
+
+    public void flush() {
+        records.flush();
+        pages.flush();
+    }
+
+    @Override
+    public void close() {
+        records.close();
+        pages.close();
+    }
+
+    // Число страниц обоих файлов, прочитанных с диска: по нему видно, сколько страниц затронул запрос.
+    long pageReads() {
+        return pages.reads() + records.reads();
+    }
+
+    private int generateId() {
+        pages.write(0).putInt(HEADER_MAX_ID, ++newTaskId);
+        return newTaskId;
+    }
+
+    @Override
+    public Task create(Task task) {
+        checkTaskTime(task.getStartMinutes(), task.getEndMinutes(), 0);
+        task.setId(generateId());
+        insert(task, TaskType.TASK, 0);
+        return task;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(generateId());
+        long reference = insert(epic, TaskType.EPIC, 0);
+        copyEpicFields(refreshEpic(reference, readFixed(reference)), epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        if (lookup(subTask.getEpicId(), TaskType.EPIC) == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найден эпик " + subTask.getEpicId());
+        }
+
+        checkTaskTime(subTask.getStartMinutes(), subTask.getEndMinutes(), 0);
+        subTask.setId(generateId());
+        long reference = insert(subTask, TaskType.SUBTASK, subTask.getEpicId());
+        linkSubTask(subTask.getEpicId(), readFixed(reference));
+        return subTask;
+    }
+
+    @Override
+    public Task get(int id) {
+        long reference = lookup(id, TaskType.TASK);
+        if (reference == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найдена задача " + id);
+        }
+        Task task = materialize(reference);
+        views.record(task);
+        return task;
+    }
+
+    @Override
+    public Task findTask(int id) {
+        long reference = id > 0 ? ids.get(id, 0, 0) : BPlusTree.NOT_FOUND;
+        return reference == BPlusTree.NOT_FOUND ? null : materialize(reference);
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        long reference = lookup(id, TaskType.EPIC);
+        if (reference == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найден эпик " + id);
+        }
+        Epic epic = (Epic) materialize(reference);
+        views.record(epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        long reference = lookup(id, TaskType.SUBTASK);
+        if (reference == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найдена подзадача " + id);
+        }
+        SubTask subTask = (SubTask) materialize(reference);
+        views.record(subTask);
+        return subTask;
+    }
+
+    @Override
+    public Task update(Task task) {
+        checkTaskTime(task.getStartMinutes(), task.getEndMinutes(), task.getId());
+
+        long reference = lookup(task.getId(), TaskType.TASK);
+        if (reference == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найдена задача " + task.getId());
+        }
+
+        unschedule(reference);
+        reference = rewrite(reference, encode(task, TaskType.TASK, 0));
+        return materialize(reference);
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        long reference = lookup(epic.getId(), TaskType.EPIC);
+        if (reference == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        // Меняются только строки: сводка по подзадачам переносится из прежней записи как есть.
+        ByteBuffer record = encode(epic, TaskType.EPIC, 0);
+        record.put(R_STATUS, readFixed(reference).array(), R_STATUS, R_NAME_LENGTH - R_STATUS);
+        return (Epic) materialize(rewrite(reference, record));
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subTask) {
+        checkTaskTime(subTask.getStartMinutes(), subTask.getEndMinutes(), subTask.getId());
+
+        long reference = lookup(subTask.getId(), TaskType.SUBTASK);
+        if (reference == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найдена подзадача " + subTask.getId());
+        }
+
+        ByteBuffer old = readFixed(reference);
+        int epicId = old.getInt(R_EPIC_ID);
+        boolean linked = unlinkSubTask(epicId, old);
+        unschedule(reference);
+        reference = rewrite(reference, encode(subTask, TaskType.SUBTASK, epicId));
+        if (linked) {
+            linkSubTask(epicId, readFixed(reference));
+        }
+        return (SubTask) materialize(reference);
+    }
+
+    @Override
+    public Task delete(int id) {
+        views.forget(id);
+        long reference = lookup(id, TaskType.TASK);
+        if (reference == BPlusTree.NOT_FOUND) {
+            return null;
+        }
+        Task removed = materialize(reference);
+        remove(reference);
+        return removed;
+    }
+
+    @Override
+    public Epic deleteEpic(int id) {
+        views.forget(id);
+        long reference = lookup(id, TaskType.EPIC);
+        if (reference == BPlusTree.NOT_FOUND) {
+            return null;
+        }
+        Epic removed = (Epic) materialize(reference);
+        for (int[] batch = subTaskIds(id); batch.length > 0; batch = subTaskIds(id)) {
+            for (int subTaskId : batch) {
+                long subTaskReference = lookup(subTaskId, TaskType.SUBTASK);
+                if (subTaskReference != BPlusTree.NOT_FOUND) {
+                    unlinkSubTask(id, readFixed(subTaskReference));
+                    remove(subTaskReference);
+                } else {
+                    epicSubTasks.remove(id, subTaskId, 0);
+                }
+                views.forget(subTaskId);
+            }
+        }
+        remove(reference);
+        return removed;
+    }
+
+    @Override
+    public SubTask deleteSubTask(int id) {
+        views.forget(id);
+        long reference = lookup(id, TaskType.SUBTASK);
+        if (reference == BPlusTree.NOT_FOUND) {
+            return null;
+        }
+        SubTask removed = (SubTask) materialize(reference);
+        unlinkSubTask(removed.getEpicId(), readFixed(reference));
+        remove(reference);
+        return removed;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return collect(TaskType.TASK);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return collect(TaskType.EPIC);
+    }
+
+    @Override
+    public List<SubTask> getSubtasks() {
+        return collect(TaskType.SUBTASK);
+    }
+
+    @Override
+    public List<SubTask> getEpicSubtasks(int id) {
+        if (lookup(id, TaskType.EPIC) == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найден эпик " + id);
+        }
+        List<SubTask> result = new ArrayList<>();
+        for (BPlusTree.Cursor cursor = epicSubTasks.seek(id, 0, 0); cursor.valid() && cursor.key1() == id;
+                cursor.next()) {
+            long reference = lookup((int) cursor.key2(), TaskType.SUBTASK);
+            if (reference != BPlusTree.NOT_FOUND) {
+                result.add((SubTask) materialize(reference));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public TreeSet<Task> getPrioritizedTasks() {
+        TreeSet<Task> result = new TreeSet<>(PRIORITY_ORDER);
+        for (BPlusTree.Cursor cursor = schedule.seek(Long.MIN_VALUE, Long.MIN_VALUE, Integer.MIN_VALUE);
+                cursor.valid(); cursor.next()) {
+            result.add(materialize(cursor.value()));
+        }
+        return result;
+    }
+
+    @Override
+    public NavigableSet<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        long first = from == null ? Long.MIN_VALUE : Task.toEpochMinutes(from);
+        long last = to == null ? Long.MAX_VALUE : Task.toEpochMinutes(to);
+        TreeSet<Task> result = new TreeSet<>(PRIORITY_ORDER);
+        for (BPlusTree.Cursor cursor = schedule.seek(first, Long.MIN_VALUE, Integer.MIN_VALUE);
+                cursor.valid() && cursor.key1() < last; cursor.next()) {
+            result.add(materialize(cursor.value()));
+        }
+        return Collections.unmodifiableNavigableSet(result);
+    }
+
+    @Override
+    public List<Task> nextAfter(LocalDateTime time, int limit) {
+        List<Task> result = new ArrayList<>();
+        for (BPlusTree.Cursor cursor = schedule.seek(Task.toEpochMinutes(time), Long.MIN_VALUE, Integer.MIN_VALUE);
+                cursor.valid() && result.size() < limit; cursor.next()) {
+            result.add(materialize(cursor.value()));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> previousBefore(LocalDateTime time, int limit) {
+        List<Task> result = new ArrayList<>();
+        BPlusTree.Cursor cursor = schedule.seek(Task.toEpochMinutes(time), Long.MIN_VALUE, Integer.MIN_VALUE);
+        for (cursor.previous(); cursor.valid() && result.size() < limit; cursor.previous()) {
+            result.add(materialize(cursor.value()));
+        }
+        return result;
+    }
+
+    @Override
+    public TimeSlot findFreeSlot(LocalDateTime after, Duration duration) {
+        long length = duration.toMinutes();
+        long cursorTime = freeFrom(Task.toEpochMinutes(after));
+        for (BPlusTree.Cursor cursor = schedule.seek(cursorTime, Long.MIN_VALUE, Integer.MIN_VALUE);
+                cursor.valid(); cursor.next()) {
+            if (cursor.key1() - cursorTime >= length) {
+                break;
+            }
+            cursorTime = Math.max(cursorTime, cursor.key2());
+        }
+        return new TimeSlot(cursorTime, cursorTime + length);
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        long length = Math.max(minDuration.toMinutes(), 1);
+        long end = Task.toEpochMinutes(to);
+        long cursorTime = freeFrom(Task.toEpochMinutes(from));
+        List<TimeSlot> result = new ArrayList<>();
+        for (BPlusTree.Cursor cursor = schedule.seek(cursorTime, Long.MIN_VALUE, Integer.MIN_VALUE);
+                cursor.valid(); cursor.next()) {
+            long start = cursor.key1();
+            if (start >= end) {
+                break;
+            }
+            if (start - cursorTime >= length) {
+                result.add(new TimeSlot(cursorTime, start));
+            }
+            cursorTime = Math.max(cursorTime, cursor.key2());
+        }
+        if (end - cursorTime >= length) {
+            result.add(new TimeSlot(cursorTime, end));
+        }
+        return result;
+    }
+
+    private long freeFrom(long minutes) {
+        BPlusTree.Cursor cursor = schedule.seek(minutes, Long.MIN_VALUE, Integer.MIN_VALUE);
+        cursor.previous();
+        return cursor.valid() ? Math.max(minutes, cursor.key2()) : minutes;
+    }
+
+    @Override
+    public void clearTasks() {
+        clearRecords(TaskType.TASK);
+    }
+
+    @Override
+    public void clearEpics() {
+        clearRecords(TaskType.SUBTASK);
+        clearRecords(TaskType.EPIC);
+    }
+
+    @Override
+    public void clearSubTasks() {
+        clearRecords(TaskType.SUBTASK);
+    }
+
+    @Override
+    public void removeSubTaskFromEpic(Epic epic, Integer subTaskId) {
+        if (lookup(epic.getId(), TaskType.EPIC) == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        long reference = lookup(subTaskId, TaskType.SUBTASK);
+        if (reference != BPlusTree.NOT_FOUND) {
+            unlinkSubTask(epic.getId(), readFixed(reference));
+        } else {
+            epicSubTasks.remove(epic.getId(), subTaskId, 0);
+        }
+        epic.removeSubTaskId(subTaskId);
+        copyEpicFields(lookup(epic.getId(), TaskType.EPIC), epic);
+    }
+
+    @Override
+    public void removeAllSubtasksFromEpic(Epic epic) {
+        if (lookup(epic.getId(), TaskType.EPIC) == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        for (int[] batch = subTaskIds(epic.getId()); batch.length > 0; batch = subTaskIds(epic.getId())) {
+            for (int subTaskId : batch) {
+                long reference = lookup(subTaskId, TaskType.SUBTASK);
+                if (reference != BPlusTree.NOT_FOUND) {
+                    unlinkSubTask(epic.getId(), readFixed(reference));
+                } else {
+                    epicSubTasks.remove(epic.getId(), subTaskId, 0);
+                }
+            }
+        }
+        epic.clearSubTaskIds();
+        copyEpicFields(lookup(epic.getId(), TaskType.EPIC), epic);
+    }
+
+    @Override
+    public SubTask addSubTaskToEpic(Epic epic, SubTask subTask) {
+        if (epic == null)
+            return null;
+        if (lookup(epic.getId(), TaskType.EPIC) == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        long reference = lookup(subTask.getId(), TaskType.SUBTASK);
+        if (reference == BPlusTree.NOT_FOUND) {
+            throw new NotFoundException("Не найдена подзадача " + subTask.getId());
+        }
+        // Эпик подзадачи хранится в её записи, поэтому при переносе она уходит из прежнего эпика.
+        ByteBuffer fixed = readFixed(reference);
+        unlinkSubTask(fixed.getInt(R_EPIC_ID), fixed);
+        if (fixed.getInt(R_EPIC_ID) != epic.getId()) {
+            records.write(offsetOf(reference) + R_EPIC_ID, intBytes(epic.getId()));
+        }
+        linkSubTask(epic.getId(), fixed);
+        epic.addSubTaskId(subTask.getId());
+        copyEpicFields(lookup(epic.getId(), TaskType.EPIC), epic);
+        return subTask;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return views.getHistory();
+    }
+
+    @Override
+    public List<Task> getTopViewed(int k) {
+        return views.getTopViewed(k, this::findTask);
+    }
+
+    private void checkHeader() {
+        ByteBuffer header = pages.read(0);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new ManagerIOException("Файл " + file + " не является хранилищем задач");
+        }
+        int version = header.getInt(HEADER_VERSION);
+        if (version != VERSION) {
+            throw new ManagerIOException("Неподдерживаемая версия хранилища: " + version);
+        }
+    }
+
+    // Ссылка в индексе: смещение записи в файле записей и тип задачи в младших битах.
+    private static long referenceOf(long offset, TaskType type) {
+        return offset << TYPE_BITS | type.ordinal();
+    }
+
+    private static long offsetOf(long reference) {
+        return reference >>> TYPE_BITS;
+    }
+
+    private static TaskType typeOf(long reference) {
+        return TYPES[(int) (reference & ((1 << TYPE_BITS) - 1))];
+    }
+
+    private long lookup(int id, TaskType type) {
+        if (id <= 0) {
+            return BPlusTree.NOT_FOUND;
+        }
+        long reference = ids.get(id, 0, 0);
+        return reference != BPlusTree.NOT_FOUND && typeOf(reference) == type ? reference : BPlusTree.NOT_FOUND;
+    }
+
+    private long insert(Task task, TaskType type, int epicId) {
+        long reference = referenceOf(append(encode(task, type, epicId)), type);
+        ids.put(task.getId(), 0, 0, reference);
+        schedule(task.getId(), reference);
+        return reference;
+    }
+
+    private void schedule(int id, long reference) {
+        if (typeOf(reference) == TaskType.EPIC) {
+            return;
+        }
+        ByteBuffer fixed = readFixed(reference);
+        if (fixed.getLong(R_START) != Task.NO_TIME) {
+            schedule.put(fixed.getLong(R_START), fixed.getLong(R_END), id, reference);
+        }
+    }
+
+    private void unschedule(long reference) {
+        ByteBuffer fixed = readFixed(reference);
+        if (typeOf(reference) != TaskType.EPIC && fixed.getLong(R_START) != Task.NO_TIME) {
+            schedule.remove(fixed.getLong(R_START), fixed.getLong(R_END), fixed.getInt(R_ID));
+        }
+    }
+
+    private void remove(long reference) {
+        unschedule(reference);
+        ByteBuffer fixed = readFixed(reference);
+        ids.remove(fixed.getInt(R_ID), 0, 0);
+        addGarbage(fixed.getInt(R_LENGTH));
+    }
+
+    // Запись той же длины перезаписывается на месте, иначе дописывается в конец, а старая становится мусором.
+    private long rewrite(long reference, ByteBuffer record) {
+        int id = record.getInt(R_ID);
+        long offset = offsetOf(reference);
+        int oldLength = readFixed(reference).getInt(R_LENGTH);
+        if (oldLength == record.capacity()) {
+            records.write(offset, record.array());
+        } else {
+            addGarbage(oldLength);
+            reference = referenceOf(append(record), typeOf(reference));
+            ids.put(id, 0, 0, reference);
+        }
+        schedule(id, reference);
+        return reference;
+    }
+
+    private long append(ByteBuffer record) {
+        ByteBuffer header = pages.write(0);
+        long offset = header.getLong(HEADER_RECORDS_END);
+        records.write(offset, record.array());
+        header.putLong(HEADER_RECORDS_END, offset + record.capacity());
+        return offset;
+    }
+
+    private void addGarbage(int length) {
+        ByteBuffer header = pages.write(0);
+        header.putLong(HEADER_RECORDS_GARBAGE, header.getLong(HEADER_RECORDS_GARBAGE) + length);
+    }
+
+    private static ByteBuffer encode(Task task, TaskType type, int epicId) {
+        byte[] name = task.getName() == null ? null : task.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] description = task.getDescription() == null ? null
+                : task.getDescription().getBytes(StandardCharsets.UTF_8);
+        int length = R_FIXED + (name == null ? 0 : name.length) + (description == null ? 0 : description.length);
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(R_LENGTH, length);
+        record.put(R_TYPE, (byte) type.ordinal());
+        record.put(R_STATUS, (byte) task.getTaskStatus().ordinal());
+        record.putInt(R_ID, task.getId());
+        record.putInt(R_EPIC_ID, epicId);
+        record.putLong(R_START, task.getStartMinutes());
+        record.putLong(R_DURATION, task.getDurationMinutes());
+        record.putLong(R_END, task.getEndMinutes());
+        record.putInt(R_NAME_LENGTH, name == null ? NULL_STRING : name.length);
+        record.putInt(R_DESCRIPTION_LENGTH, description == null ? NULL_STRING : description.length);
+        int position = R_FIXED;
+        if (name != null) {
+            record.put(position, name);
+            position += name.length;
+        }
+        if (description != null) {
+            record.put(position, description);
+        }
+        return record;
+    }
+
+    private ByteBuffer readFixed(long reference) {
+        byte[] fixed = new byte[R_FIXED];
+        records.read(offsetOf(reference), fixed);
+        return ByteBuffer.wrap(fixed);
+    }
+
+    private Task materialize(long reference) {
+        ByteBuffer fixed = readFixed(reference);
+        byte[] strings = new byte[fixed.getInt(R_LENGTH) - R_FIXED];
+        records.read(offsetOf(reference) + R_FIXED, strings);
+        int nameLength = fixed.getInt(R_NAME_LENGTH);
+        int descriptionLength = fixed.getInt(R_DESCRIPTION_LENGTH);
+        String name = nameLength == NULL_STRING ? null
+                : new String(strings, 0, nameLength, StandardCharsets.UTF_8);
+        String description = descriptionLength == NULL_STRING ? null
+                : new String(strings, Math.max(nameLength, 0), descriptionLength, StandardCharsets.UTF_8);
+
+        int id = fixed.getInt(R_ID);
+        TaskStatus status = STATUSES[fixed.get(R_STATUS)];
+        long start = fixed.getLong(R_START);
+        long duration = fixed.getLong(R_DURATION);
+        return switch (TYPES[fixed.get(R_TYPE)]) {
+            case TASK -> new Task(id, name, description, status, start, duration);
+            case SUBTASK -> new SubTask(id, fixed.getInt(R_EPIC_ID), name, description, status, start, duration);
+            case EPIC -> {
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                epic.setTaskStatus(status);
+                epic.setSchedule(start, duration, fixed.getLong(R_END));
+                for (BPlusTree.Cursor cursor = epicSubTasks.seek(id, 0, 0); cursor.valid() && cursor.key1() == id;
+                        cursor.next()) {
+                    epic.addSubTaskId((int) cursor.key2());
+                }
+                yield epic;
+            }
+        };
+    }
+
+    // Вклад подзадачи в эпик: пара в индексе эпиков, её начало и конец в индексах времён и счётчики в записи
+    // эпика. fixed - поля подзадачи, как они лежат на диске; при изменении подзадачи старый вклад снимается
+    // до перезаписи, а новый добавляется после, поэтому пересчёт не читает соседние подзадачи.
+    private void linkSubTask(int epicId, ByteBuffer fixed) {
+        int subTaskId = fixed.getInt(R_ID);
+        epicSubTasks.put(epicId, subTaskId, 0, 0);
+        epicStarts.put(epicId, fixed.getLong(R_START), subTaskId, 0);
+        epicEnds.put(epicId, fixed.getLong(R_END), subTaskId, 0);
+        adjustEpic(epicId, fixed, 1);
+    }
+
+    private boolean unlinkSubTask(int epicId, ByteBuffer fixed) {
+        int subTaskId = fixed.getInt(R_ID);
+        if (!epicSubTasks.remove(epicId, subTaskId, 0)) {
+            return false;
+        }
+        epicStarts.remove(epicId, fixed.getLong(R_START), subTaskId);
+        epicEnds.remove(epicId, fixed.getLong(R_END), subTaskId);
+        adjustEpic(epicId, fixed, -1);
+        return true;
+    }
+
+    private void adjustEpic(int epicId, ByteBuffer subTask, int sign) {
+        long reference = lookup(epicId, TaskType.EPIC);
+        if (reference == BPlusTree.NOT_FOUND) {
+            return;
+        }
+        ByteBuffer epic = readFixed(reference);
+        TaskStatus status = STATUSES[subTask.get(R_STATUS)];
+        epic.putInt(R_SUBTASKS, epic.getInt(R_SUBTASKS) + sign);
+        if (status == TaskStatus.NEW) {
+            epic.putInt(R_NEW_SUBTASKS, epic.getInt(R_NEW_SUBTASKS) + sign);
+        } else if (status == TaskStatus.DONE) {
+            epic.putInt(R_DONE_SUBTASKS, epic.getInt(R_DONE_SUBTASKS) + sign);
+        }
+        epic.putLong(R_DURATION, epic.getLong(R_DURATION) + sign * subTask.getLong(R_DURATION));
+        refreshEpic(reference, epic);
+    }
+
+    // Статус берётся из счётчиков, начало и конец - из крайних ключей индексов времён; поля записываются
+    // на место, длина записи не меняется.
+    private long refreshEpic(long reference, ByteBuffer epic) {
+        int epicId = epic.getInt(R_ID);
+        int size = epic.getInt(R_SUBTASKS);
+        TaskStatus status = TaskStatus.IN_PROGRESS;
+        if (size == 0 || epic.getInt(R_NEW_SUBTASKS) == size) {
+            status = TaskStatus.NEW;
+        } else if (epic.getInt(R_DONE_SUBTASKS) == size) {
+            status = TaskStatus.DONE;
+        }
+        BPlusTree.Cursor first = epicStarts.seek(epicId, Long.MIN_VALUE, Integer.MIN_VALUE);
+        BPlusTree.Cursor last = epicEnds.seek(epicId + 1L, Long.MIN_VALUE, Integer.MIN_VALUE);
+        last.previous();
+        epic.put(R_STATUS, (byte) status.ordinal());
+        epic.putLong(R_START, first.valid() && first.key1() == epicId ? first.key2() : EMPTY_EPIC_START);
+        epic.putLong(R_END, last.valid() && last.key1() == epicId ? Math.max(last.key2(), EMPTY_EPIC_END)
+                : EMPTY_EPIC_END);
+        if (size == 0) {
+            epic.putLong(R_DURATION, 0);
+        }
+        records.write(offsetOf(reference), epic.array());
+        return reference;
+    }
+
+    private void copyEpicFields(long reference, Epic epic) {
+        ByteBuffer fixed = readFixed(reference);
+        epic.setTaskStatus(STATUSES[fixed.get(R_STATUS)]);
+        epic.setSchedule(fixed.getLong(R_START), fixed.getLong(R_DURATION), fixed.getLong(R_END));
+    }
+
+    // Порядок по id совпадает с порядком создания; читаются только записи нужного типа.
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> collect(TaskType type) {
+        List<T> result = new ArrayList<>();
+        for (BPlusTree.Cursor cursor = ids.seek(1, 0, 0); cursor.valid(); cursor.next()) {
+            if (typeOf(cursor.value()) == type) {
+                result.add((T) materialize(cursor.value()));
+            }
+        }
+        return result;
+    }
+
+    // Удаление идёт пачками: курсор не переживает изменения дерева, а список всех id не держится в памяти.
+    private int[] idsOf(TaskType type, int from) {
+        int[] batch = new int[BATCH];
+        int size = 0;
+        for (BPlusTree.Cursor cursor = ids.seek(from, 0, 0); cursor.valid() && size < BATCH; cursor.next()) {
+            if (typeOf(cursor.value()) == type) {
+                batch[size++] = (int) cursor.key1();
+            }
+        }
+        return Arrays.copyOf(batch, size);
+    }
+
+    private int[] subTaskIds(int epicId) {
+        int[] batch = new int[BATCH];
+        int size = 0;
+        for (BPlusTree.Cursor cursor = epicSubTasks.seek(epicId, 0, 0);
+                cursor.valid() && cursor.key1() == epicId && size < BATCH; cursor.next()) {
+            batch[size++] = (int) cursor.key2();
+        }
+        return Arrays.copyOf(batch, size);
+    }
+
+    private void clearRecords(TaskType type) {
+        int from = 1;
+        for (int[] batch = idsOf(type, from); batch.length > 0; batch = idsOf(type, from)) {
+            for (int id : batch) {
+                long reference = lookup(id, type);
+                if (type == TaskType.SUBTASK) {
+                    ByteBuffer fixed = readFixed(reference);
+                    unlinkSubTask(fixed.getInt(R_EPIC_ID), fixed);
+                }
+                views.forget(id);
+                remove(reference);
+            }
+            from = batch[batch.length - 1] + 1;
+        }
+    }
+
+    private void checkTaskTime(long start, long end, int selfId) {
+        if (start == Task.NO_TIME) {
+            return;
+        }
+        BPlusTree.Cursor cursor = schedule.seek(end, Long.MIN_VALUE, Integer.MIN_VALUE);
+        for (cursor.previous(); cursor.valid(); cursor.previous()) {
+            if (cursor.key3() == selfId) {
+                continue;
+            }
+            if (cursor.key1() < end && cursor.key2() > start) {
+                throw new TaskTimeValidateException("Пересечение с задачей " + materialize(cursor.value()).getName());
+            }
+            return;
+        }
+    }
+
+    private void openTrees() {
+        ids = new BPlusTree(pages, HEADER_ID_ROOT);
+        schedule = new BPlusTree(pages, HEADER_SCHEDULE_ROOT);
+        epicSubTasks = new BPlusTree(pages, HEADER_EPIC_ROOT);
+        epicStarts = new BPlusTree(pages, HEADER_EPIC_STARTS_ROOT);
+        epicEnds = new BPlusTree(pages, HEADER_EPIC_ENDS_ROOT);
+    }
+
+    // Доводит до конца сжатие, прерванное сбоем. Пока новый индекс не переименован, действуют старые файлы
+    // и недописанные копии удаляются; после переименования индекс ссылается только на сжатый файл записей.
+    private void finishCompaction() {
+        try {
+            Files.deleteIfExists(compactedFile);
+            if (pages.read(0).getInt(HEADER_COMPACTION) == 0) {
+                Files.deleteIfExists(compactedRecordsFile);
+                return;
+            }
+            if (Files.exists(compactedRecordsFile)) {
+                Files.move(compactedRecordsFile, recordsFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при сжатии файла " + recordsFile, e);
+        }
+        pages.write(0).putInt(HEADER_COMPACTION, 0);
+        pages.flush();
+    }
+
+    // Живые записи переписываются подряд в новый файл в порядке id, а индексы строятся заново в новом файле
+    // страниц. Старые файлы не меняются до переименования нового индекса - это и есть точка фиксации:
+    // сбой до неё оставляет прежнее хранилище, после неё finishCompaction переименует файл записей.
+    private void compactRecords() {
+        long end = 0;
+        try (FileChannel channel = FileChannel.open(compactedRecordsFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                PageFile compacted = new PageFile(compactedFile, cachePages)) {
+            compacted.allocate();
+            ByteBuffer header = compacted.write(0);
+            header.put(0, pages.read(0).array(), 0, HEADER_ID_ROOT);
+            BPlusTree.create(compacted, HEADER_ID_ROOT);
+            BPlusTree.create(compacted, HEADER_SCHEDULE_ROOT);
+            BPlusTree.create(compacted, HEADER_EPIC_ROOT);
+            BPlusTree.create(compacted, HEADER_EPIC_STARTS_ROOT);
+            BPlusTree.create(compacted, HEADER_EPIC_ENDS_ROOT);
+            BPlusTree compactedIds = new BPlusTree(compacted, HEADER_ID_ROOT);
+            BPlusTree compactedSchedule = new BPlusTree(compacted, HEADER_SCHEDULE_ROOT);
+
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER);
+            for (BPlusTree.Cursor cursor = ids.seek(1, 0, 0); cursor.valid(); cursor.next()) {
+                long reference = cursor.value();
+                byte[] record = new byte[readFixed(reference).getInt(R_LENGTH)];
+                records.read(offsetOf(reference), record);
+                if (buffer.remaining() < record.length) {
+                    writeFully(channel, buffer.flip());
+                    buffer.clear();
+                }
+                if (record.length > buffer.capacity()) {
+                    writeFully(channel, ByteBuffer.wrap(record));
+                } else {
+                    buffer.put(record);
+                }
+                TaskType type = typeOf(reference);
+                long moved = referenceOf(end, type);
+                end += record.length;
+                ByteBuffer fixed = ByteBuffer.wrap(record);
+                compactedIds.put(fixed.getInt(R_ID), 0, 0, moved);
+                if (type != TaskType.EPIC && fixed.getLong(R_START) != Task.NO_TIME) {
+                    compactedSchedule.put(fixed.getLong(R_START), fixed.getLong(R_END), fixed.getInt(R_ID), moved);
+                }
+            }
+            // Индексы эпиков не ссылаются на записи и переносятся как есть: подзадача, убранная из эпика,
+            // сохраняет его id в записи, но в эпик не возвращается.
+            copyTree(epicSubTasks, new BPlusTree(compacted, HEADER_EPIC_ROOT));
+            copyTree(epicStarts, new BPlusTree(compacted, HEADER_EPIC_STARTS_ROOT));
+            copyTree(epicEnds, new BPlusTree(compacted, HEADER_EPIC_ENDS_ROOT));
+            writeFully(channel, buffer.flip());
+            channel.force(false);
+
+            header = compacted.write(0);
+            header.putLong(HEADER_RECORDS_END, end);
+            header.putLong(HEADER_RECORDS_GARBAGE, 0);
+            header.putInt(HEADER_COMPACTION, 1);
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при сжатии файла " + recordsFile, e);
+        }
+
+        records.close();
+        pages.close();
+        try {
+            Files.move(compactedFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при сжатии файла " + file, e);
+        }
+        pages = new PageFile(file, cachePages);
+        finishCompaction();
+        records = new PageFile(recordsFile, cachePages);
+        openTrees();
+    }
+
+    private static void copyTree(BPlusTree source, BPlusTree target) {
+        for (BPlusTree.Cursor cursor = source.seek(Long.MIN_VALUE, Long.MIN_VALUE, Integer.MIN_VALUE);
+                cursor.valid(); cursor.next()) {
+            target.put(cursor.key1(), cursor.key2(), cursor.key3(), cursor.value());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] intBytes(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(0, value).array();
+    }
+}
@@ -0,0 +1,90 @@
+package service.file;
+
+import model.Task;
+import service.converter.BinaryTaskConverter;
+import service.exeptions.ManagerIOException;
+import util.ByteArrayBuilder;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Заголовок KNBN, версия формата и блоки записей. Блок начинается с длины в байтах и числа записей,
+// поэтому блоки можно пропускать, не разбирая.
+final class BinarySnapshot {
+    static final byte[] MAGIC = {'K', 'N', 'B', 'N'};
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = MAGIC.length + 1;
+    static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+    static final int BLOCK_RECORDS = 4096;
+
+    private BinarySnapshot() {
+    }
+
+    static boolean hasMagic(byte[] head) {
+        return head.length >= MAGIC.length && Arrays.equals(head, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put(VERSION);
+        return header.flip();
+    }
+
+    static ByteBuffer encodeBlocks(List<? extends Task> records, int blockRecords) {
+        ByteArrayBuilder out = new ByteArrayBuilder(records.size() * 48);
+        int blockStart = -1;
+        int count = 0;
+        for (Task task : records) {
+            if (count == 0) {
+                // Заголовок блока заполняется после записи всех его записей.
+                blockStart = out.size();
+                out.writeInt(0);
+                out.writeInt(0);
+            }
+            BinaryTaskConverter.write(task, out);
+            if (++count == blockRecords) {
+                closeBlock(out, blockStart, count);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            closeBlock(out, blockStart, count);
+        }
+        return out.toByteBuffer();
+    }
+
+    static void checkHeader(ByteBuffer in) {
+        byte[] head = new byte[MAGIC.length];
+        if (in.remaining() < HEADER_SIZE) {
+            throw new ManagerIOException("Файл не является двоичным снимком");
+        }
+        in.get(head);
+        if (!hasMagic(head)) {
+            throw new ManagerIOException("Файл не является двоичным снимком");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new ManagerIOException("Неподдерживаемая версия двоичного снимка: " + version);
+        }
+    }
+
+    static void decodeBlock(ByteBuffer block, int count, Consumer<Task> consumer) {
+        try {
+            for (int i = 0; i < count; i++) {
+                consumer.accept(BinaryTaskConverter.read(block));
+            }
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new ManagerIOException("Повреждён двоичный снимок: " + e.getMessage());
+        }
+        if (block.hasRemaining()) {
+            throw new ManagerIOException("Повреждён двоичный снимок: лишние данные в блоке");
+        }
+    }
+
+    private static void closeBlock(ByteArrayBuilder out, int blockStart, int count) {
+        out.setInt(blockStart, out.size() - blockStart - BLOCK_HEADER_SIZE);
+        out.setInt(blockStart + Integer.BYTES, count);
+    }
+}
@@ -0,0 +1,219 @@
+package service.file;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import service.exeptions.ManagerIOException;
+import service.exeptions.NotFoundException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+// Разбирает строки снимка прямо из байтов, без split и промежуточных строк для чисел и перечислений.
+final class CsvSnapshotParser {
+    private static final int FIELD_ID = 0;
+    private static final int FIELD_TYPE = 1;
+    private static final int FIELD_NAME = 2;
+    private static final int FIELD_STATUS = 3;
+    private static final int FIELD_DESCRIPTION = 4;
+    private static final int FIELD_EPIC = 5;
+    private static final int FIELD_DURATION = 6;
+    private static final int FIELD_START_TIME = 7;
+    private static final int FIELD_COUNT = 8;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final byte[][] TYPE_NAMES = names(TYPES);
+    private static final byte[][] STATUS_NAMES = names(STATUSES);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final int SHORT_TIME_LENGTH = "yyyy-MM-ddTHH:mm".length();
+
+    private CsvSnapshotParser() {
+    }
+
+    // Разбирает все завершённые строки из [from, to) и возвращает начало первой незавершённой строки.
+    // Если last, то остаток после последнего перевода строки тоже считается записью.
+    static int parseLines(byte[] bytes, int from, int to, boolean last, Consumer<Task> consumer) {
+        int[] bounds = new int[FIELD_COUNT + 1];
+        int lineStart = from;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n') {
+                parseLine(bytes, lineStart, i, bounds, consumer);
+                lineStart = i + 1;
+            }
+        }
+        if (last && lineStart < to) {
+            parseLine(bytes, lineStart, to, bounds, consumer);
+            lineStart = to;
+        }
+        return lineStart;
+    }
+
+    static Task parseRecord(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        Task task = parseRecord(bytes, 0, bytes.length, new int[FIELD_COUNT + 1]);
+        if (task == null) {
+            throw new ManagerIOException("Повреждена запись: " + line);
+        }
+        return task;
+    }
+
+    private static void parseLine(byte[] bytes, int from, int to, int[] bounds, Consumer<Task> consumer) {
+        Task task = parseRecord(bytes, from, to, bounds);
+        if (task != null) {
+            consumer.accept(task);
+        }
+    }
+
+    private static Task parseRecord(byte[] bytes, int from, int to, int[] bounds) {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        // Пустые строки и заголовок не являются записями.
+        if (from == to || bytes[from] < '0' || bytes[from] > '9') {
+            return null;
+        }
+        int fields = split(bytes, from, to, bounds);
+        if (fields != FIELD_COUNT) {
+            throw new ManagerIOException("Повреждена запись: " + new String(bytes, from, to - from,
+                    StandardCharsets.UTF_8));
+        }
+
+        int id = (int) parseLong(bytes, bounds, FIELD_ID);
+        TaskType type = TYPES[match(bytes, bounds, FIELD_TYPE, TYPE_NAMES)];
+        String name = string(bytes, bounds, FIELD_NAME);
+        String description = string(bytes, bounds, FIELD_DESCRIPTION);
+        if (type == TaskType.EPIC) {
+            // Статус и время эпика вычисляются по подзадачам.
+            Epic epic = new Epic(name, description);
+            epic.setId(id);
+            return epic;
+        }
+
+        TaskStatus status = STATUSES[match(bytes, bounds, FIELD_STATUS, STATUS_NAMES)];
+        long durationMinutes = parseLong(bytes, bounds, FIELD_DURATION);
+        long startMinutes = parseTime(bytes, bounds[FIELD_START_TIME], bounds[FIELD_START_TIME + 1] - 1);
+        if (type == TaskType.SUBTASK) {
+            return new SubTask(id, (int) parseLong(bytes, bounds, FIELD_EPIC), name, description, status,
+                    startMinutes, durationMinutes);
+        }
+        return new Task(id, name, description, status, startMinutes, durationMinutes);
+    }
+
+    // В bounds[i] записывается начало поля i; конец поля равен bounds[i + 1] - 1.
+    private static int split(byte[] bytes, int from, int to, int[] bounds) {
+        int fields = 0;
+        bounds[fields++] = from;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == ',') {
+                if (fields == FIELD_COUNT) {
+                    return fields + 1;
+                }
+                bounds[fields++] = i + 1;
+            }
+        }
+        bounds[fields] = to + 1;
+        return fields;
+    }
+
+    private static long parseLong(byte[] bytes, int[] bounds, int field) {
+        int from = bounds[field];
+        int to = bounds[field + 1] - 1;
+        boolean negative = from < to && bytes[from] == '-';
+        if (negative) {
+            from++;
+        }
+        if (from == to) {
+            throw numberFormat(bytes, bounds, field);
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw numberFormat(bytes, bounds, field);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static int match(byte[] bytes, int[] bounds, int field, byte[][] names) {
+        int from = bounds[field];
+        int length = bounds[field + 1] - 1 - from;
+        for (int i = 0; i < names.length; i++) {
+            if (equals(bytes, from, length, names[i])) {
+                return i;
+            }
+        }
+        String value = new String(bytes, from, length, StandardCharsets.UTF_8);
+        if (names == TYPE_NAMES) {
+            throw new NotFoundException("Не найден тип задачи: " + value);
+        }
+        throw new NotFoundException("Не найден статус задачи: " + value);
+    }
+
+    private static String string(byte[] bytes, int[] bounds, int field) {
+        return new String(bytes, bounds[field], bounds[field + 1] - 1 - bounds[field], StandardCharsets.UTF_8);
+    }
+
+    private static long parseTime(byte[] bytes, int from, int to) {
+        if (equals(bytes, from, to - from, NULL)) {
+            return Task.NO_TIME;
+        }
+        // LocalDateTime.toString без секунд даёт ровно yyyy-MM-ddTHH:mm, остальное разбирается стандартно.
+        if (to - from == SHORT_TIME_LENGTH && bytes[from + 4] == '-' && bytes[from + 7] == '-'
+                && bytes[from + 10] == 'T' && bytes[from + 13] == ':') {
+            int year = digits(bytes, from, 4);
+            int month = digits(bytes, from + 5, 2);
+            int day = digits(bytes, from + 8, 2);
+            int hour = digits(bytes, from + 11, 2);
+            int minute = digits(bytes, from + 14, 2);
+            if ((year | month | day | hour | minute) >= 0 && hour < 24 && minute < 60) {
+                return LocalDate.of(year, month, day).toEpochDay() * 24 * 60 + hour * 60L + minute;
+            }
+        }
+        return Task.toEpochMinutes(LocalDateTime.parse(new String(bytes, from, to - from,
+                StandardCharsets.US_ASCII)));
+    }
+
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean equals(byte[] bytes, int from, int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[from + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NumberFormatException numberFormat(byte[] bytes, int[] bounds, int field) {
+        return new NumberFormatException("Неверное число: " + new String(bytes, bounds[field],
+                bounds[field + 1] - 1 - bounds[field], StandardCharsets.UTF_8));
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
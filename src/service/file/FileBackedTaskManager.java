@@ -3,116 +3,412 @@ package service.file;
 import model.*;
 import service.HistoryManager;
 import service.Managers;
+import service.converter.BinaryTaskConverter;
 import service.converter.TaskConverter;
 import service.exeptions.AlreadyExistException;
 import service.exeptions.ManagerIOException;
 import service.exeptions.NotFoundException;
 import service.memory.InMemoryTaskManager;
+import util.ByteArrayBuilder;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
-    private static final int FIELD_ID = 0;
-    private static final int FIELD_TYPE = 1;
-    private static final int FIELD_NAME = 2;
-    private static final int FIELD_STATUS = 3;
-    private static final int FIELD_DESCRIPTION = 4;
-    private static final int FIELD_EPIC = 5;
-    private static final int FIELD_DURATION = 6;
-    private static final int FIELD_START_TIME = 7;
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private static final int LINE_SEPARATOR_BYTES = System.lineSeparator().length();
+
+    private static final String RECORD_UPSERT = "U";
+    private static final String RECORD_BINARY_UPSERT = "B";
+    private static final String RECORD_DELETE = "D";
+    private static final String RECORD_CLEAR = "C";
 
     private final Path file;
+    private final SnapshotFormat format;
+    private final Path logFile;
+    private final Path rotatedLogFile;
+    private final long compactionThreshold;
+    private final LogWriter logWriter;
+    private final boolean awaitDurable;
+    private final boolean durableSnapshots;
+    private long logSize;
+    private boolean replaying;
+    private CompletableFuture<Void> compaction = CompletableFuture.completedFuture(null);
+    private RuntimeException compactionFailure;
 
     public FileBackedTaskManager(HistoryManager historyManager, Path file) {
+        this(historyManager, file, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public FileBackedTaskManager(HistoryManager historyManager, Path file, long compactionThreshold) {
+        this(historyManager, file, compactionThreshold, SyncPolicy.OS, 0, true);
+    }
+
+    public FileBackedTaskManager(HistoryManager historyManager, Path file, SnapshotFormat format) {
+        this(historyManager, file, format, DEFAULT_COMPACTION_THRESHOLD, SyncPolicy.OS, 0, true);
+    }
+
+    public FileBackedTaskManager(HistoryManager historyManager, Path file, long compactionThreshold,
+                                 SyncPolicy syncPolicy, long syncIntervalMillis, boolean awaitDurable) {
+        this(historyManager, file, SnapshotFormat.detect(file), compactionThreshold, syncPolicy, syncIntervalMillis,
+                awaitDurable);
+    }
+
+    public FileBackedTaskManager(HistoryManager historyManager, Path file, SnapshotFormat format,
+                                 long compactionThreshold, SyncPolicy syncPolicy, long syncIntervalMillis,
+                                 boolean awaitDurable) {
         super(historyManager);
         this.file = file;
+        this.format = format;
+        this.logFile = file.resolveSibling(file.getFileName() + ".log");
+        this.rotatedLogFile = file.resolveSibling(file.getFileName() + ".log.1");
+        this.compactionThreshold = compactionThreshold;
+        this.awaitDurable = awaitDurable;
+        this.durableSnapshots = syncPolicy != SyncPolicy.OS;
 
         readFromFile();
+        this.logWriter = new LogWriter(logFile, syncPolicy, syncIntervalMillis);
     }
 
-    public void save() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
-            bw.write("id,type,name,status,description,epic,duration,startTime");
-            bw.newLine();
-            for (Task task : getTasks()) {
-                bw.write(TaskConverter.toString(task));
-                bw.newLine();
-            }
-            for (Epic epic : getEpics()) {
-                bw.write(TaskConverter.toString(epic));
-                bw.newLine();
-            }
-            for (SubTask subTask : getSubtasks()) {
-                bw.write(TaskConverter.toString(subTask));
-                bw.newLine();
-            }
+    public synchronized void save() {
+        // Полный снимок покрывает и записи старого журнала после неудачного сжатия, поэтому ошибка здесь снимается.
+        takeCompactionFailure();
+        compactSynchronously();
+    }
+
+    private void compactSynchronously() {
+        // Журнал очищается только после записи снимка: при сбое между ними он повторно применится поверх снимка.
+        writeSnapshot(snapshot());
+        logWriter.reset().join();
+        try {
+            Files.deleteIfExists(rotatedLogFile);
         } catch (IOException e) {
-            throw new ManagerIOException("Ошибка при записи файла " + file, e);
+            throw new ManagerIOException("Ошибка при очистке журнала " + rotatedLogFile, e);
+        }
+        logSize = 0;
+    }
+
+    @Override
+    public void close() {
+        try {
+            awaitCompaction();
+        } finally {
+            logWriter.close();
+        }
+    }
+
+    public void awaitCompaction() {
+        RuntimeException failure = takeCompactionFailure();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Ошибка фонового сжатия возвращается один раз.
+    private synchronized RuntimeException takeCompactionFailure() {
+        collectCompactionFailure();
+        RuntimeException failure = compactionFailure;
+        compactionFailure = null;
+        return failure;
+    }
+
+    // Ошибка завершившегося сжатия переносится в поле, чтобы следующее сжатие её не затёрло.
+    private void collectCompactionFailure() {
+        try {
+            compaction.join();
+        } catch (CompletionException e) {
+            compaction = CompletableFuture.completedFuture(null);
+            compactionFailure = e.getCause() instanceof RuntimeException cause ? cause : e;
         }
     }
 
+    public SnapshotFormat getFormat() {
+        return format;
+    }
+
+    public static void convert(Path source, Path target, SnapshotFormat format) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), source);
+        try {
+            SnapshotWriter.write(target, manager.encode(format), false);
+        } finally {
+            manager.close();
+        }
+    }
+
+    protected ByteBuffer[] snapshot() {
+        return encode(format);
+    }
+
+    protected void writeSnapshot(ByteBuffer[] snapshot) {
+        SnapshotWriter.write(file, snapshot, durableSnapshots);
+    }
+
+    private ByteBuffer[] encode(SnapshotFormat format) {
+        List<Task> records = new ArrayList<>(tasks.size() + epics.size() + subTasks.size());
+        records.addAll(getTasks());
+        records.addAll(getEpics());
+        records.addAll(getSubtasks());
+        return SnapshotWriter.encode(records, format);
+    }
+
     private void readFromFile() {
-        List<String> lines;
+        newTaskId = 0;
+        // Строки снимка проверяются на пересечения при построении расписания.
+        readSnapshot();
+        // Повтор журнала идемпотентен, поэтому старый журнал после прерванного сжатия можно применить повторно.
+        // Промежуточные состояния при таком повторе могут пересекаться, поэтому проверка отключается только здесь.
+        replaying = true;
+        try {
+            replay(readLines(rotatedLogFile));
+            replay(readLines(logFile));
+            logSize = sizeOf(logFile);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private void readSnapshot() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        // Записи складываются в хранилища как есть, а связи эпиков и индекс расписания строятся один раз в конце.
+        List<Task> scheduled = new ArrayList<>();
+        List<SubTask> loadedSubTasks = new ArrayList<>();
+        SnapshotReader.read(file, task -> {
+            store(task);
+            if (task.getType() == TaskType.SUBTASK) {
+                loadedSubTasks.add((SubTask) task);
+            }
+            if (isScheduled(task)) {
+                scheduled.add(task);
+            }
+        });
+        linkLoadedSubTasks(loadedSubTasks);
+        loadSchedule(scheduled);
+    }
+
+    private static List<String> readLines(Path path) {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
         try {
-            lines = Files.readAllLines(file);
+            return Files.readAllLines(path);
         } catch (IOException e) {
-            throw new ManagerIOException("Ошибка при чтении файла " + file, e);
+            throw new ManagerIOException("Ошибка при чтении файла " + path, e);
         }
+    }
 
-        newTaskId = 0;
-        for (int i = 1; i < lines.size(); i++) {
+    private void load(Task task) {
+        store(task);
+        switch (task.getType()) {
+            case EPIC -> updateEpicStatus((Epic) task);
+            case SUBTASK -> addSubTaskToEpic(epics.get(task.getEpicId()), (SubTask) task);
+        }
+        if (isScheduled(task)) {
+            prioritizedTasks.add(task);
+        }
+    }
 
-            Task task = fromString(lines.get(i));
+    private void store(Task task) {
+        if (task.getId() > newTaskId) {
+            newTaskId = task.getId();
+        }
 
-            if (task.getId() > newTaskId) {
-                newTaskId = task.getId();
+        switch (task.getType()) {
+            case EPIC -> addEpic((Epic) task);
+            case SUBTASK -> addSubTask((SubTask) task);
+            default -> add(task);
+        }
+    }
+
+    private static boolean isScheduled(Task task) {
+        return task.getType() != TaskType.EPIC && task.getStartMinutes() != Task.NO_TIME;
+    }
+
+    private void replay(List<String> records) {
+        for (int i = 0; i < records.size(); i++) {
+            String record = records.get(i);
+            if (record.isBlank()) {
+                continue;
+            }
+            try {
+                apply(record);
+            } catch (RuntimeException e) {
+                // Последняя запись могла оборваться при сбое во время записи.
+                if (i == records.size() - 1) {
+                    return;
+                }
+                throw e;
             }
+        }
+    }
 
-            switch (task.getType()) {
-                case EPIC -> addEpic((Epic) task);
-                case SUBTASK -> addSubTask((SubTask) task);
-                default -> add(task);
+    private void apply(String record) {
+        int separator = record.indexOf(',');
+        String kind = record.substring(0, separator);
+        String value = record.substring(separator + 1);
+        switch (kind) {
+            case RECORD_UPSERT -> upsert(fromString(value));
+            case RECORD_BINARY_UPSERT ->
+                    upsert(BinaryTaskConverter.read(ByteBuffer.wrap(Base64.getDecoder().decode(value))));
+            case RECORD_DELETE -> remove(Integer.parseInt(value));
+            case RECORD_CLEAR -> {
+                switch (TaskType.valueOf(value)) {
+                    case EPIC -> super.clearEpics();
+                    case SUBTASK -> super.clearSubTasks();
+                    default -> super.clearTasks();
+                }
             }
+            default -> throw new NotFoundException("Неизвестная запись журнала: " + record);
         }
+    }
 
+    private void upsert(Task task) {
+        switch (task.getType()) {
+            case EPIC -> {
+                if (epics.containsKey(task.getId())) {
+                    super.updateEpic((Epic) task);
+                } else {
+                    load(task);
+                }
+            }
+            case SUBTASK -> {
+                if (subTasks.containsKey(task.getId())) {
+                    super.updateSubTask((SubTask) task);
+                } else if (epics.containsKey(task.getEpicId())) {
+                    load(task);
+                }
+            }
+            default -> {
+                if (tasks.containsKey(task.getId())) {
+                    super.update(task);
+                } else {
+                    load(task);
+                }
+            }
+        }
     }
 
-    static FileBackedTaskManager loadFromFile(Path file) {
-        return new FileBackedTaskManager(Managers.getDefaultHistory(), file);
+    private void remove(int id) {
+        if (tasks.containsKey(id)) {
+            super.delete(id);
+        } else if (epics.containsKey(id)) {
+            super.deleteEpic(id);
+        } else if (subTasks.containsKey(id)) {
+            super.deleteSubTask(id);
+        }
+    }
+
+    protected CompletableFuture<Void> append(String record) {
+        CompletableFuture<Void> written = logWriter.append(record);
+        logSize += encodedLength(record) + LINE_SEPARATOR_BYTES;
+        if (logSize >= compactionThreshold && compaction.isDone()) {
+            // После ошибки фонового сжатия журнал продолжает сжиматься, а ошибка ждёт awaitCompaction или close.
+            collectCompactionFailure();
+            if (Files.exists(rotatedLogFile)) {
+                // Старый журнал не дошёл до снимка: новая ротация затёрла бы его, поэтому сжатие идёт синхронно.
+                compactSynchronously();
+            } else {
+                compactInBackground();
+            }
+        }
+        return written;
     }
 
-    private Task fromString(String line) {
-        String[] fields = line.split(",");
-        Task task;
-        TaskType taskType;
+    // Длина записи в байтах UTF-8, в которых она попадает в журнал, без кодирования строки.
+    private static long encodedLength(String record) {
+        long length = record.length();
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c >= 0x800 && !Character.isSurrogate(c)) {
+                length += 2;
+            } else if (c >= 0x80) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static long sizeOf(Path path) {
         try {
-            taskType = TaskType.valueOf(fields[FIELD_TYPE]);
-        } catch (IllegalArgumentException e) {
-            throw new NotFoundException("Не найден тип задачи: " + fields[FIELD_TYPE]);
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при чтении файла " + path, e);
         }
+    }
 
-        switch (taskType) {
-            case EPIC -> task = new Epic(fields[FIELD_NAME], fields[FIELD_DESCRIPTION]);
-            case SUBTASK -> task = new SubTask(Integer.parseInt(fields[FIELD_EPIC]), fields[FIELD_NAME],
-                    fields[FIELD_DESCRIPTION], TaskStatus.valueOf(fields[FIELD_STATUS]),
-                    LocalDateTime.parse(fields[FIELD_START_TIME]),
-                    Duration.ofMinutes(Integer.parseInt(fields[FIELD_DURATION])));
-            default -> task = new Task(fields[FIELD_NAME], fields[FIELD_DESCRIPTION],
-                    TaskStatus.valueOf(fields[FIELD_STATUS]),
-                    LocalDateTime.parse(fields[FIELD_START_TIME]),
-                    Duration.ofMinutes(Integer.parseInt(fields[FIELD_DURATION])));
+    private void compactInBackground() {
+        logSize = 0;
+        ByteBuffer[] snapshot = snapshot();
+        compaction = logWriter.rotate(rotatedLogFile).thenRunAsync(() -> {
+            writeSnapshot(snapshot);
+            try {
+                Files.deleteIfExists(rotatedLogFile);
+            } catch (IOException e) {
+                throw new ManagerIOException("Ошибка при удалении журнала " + rotatedLogFile, e);
+            }
+        });
+    }
+
+    private <R> R logged(Supplier<R> mutation, Function<R, String> toRecord) {
+        R result;
+        CompletableFuture<Void> written = null;
+        synchronized (this) {
+            result = mutation.get();
+            String record = toRecord.apply(result);
+            if (record != null) {
+                written = append(record);
+            }
         }
+        // Ожидание вне блокировки: пока один поток ждёт сброса, другие успевают попасть в ту же пачку.
+        if (written != null && awaitDurable) {
+            written.join();
+        }
+        return result;
+    }
+
+    private String upsertRecord(Task task) {
+        if (format == SnapshotFormat.BINARY) {
+            // В двоичном режиме запись не зависит от запятых в названии и описании.
+            ByteArrayBuilder out = new ByteArrayBuilder();
+            BinaryTaskConverter.write(task, out);
+            return RECORD_BINARY_UPSERT + "," + Base64.getEncoder().encodeToString(out.toByteArray());
+        }
+        return RECORD_UPSERT + "," + TaskConverter.toString(task);
+    }
 
-        task.setId(Integer.parseInt(fields[FIELD_ID]));
+    private static String deleteRecord(Task removed) {
+        return removed == null ? null : RECORD_DELETE + "," + removed.getId();
+    }
 
-        return task;
+    private static String clearRecord(TaskType type) {
+        return RECORD_CLEAR + "," + type.name();
+    }
+
+    @Override
+    protected void checkTaskTime(Task task) {
+        if (!replaying) {
+            super.checkTaskTime(task);
+        }
+    }
+
+    static FileBackedTaskManager loadFromFile(Path file) {
+        return new FileBackedTaskManager(Managers.getDefaultHistory(), file);
+    }
+
+    private static Task fromString(String line) {
+        return CsvSnapshotParser.parseRecord(line);
     }
 
     private void add(Task task) {
@@ -120,11 +416,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         if (saved != null) {
             throw new AlreadyExistException("Задача " + task.getId() + "уже существует");
         }
-        checkTaskTime(task);
         tasks.put(task.getId(), task);
-        if (task.getStartTime() != null) {
-            prioritizedTasks.add(task);
-        }
     }
 
     private void addEpic(Epic epic) {
@@ -133,7 +425,6 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
             throw new AlreadyExistException("Эпик " + epic.getId() + "уже существует");
         }
         epics.put(epic.getId(), epic);
-        updateEpicStatus(epic);
     }
 
     private void addSubTask(SubTask subTask) {
@@ -141,93 +432,75 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         if (saved != null) {
             throw new AlreadyExistException("Подзадача " + subTask.getId() + "уже существует");
         }
-        checkTaskTime(subTask);
         subTasks.put(subTask.getId(), subTask);
-        if (subTask.getStartTime() != null) {
-            prioritizedTasks.add(subTask);
-        }
-        addSubTaskToEpic(getEpic(subTask.getEpicId()), subTask);
-        updateEpicStatus(getEpic(subTask.getEpicId()));
     }
 
     @Override
     public Task create(Task task) {
-        Task result = super.create(task);
-        save();
-        return result;
+        return logged(() -> super.create(task), this::upsertRecord);
     }
 
     @Override
     public Epic createEpic(Epic epic) {
-        Epic result = super.createEpic(epic);
-        save();
-        return result;
+        return logged(() -> super.createEpic(epic), this::upsertRecord);
     }
 
     @Override
     public SubTask createSubTask(SubTask subTask) {
-        SubTask result = super.createSubTask(subTask);
-        save();
-        return result;
+        return logged(() -> super.createSubTask(subTask), this::upsertRecord);
     }
 
     @Override
     public Task update(Task task) {
-        Task result = super.update(task);
-        save();
-        return result;
+        return logged(() -> super.update(task), this::upsertRecord);
     }
 
     @Override
     public Epic updateEpic(Epic epic) {
-        Epic result = super.updateEpic(epic);
-        save();
-        return result;
+        return logged(() -> super.updateEpic(epic), this::upsertRecord);
     }
 
     @Override
     public SubTask updateSubTask(SubTask subTask) {
-        SubTask result = super.updateSubTask(subTask);
-        save();
-        return result;
+        return logged(() -> super.updateSubTask(subTask), this::upsertRecord);
     }
 
     @Override
     public Task delete(int id) {
-        Task result = super.delete(id);
-        save();
-        return result;
+        return logged(() -> super.delete(id), FileBackedTaskManager::deleteRecord);
     }
 
     @Override
     public Epic deleteEpic(int id) {
-        Epic result = super.deleteEpic(id);
-        save();
-        return result;
+        return logged(() -> super.deleteEpic(id), FileBackedTaskManager::deleteRecord);
     }
 
     @Override
     public SubTask deleteSubTask(int id) {
-        SubTask result = super.deleteSubTask(id);
-        save();
-        return result;
+        return logged(() -> super.deleteSubTask(id), FileBackedTaskManager::deleteRecord);
     }
 
     @Override
     public void clearTasks() {
-        super.clearTasks();
-        save();
+        logged(() -> {
+            super.clearTasks();
+            return TaskType.TASK;
+        }, FileBackedTaskManager::clearRecord);
     }
 
     @Override
     public void clearEpics() {
-        super.clearEpics();
-        save();
+        logged(() -> {
+            super.clearEpics();
+            return TaskType.EPIC;
+        }, FileBackedTaskManager::clearRecord);
     }
 
     @Override
     public void clearSubTasks() {
-        super.clearSubTasks();
-        save();
+        logged(() -> {
+            super.clearSubTasks();
+            return TaskType.SUBTASK;
+        }, FileBackedTaskManager::clearRecord);
     }
 }
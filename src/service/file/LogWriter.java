@@ -0,0 +1,205 @@
+package service.file;
+
+import service.exeptions.ManagerIOException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class LogWriter implements AutoCloseable {
+    private static class Command {
+        final String record;
+        final Runnable action;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Command(String record, Runnable action) {
+            this.record = record;
+            this.action = action;
+        }
+    }
+
+    private final Path logFile;
+    private final SyncPolicy syncPolicy;
+    private final long syncIntervalMillis;
+    private final BlockingQueue<Command> commands = new LinkedBlockingQueue<>();
+    private final List<CompletableFuture<Void>> unsynced = new ArrayList<>();
+    private Thread thread;
+    private FileChannel channel;
+    private long lastSync = System.nanoTime();
+    private volatile boolean closed;
+
+    LogWriter(Path logFile, SyncPolicy syncPolicy, long syncIntervalMillis) {
+        this.logFile = logFile;
+        this.syncPolicy = syncPolicy;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    CompletableFuture<Void> append(String record) {
+        return submit(new Command(record, null));
+    }
+
+    CompletableFuture<Void> rotate(Path target) {
+        return submit(new Command(null, () -> {
+            closeChannel();
+            if (Files.exists(target)) {
+                throw new ManagerIOException("Журнал " + target + " ещё не сохранён в снимок");
+            }
+            try {
+                if (Files.exists(logFile)) {
+                    Files.move(logFile, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                throw new ManagerIOException("Ошибка при ротации журнала " + logFile, e);
+            }
+        }));
+    }
+
+    CompletableFuture<Void> reset() {
+        return submit(new Command(null, () -> {
+            closeChannel();
+            try {
+                Files.deleteIfExists(logFile);
+            } catch (IOException e) {
+                throw new ManagerIOException("Ошибка при очистке журнала " + logFile, e);
+            }
+        }));
+    }
+
+    @Override
+    public void close() {
+        submit(new Command(null, () -> {
+            closed = true;
+            closeChannel();
+        })).join();
+    }
+
+    // Поток записи запускается первой записью журнала; до этого служебные команды выполняются на месте,
+    // так как канал ещё не открыт и ждать в очереди нечего.
+    private synchronized CompletableFuture<Void> submit(Command command) {
+        if (closed) {
+            throw new IllegalStateException("Журнал " + logFile + " закрыт");
+        }
+        if (thread == null && command.record == null) {
+            try {
+                command.action.run();
+                command.done.complete(null);
+            } catch (RuntimeException e) {
+                command.done.completeExceptionally(e);
+            }
+            return command.done;
+        }
+        if (thread == null) {
+            thread = new Thread(this::run, "log-writer-" + logFile.getFileName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        commands.add(command);
+        return command.done;
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                Command first = syncPolicy == SyncPolicy.INTERVAL && !unsynced.isEmpty()
+                        ? commands.poll(syncIntervalMillis, TimeUnit.MILLISECONDS)
+                        : commands.take();
+                if (first != null) {
+                    batch.add(first);
+                    commands.drainTo(batch);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            process(batch);
+            batch.clear();
+        }
+    }
+
+    private void process(List<Command> batch) {
+        StringBuilder records = new StringBuilder();
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        try {
+            for (Command command : batch) {
+                if (command.record != null) {
+                    records.append(command.record).append(System.lineSeparator());
+                    written.add(command.done);
+                } else {
+                    write(records, written);
+                    sync(true);
+                    command.action.run();
+                    command.done.complete(null);
+                }
+            }
+            write(records, written);
+            sync(syncPolicy == SyncPolicy.PER_OPERATION || System.nanoTime() - lastSync
+                    >= TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis));
+        } catch (RuntimeException e) {
+            batch.forEach(command -> command.done.completeExceptionally(e));
+            unsynced.forEach(future -> future.completeExceptionally(e));
+            unsynced.clear();
+        }
+    }
+
+    private void write(StringBuilder records, List<CompletableFuture<Void>> written) {
+        if (records.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(records.toString());
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при записи журнала " + logFile, e);
+        }
+        records.setLength(0);
+        if (syncPolicy == SyncPolicy.OS) {
+            written.forEach(future -> future.complete(null));
+        } else {
+            unsynced.addAll(written);
+        }
+        written.clear();
+    }
+
+    private void sync(boolean force) {
+        if (unsynced.isEmpty() || !force) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при сбросе журнала " + logFile, e);
+        }
+        lastSync = System.nanoTime();
+        unsynced.forEach(future -> future.complete(null));
+        unsynced.clear();
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при закрытии журнала " + logFile, e);
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,146 @@
+package service.file;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskType;
+import service.HistoryManager;
+import service.memory.InMemoryTaskManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Зеркало доски в отображённом файле: задачи и индексы живут в куче InMemoryTaskManager, а файл хранит их копию,
+// поэтому памяти нужно не меньше, чем обычному менеджеру. Выигрыш - в сохранении: изменение пишется в слот задачи
+// без снимков и журнала, а при открытии доска читается из слотов. Доску, которая держится в кэше страниц,
+// а не в куче, даёт BTreeTaskManager.
+public final class MappedMirrorTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private final MappedStore store;
+
+    public MappedMirrorTaskManager(HistoryManager historyManager, Path file) {
+        super(historyManager);
+        this.store = new MappedStore(file);
+        load();
+    }
+
+    // Записанное в отображение переживает падение процесса. При отключении питания теряются изменения после
+    // последнего flush, но каждая задача остаётся целой: оборванный слот не проходит проверку суммы.
+    public void flush() {
+        store.force();
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private void load() {
+        List<Task> scheduled = new ArrayList<>();
+        List<SubTask> loadedSubTasks = new ArrayList<>();
+        store.forEach(task -> {
+            switch (task.getType()) {
+                case EPIC -> epics.put(task.getId(), (Epic) task);
+                case SUBTASK -> {
+                    subTasks.put(task.getId(), (SubTask) task);
+                    loadedSubTasks.add((SubTask) task);
+                }
+                default -> tasks.put(task.getId(), task);
+            }
+            if (task.getType() != TaskType.EPIC && task.getStartMinutes() != Task.NO_TIME) {
+                scheduled.add(task);
+            }
+        });
+        newTaskId = store.getMaxId();
+        linkLoadedSubTasks(loadedSubTasks);
+        loadSchedule(scheduled);
+    }
+
+    private <T extends Task> T written(T task) {
+        store.write(task);
+        if (newTaskId > store.getMaxId()) {
+            store.setMaxId(newTaskId);
+        }
+        return task;
+    }
+
+    @Override
+    public Task create(Task task) {
+        return written(super.create(task));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return written(super.createEpic(epic));
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        return written(super.createSubTask(subTask));
+    }
+
+    @Override
+    public Task update(Task task) {
+        return written(super.update(task));
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return written(super.updateEpic(epic));
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subTask) {
+        return written(super.updateSubTask(subTask));
+    }
+
+    @Override
+    public Task delete(int id) {
+        Task removed = super.delete(id);
+        if (removed != null) {
+            store.free(id);
+        }
+        return removed;
+    }
+
+    @Override
+    public Epic deleteEpic(int id) {
+        Epic removed = super.deleteEpic(id);
+        if (removed != null) {
+            store.free(id);
+            removed.getSubTasksIdsStream().forEach(store::free);
+        }
+        return removed;
+    }
+
+    @Override
+    public SubTask deleteSubTask(int id) {
+        SubTask removed = super.deleteSubTask(id);
+        if (removed != null) {
+            store.free(id);
+        }
+        return removed;
+    }
+
+    @Override
+    public void clearTasks() {
+        List<Task> removed = getTasks();
+        super.clearTasks();
+        removed.forEach(task -> store.free(task.getId()));
+    }
+
+    @Override
+    public void clearEpics() {
+        List<Task> removed = new ArrayList<>(getEpics());
+        removed.addAll(getSubtasks());
+        super.clearEpics();
+        removed.forEach(task -> store.free(task.getId()));
+    }
+
+    @Override
+    public void clearSubTasks() {
+        List<SubTask> removed = getSubtasks();
+        super.clearSubTasks();
+        removed.forEach(subTask -> store.free(subTask.getId()));
+    }
+}
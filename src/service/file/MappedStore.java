@@ -0,0 +1,429 @@
+package service.file;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import service.exeptions.ManagerIOException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Каждому id отведена пара слотов фиксированного размера; пара 0 занята заголовком, так как id начинаются с 1.
+// Изменение пишется в неактивный слот пары, последней - контрольная сумма. При чтении берётся целый слот с большей
+// версией, поэтому обрыв записи оставляет прежнее значение задачи. Сумма покрывает и длинные строки: слот,
+// чьи строки не дошли до диска, тоже считается оборванным.
+// Строки длиннее INLINE_STRING байт лежат в отдельном файле и только дописываются; место старых значений
+// освобождается сжатием при открытии.
+final class MappedStore implements AutoCloseable {
+    static final byte[] MAGIC = {'K', 'N', 'M', 'M'};
+    static final int VERSION = 2;
+    static final int SLOT_SIZE = 64;
+    static final String STRINGS_SUFFIX = ".strings";
+    static final String COMPACTED_SUFFIX = ".tmp";
+
+    private static final int PAIR_SIZE = 2 * SLOT_SIZE;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int INITIAL_STRINGS = 64 << 10;
+    private static final int INLINE_STRING = 12;
+    private static final int NULL_STRING = -1;
+
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_MAX_ID = 8;
+    private static final int HEADER_GENERATION = 12;
+
+    private static final int SLOT_STATE = 0;
+    private static final int SLOT_TYPE = 1;
+    private static final int SLOT_STATUS = 2;
+    private static final int SLOT_VERSION = 3;
+    private static final int SLOT_ID = 4;
+    private static final int SLOT_EPIC = 8;
+    private static final int SLOT_CHECKSUM = 12;
+    private static final int SLOT_START = 16;
+    private static final int SLOT_DURATION = 24;
+    private static final int SLOT_NAME = 32;
+    private static final int SLOT_DESCRIPTION = 48;
+    private static final int[] STRING_FIELDS = {SLOT_NAME, SLOT_DESCRIPTION};
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+
+    private static final int STRINGS_END = 0;
+    private static final int STRINGS_GARBAGE = 8;
+    private static final int STRINGS_GENERATION = 16;
+    private static final int STRINGS_HEADER_SIZE = 24;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final Path file;
+    private final Path stringsFile;
+    private final FileChannel slotsChannel;
+    private FileChannel stringsChannel;
+    private MappedByteBuffer slots;
+    private MappedByteBuffer strings;
+
+    MappedStore(Path file) {
+        this.file = file;
+        this.stringsFile = file.resolveSibling(file.getFileName() + STRINGS_SUFFIX);
+        try {
+            slotsChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            boolean created = slotsChannel.size() == 0;
+            slots = map(slotsChannel, Math.max(slotsChannel.size(), (long) INITIAL_SLOTS * PAIR_SIZE));
+            if (created) {
+                slots.put(0, MAGIC);
+                slots.putInt(HEADER_VERSION, VERSION);
+                // Поколения начинаются с 1, чтобы недописанный файл строк из нулей не совпал с заголовком.
+                slots.putInt(HEADER_GENERATION, 1);
+                Files.deleteIfExists(stringsFile);
+            }
+            checkHeader();
+            finishCompaction();
+            stringsChannel = openStrings();
+            strings = map(stringsChannel, Math.max(stringsChannel.size(), INITIAL_STRINGS));
+            if (strings.getLong(STRINGS_END) == 0) {
+                strings.putLong(STRINGS_END, STRINGS_HEADER_SIZE);
+                strings.putInt(STRINGS_GENERATION, generation());
+            }
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при открытии файла " + file, e);
+        }
+        if (strings.getInt(STRINGS_GENERATION) != generation()) {
+            throw new ManagerIOException("Файл строк " + stringsFile + " не соответствует хранилищу");
+        }
+        // Сжатие, когда мусора не меньше, чем живых строк.
+        long garbage = strings.getLong(STRINGS_GARBAGE);
+        if (garbage > 0 && garbage * 2 >= strings.getLong(STRINGS_END) - STRINGS_HEADER_SIZE) {
+            compactStrings();
+        }
+    }
+
+    int getMaxId() {
+        return slots.getInt(HEADER_MAX_ID);
+    }
+
+    void setMaxId(int maxId) {
+        slots.putInt(HEADER_MAX_ID, maxId);
+    }
+
+    void forEach(Consumer<Task> consumer) {
+        int count = Math.min(slots.capacity() / PAIR_SIZE, getMaxId() + 1);
+        for (int id = 1; id < count; id++) {
+            int slot = current(id);
+            if (slot >= 0 && slots.get(slot + SLOT_STATE) == USED) {
+                consumer.accept(read(slot));
+            }
+        }
+    }
+
+    void write(Task task) {
+        int id = task.getId();
+        ensureSlot(id);
+        if (id > getMaxId()) {
+            // Заголовок обновляется раньше слота: иначе при обрыве загрузка не дошла бы до этого id.
+            setMaxId(id);
+        }
+        int current = current(id);
+        if (current >= 0 && slots.get(current + SLOT_STATE) == USED) {
+            release(current);
+        }
+        int slot = next(id, current);
+        slots.put(slot + SLOT_TYPE, (byte) task.getType().ordinal());
+        slots.put(slot + SLOT_STATUS, (byte) task.getTaskStatus().ordinal());
+        slots.putInt(slot + SLOT_ID, id);
+        slots.putInt(slot + SLOT_EPIC, task.getEpicId());
+        slots.putLong(slot + SLOT_START, task.getStartMinutes());
+        slots.putLong(slot + SLOT_DURATION, task.getDurationMinutes());
+        writeString(slot + SLOT_NAME, task.getName());
+        writeString(slot + SLOT_DESCRIPTION, task.getDescription());
+        commit(slot, current, USED);
+    }
+
+    void free(int id) {
+        if (id <= 0 || (long) (id + 1) * PAIR_SIZE > slots.capacity()) {
+            return;
+        }
+        int current = current(id);
+        if (current < 0 || slots.get(current + SLOT_STATE) != USED) {
+            return;
+        }
+        release(current);
+        int slot = next(id, current);
+        slots.putInt(slot + SLOT_ID, id);
+        slots.putInt(slot + SLOT_NAME, NULL_STRING);
+        slots.putInt(slot + SLOT_DESCRIPTION, NULL_STRING);
+        commit(slot, current, FREE);
+    }
+
+    // Сначала строки, потом слоты: слот на диске не должен ссылаться на строки, которых там ещё нет.
+    void force() {
+        strings.force();
+        slots.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+        try {
+            slotsChannel.close();
+            stringsChannel.close();
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при закрытии файла " + file, e);
+        }
+    }
+
+    // Актуальный слот пары или -1, если целых слотов в ней нет.
+    private int current(int id) {
+        int first = id * PAIR_SIZE;
+        int second = first + SLOT_SIZE;
+        boolean firstValid = isValid(first, strings, generation());
+        boolean secondValid = isValid(second, strings, generation());
+        if (firstValid && secondValid) {
+            return (byte) (slots.get(second + SLOT_VERSION) - slots.get(first + SLOT_VERSION)) > 0 ? second : first;
+        }
+        return firstValid ? first : secondValid ? second : -1;
+    }
+
+    private static int next(int id, int current) {
+        int first = id * PAIR_SIZE;
+        return current == first ? first + SLOT_SIZE : first;
+    }
+
+    // Версия и контрольная сумма пишутся последними: до этого слот не считается целым и не читается.
+    private void commit(int slot, int current, byte state) {
+        slots.put(slot + SLOT_VERSION, current < 0 ? 0 : (byte) (slots.get(current + SLOT_VERSION) + 1));
+        slots.put(slot + SLOT_STATE, state);
+        slots.putInt(slot + SLOT_CHECKSUM, checksum(slot, strings, generation()));
+    }
+
+    private boolean isValid(int slot, MappedByteBuffer strings, int generation) {
+        for (int field : STRING_FIELDS) {
+            int length = slots.getInt(slot + field);
+            if (length < NULL_STRING) {
+                return false;
+            }
+            if (length > INLINE_STRING) {
+                long offset = slots.getLong(slot + field + Integer.BYTES);
+                if (offset < STRINGS_HEADER_SIZE || offset + length > strings.capacity()) {
+                    return false;
+                }
+            }
+        }
+        return slots.getInt(slot + SLOT_CHECKSUM) == checksum(slot, strings, generation);
+    }
+
+    // Поколение строк входит в сумму: после сжатия слоты, указывающие в старый файл строк, перестают быть целыми.
+    private int checksum(int slot, MappedByteBuffer strings, int generation) {
+        CRC32 crc = new CRC32();
+        crc.update(slots.slice(slot, SLOT_CHECKSUM));
+        crc.update(slots.slice(slot + SLOT_START, SLOT_SIZE - SLOT_START));
+        for (int field : STRING_FIELDS) {
+            int length = slots.getInt(slot + field);
+            if (length > INLINE_STRING) {
+                crc.update(strings.slice((int) slots.getLong(slot + field + Integer.BYTES), length));
+            }
+        }
+        crc.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, generation));
+        return (int) crc.getValue();
+    }
+
+    private int generation() {
+        return slots.getInt(HEADER_GENERATION);
+    }
+
+    private void checkHeader() {
+        byte[] magic = new byte[MAGIC.length];
+        slots.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new ManagerIOException("Файл " + file + " не является хранилищем задач");
+        }
+        int version = slots.getInt(HEADER_VERSION);
+        if (version != VERSION) {
+            throw new ManagerIOException("Неподдерживаемая версия хранилища: " + version);
+        }
+    }
+
+    private Task read(int slot) {
+        TaskType type = TYPES[slots.get(slot + SLOT_TYPE)];
+        int id = slots.getInt(slot + SLOT_ID);
+        String name = readString(slot + SLOT_NAME);
+        String description = readString(slot + SLOT_DESCRIPTION);
+        if (type == TaskType.EPIC) {
+            Epic epic = new Epic(name, description);
+            epic.setId(id);
+            return epic;
+        }
+        TaskStatus status = STATUSES[slots.get(slot + SLOT_STATUS)];
+        long startMinutes = slots.getLong(slot + SLOT_START);
+        long durationMinutes = slots.getLong(slot + SLOT_DURATION);
+        if (type == TaskType.SUBTASK) {
+            return new SubTask(id, slots.getInt(slot + SLOT_EPIC), name, description, status, startMinutes,
+                    durationMinutes);
+        }
+        return new Task(id, name, description, status, startMinutes, durationMinutes);
+    }
+
+    // Поле строки: длина в байтах, затем сами байты или смещение в файле строк.
+    private void writeString(int field, String value) {
+        if (value == null) {
+            slots.putInt(field, NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        slots.putInt(field, bytes.length);
+        if (bytes.length <= INLINE_STRING) {
+            slots.put(field + Integer.BYTES, bytes);
+            return;
+        }
+        long end = strings.getLong(STRINGS_END);
+        ensureStrings(end + bytes.length);
+        strings.put((int) end, bytes);
+        strings.putLong(STRINGS_END, end + bytes.length);
+        slots.putLong(field + Integer.BYTES, end);
+    }
+
+    private String readString(int field) {
+        int length = slots.getInt(field);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        if (length <= INLINE_STRING) {
+            slots.get(field + Integer.BYTES, bytes);
+        } else {
+            strings.get((int) slots.getLong(field + Integer.BYTES), bytes);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Строки заменённого значения становятся мусором, но остаются на месте, пока на них ссылается прежний слот.
+    private void release(int slot) {
+        for (int field : STRING_FIELDS) {
+            int length = slots.getInt(slot + field);
+            if (length > INLINE_STRING) {
+                strings.putLong(STRINGS_GARBAGE, strings.getLong(STRINGS_GARBAGE) + length);
+            }
+        }
+    }
+
+    // Живые строки копируются в новый файл, а каждая задача переписывается в неактивный слот пары со ссылками
+    // на него. Такие слоты становятся целыми только со сменой поколения в заголовке - это точка фиксации;
+    // до неё при обрыве остаются прежние слоты и прежний файл строк.
+    private void compactStrings() {
+        int generation = generation() + 1;
+        int count = Math.min(slots.capacity() / PAIR_SIZE, getMaxId() + 1);
+        int[] current = new int[count];
+        long live = STRINGS_HEADER_SIZE;
+        for (int id = 1; id < count; id++) {
+            current[id] = current(id);
+            if (current[id] >= 0 && slots.get(current[id] + SLOT_STATE) == USED) {
+                for (int field : STRING_FIELDS) {
+                    int length = slots.getInt(current[id] + field);
+                    live += length > INLINE_STRING ? length : 0;
+                }
+            }
+        }
+
+        Path compactedFile = stringsFile.resolveSibling(stringsFile.getFileName() + COMPACTED_SUFFIX);
+        try (FileChannel channel = FileChannel.open(compactedFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer compacted = map(channel, Math.max(live, INITIAL_STRINGS));
+            int end = STRINGS_HEADER_SIZE;
+            for (int id = 1; id < count; id++) {
+                int slot = current[id];
+                if (slot < 0 || slots.get(slot + SLOT_STATE) != USED) {
+                    continue;
+                }
+                int target = next(id, slot);
+                slots.put(target, slots.slice(slot, SLOT_SIZE), 0, SLOT_SIZE);
+                for (int field : STRING_FIELDS) {
+                    int length = slots.getInt(target + field);
+                    if (length > INLINE_STRING) {
+                        compacted.put(end, strings, (int) slots.getLong(target + field + Integer.BYTES), length);
+                        slots.putLong(target + field + Integer.BYTES, end);
+                        end += length;
+                    }
+                }
+                slots.put(target + SLOT_VERSION, (byte) (slots.get(slot + SLOT_VERSION) + 1));
+                slots.putInt(target + SLOT_CHECKSUM, checksum(target, compacted, generation));
+            }
+            compacted.putLong(STRINGS_END, end);
+            compacted.putInt(STRINGS_GENERATION, generation);
+            compacted.force();
+            slots.force();
+            slots.putInt(HEADER_GENERATION, generation);
+            slots.force();
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при сжатии файла " + stringsFile, e);
+        }
+
+        try {
+            stringsChannel.close();
+            finishCompaction();
+            stringsChannel = openStrings();
+            strings = map(stringsChannel, stringsChannel.size());
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при открытии файла " + stringsFile, e);
+        }
+    }
+
+    // Сжатый файл строк заменяет прежний, только если заголовок уже перешёл на его поколение.
+    private void finishCompaction() throws IOException {
+        Path compactedFile = stringsFile.resolveSibling(stringsFile.getFileName() + COMPACTED_SUFFIX);
+        if (!Files.exists(compactedFile)) {
+            return;
+        }
+        int compactedGeneration;
+        try (FileChannel channel = FileChannel.open(compactedFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(buffer, STRINGS_GENERATION);
+            compactedGeneration = buffer.position() == Integer.BYTES ? buffer.getInt(0) : -1;
+        }
+        if (compactedGeneration == generation()) {
+            Files.move(compactedFile, stringsFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.delete(compactedFile);
+        }
+    }
+
+    private FileChannel openStrings() throws IOException {
+        return FileChannel.open(stringsFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private void ensureSlot(int id) {
+        long required = (long) (id + 1) * PAIR_SIZE;
+        if (required > slots.capacity()) {
+            slots = map(slotsChannel, Math.max(required, (long) slots.capacity() * 2));
+        }
+    }
+
+    private void ensureStrings(long required) {
+        if (required > strings.capacity()) {
+            strings = map(stringsChannel, Math.max(required, (long) strings.capacity() * 2));
+        }
+    }
+
+    private MappedByteBuffer map(FileChannel channel, long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new ManagerIOException("Превышен размер хранилища " + file);
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при отображении файла " + file, e);
+        }
+    }
+}
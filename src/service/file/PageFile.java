@@ -0,0 +1,175 @@
+package service.file;
+
+import service.exeptions.ManagerIOException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Файл из страниц фиксированного размера с ограниченным LRU-кешем. Изменённые страницы записываются
+// на диск при вытеснении и при flush. Операция дерева между повторными обращениями к странице трогает
+// не больше MIN_CACHE_PAGES страниц, поэтому полученный буфер не вытесняется, пока им пользуются.
+final class PageFile implements AutoCloseable {
+    static final int PAGE_SIZE = 4096;
+    static final int MIN_CACHE_PAGES = 16;
+
+    private static final class Page {
+        final ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        boolean dirty;
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int capacity;
+    private final LinkedHashMap<Integer, Page> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private int pageCount;
+    private long reads;
+
+    PageFile(Path file, int cachePages) {
+        this.file = file;
+        this.capacity = Math.max(cachePages, MIN_CACHE_PAGES);
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            pageCount = (int) ((channel.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при открытии файла " + file, e);
+        }
+    }
+
+    int pageCount() {
+        return pageCount;
+    }
+
+    // Число страниц, прочитанных с диска с момента открытия.
+    long reads() {
+        return reads;
+    }
+
+    int allocate() {
+        int page = pageCount++;
+        Page created = new Page();
+        created.dirty = true;
+        cache.put(page, created);
+        evict();
+        return page;
+    }
+
+    ByteBuffer read(int page) {
+        return load(page).buffer;
+    }
+
+    ByteBuffer write(int page) {
+        Page loaded = load(page);
+        loaded.dirty = true;
+        return loaded.buffer;
+    }
+
+    // Побайтовый доступ поверх страниц: запись может пересекать их границы.
+    void read(long position, byte[] target) {
+        int done = 0;
+        while (done < target.length) {
+            int page = (int) ((position + done) / PAGE_SIZE);
+            int offset = (int) ((position + done) % PAGE_SIZE);
+            int length = Math.min(PAGE_SIZE - offset, target.length - done);
+            read(page).get(offset, target, done, length);
+            done += length;
+        }
+    }
+
+    void write(long position, byte[] source) {
+        int done = 0;
+        while (done < source.length) {
+            int page = (int) ((position + done) / PAGE_SIZE);
+            int offset = (int) ((position + done) % PAGE_SIZE);
+            int length = Math.min(PAGE_SIZE - offset, source.length - done);
+            write(page).put(offset, source, done, length);
+            pageCount = Math.max(pageCount, page + 1);
+            done += length;
+        }
+    }
+
+    void flush() {
+        List<Integer> dirty = new ArrayList<>();
+        cache.forEach((page, cached) -> {
+            if (cached.dirty) {
+                dirty.add(page);
+            }
+        });
+        dirty.sort(null);
+        for (int page : dirty) {
+            Page cached = cache.get(page);
+            store(page, cached);
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при сбросе файла " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при закрытии файла " + file, e);
+        }
+    }
+
+    private Page load(int page) {
+        Page cached = cache.get(page);
+        if (cached != null) {
+            return cached;
+        }
+        cached = new Page();
+        ByteBuffer buffer = cached.buffer;
+        try {
+            long position = (long) page * PAGE_SIZE;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при чтении файла " + file, e);
+        }
+        buffer.clear();
+        reads++;
+        cache.put(page, cached);
+        evict();
+        return cached;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Integer, Page>> eldest = cache.entrySet().iterator();
+        while (cache.size() > capacity) {
+            Map.Entry<Integer, Page> entry = eldest.next();
+            if (entry.getValue().dirty) {
+                store(entry.getKey(), entry.getValue());
+            }
+            eldest.remove();
+        }
+    }
+
+    private void store(int page, Page cached) {
+        ByteBuffer buffer = cached.buffer.duplicate().clear();
+        try {
+            long position = (long) page * PAGE_SIZE;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при записи файла " + file, e);
+        }
+        cached.dirty = false;
+    }
+}
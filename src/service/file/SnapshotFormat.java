@@ -0,0 +1,40 @@
+package service.file;
+
+import service.exeptions.ManagerIOException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public enum SnapshotFormat {
+    CSV,
+    BINARY;
+
+    public static final String BINARY_EXTENSION = ".bin";
+
+    public static SnapshotFormat detect(Path file) {
+        if (Files.exists(file)) {
+            byte[] head = new byte[BinarySnapshot.MAGIC.length];
+            try (InputStream in = Files.newInputStream(file)) {
+                if (in.readNBytes(head, 0, head.length) == head.length && BinarySnapshot.hasMagic(head)) {
+                    return BINARY;
+                }
+            } catch (IOException e) {
+                throw new ManagerIOException("Ошибка при чтении файла " + file, e);
+            }
+            if (Files.isRegularFile(file) && sizeOf(file) > 0) {
+                return CSV;
+            }
+        }
+        return file.getFileName().toString().endsWith(BINARY_EXTENSION) ? BINARY : CSV;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при чтении файла " + file, e);
+        }
+    }
+}
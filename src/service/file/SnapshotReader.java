@@ -0,0 +1,217 @@
+package service.file;
+
+import model.Task;
+import service.exeptions.ManagerIOException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Потоковое чтение снимка в любом формате: в памяти держится только буфер, а не весь файл.
+// Большие файлы делятся на куски по границам записей и разбираются параллельно.
+final class SnapshotReader {
+    static final long PARALLEL_THRESHOLD = 16L << 20;
+    static final int CHUNK_SIZE = 4 << 20;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int SCAN_WINDOW = 64 << 10;
+
+    private static final class Chunk {
+        final long start;
+        final long end;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private boolean eof;
+
+    private SnapshotReader(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    static void read(Path file, Consumer<Task> consumer) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() >= PARALLEL_THRESHOLD) {
+                readParallel(file, channel, CHUNK_SIZE, consumer);
+            } else {
+                new SnapshotReader(file, channel).read(consumer);
+            }
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при чтении файла " + file, e);
+        }
+    }
+
+    // Записи передаются consumer в порядке файла, хотя куски разбираются в разных потоках.
+    static void readParallel(Path file, int chunkSize, Consumer<Task> consumer) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readParallel(file, channel, chunkSize, consumer);
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при чтении файла " + file, e);
+        }
+    }
+
+    private static void readParallel(Path file, FileChannel channel, int chunkSize, Consumer<Task> consumer)
+            throws IOException {
+        long size = channel.size();
+        byte[] head = readRange(channel, 0, (int) Math.min(size, BinarySnapshot.HEADER_SIZE));
+        boolean binary = BinarySnapshot.hasMagic(head);
+        List<Chunk> chunks = binary
+                ? binaryChunks(file, channel, size, chunkSize)
+                : csvChunks(channel, size, chunkSize);
+        List<List<Task>> parsed = chunks.parallelStream()
+                .map(chunk -> parseChunk(file, channel, chunk, binary))
+                .toList();
+        for (List<Task> tasks : parsed) {
+            tasks.forEach(consumer);
+        }
+    }
+
+    private static List<Chunk> csvChunks(FileChannel channel, long size, int chunkSize) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize < size ? nextLineStart(channel, start + chunkSize, size) : size;
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        for (long position = from - 1; position < size; position += SCAN_WINDOW) {
+            byte[] window = readRange(channel, position, (int) Math.min(SCAN_WINDOW, size - position));
+            for (int i = 0; i < window.length; i++) {
+                if (window[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static List<Chunk> binaryChunks(Path file, FileChannel channel, long size, int chunkSize)
+            throws IOException {
+        BinarySnapshot.checkHeader(ByteBuffer.wrap(readRange(channel, 0, BinarySnapshot.HEADER_SIZE)));
+        List<Chunk> chunks = new ArrayList<>();
+        long start = BinarySnapshot.HEADER_SIZE;
+        long position = start;
+        // По заголовкам блоков можно пройти, не читая сами записи.
+        while (position < size) {
+            if (size - position < BinarySnapshot.BLOCK_HEADER_SIZE) {
+                throw new ManagerIOException("Повреждён двоичный снимок " + file);
+            }
+            int length = ByteBuffer.wrap(readRange(channel, position, Integer.BYTES)).getInt();
+            position += BinarySnapshot.BLOCK_HEADER_SIZE + (long) length;
+            if (length < 0 || position > size) {
+                throw new ManagerIOException("Повреждён двоичный снимок " + file);
+            }
+            if (position - start >= chunkSize || position == size) {
+                chunks.add(new Chunk(start, position));
+                start = position;
+            }
+        }
+        return chunks;
+    }
+
+    private static List<Task> parseChunk(Path file, FileChannel channel, Chunk chunk, boolean binary) {
+        byte[] bytes;
+        try {
+            bytes = readRange(channel, chunk.start, (int) (chunk.end - chunk.start));
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при чтении файла " + file, e);
+        }
+        List<Task> tasks = new ArrayList<>();
+        if (!binary) {
+            CsvSnapshotParser.parseLines(bytes, 0, bytes.length, true, tasks::add);
+            return tasks;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            int length = buffer.getInt();
+            int count = buffer.getInt();
+            BinarySnapshot.decodeBlock(buffer.slice(buffer.position(), length), count, tasks::add);
+            buffer.position(buffer.position() + length);
+        }
+        return tasks;
+    }
+
+    // Чтение по позиции не сдвигает общий канал, поэтому куски можно читать из разных потоков.
+    private static byte[] readRange(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла");
+            }
+        }
+        return buffer.array();
+    }
+
+    private void read(Consumer<Task> consumer) throws IOException {
+        fill(BinarySnapshot.MAGIC.length);
+        byte[] head = new byte[Math.min(buffer.remaining(), BinarySnapshot.MAGIC.length)];
+        buffer.get(buffer.position(), head);
+        if (BinarySnapshot.hasMagic(head)) {
+            readBinary(consumer);
+        } else {
+            readCsv(consumer);
+        }
+    }
+
+    private void readCsv(Consumer<Task> consumer) throws IOException {
+        while (true) {
+            fill(buffer.remaining() + 1);
+            int from = buffer.position();
+            int end = CsvSnapshotParser.parseLines(buffer.array(), from, buffer.limit(), eof, consumer);
+            buffer.position(end);
+            if (eof) {
+                return;
+            }
+        }
+    }
+
+    private void readBinary(Consumer<Task> consumer) throws IOException {
+        fill(BinarySnapshot.HEADER_SIZE);
+        BinarySnapshot.checkHeader(buffer);
+        while (fill(BinarySnapshot.BLOCK_HEADER_SIZE)) {
+            int length = buffer.getInt();
+            int count = buffer.getInt();
+            if (length < 0 || !fill(length)) {
+                throw new ManagerIOException("Повреждён двоичный снимок " + file);
+            }
+            BinarySnapshot.decodeBlock(buffer.slice(buffer.position(), length), count, consumer);
+            buffer.position(buffer.position() + length);
+        }
+        if (buffer.hasRemaining()) {
+            throw new ManagerIOException("Повреждён двоичный снимок " + file);
+        }
+    }
+
+    // Дочитывает файл, пока в буфере не окажется needed байт; false, если файл закончился раньше.
+    private boolean fill(int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return true;
+        }
+        if (needed > buffer.capacity()) {
+            buffer = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2)).put(buffer).flip();
+        }
+        buffer.compact();
+        while (!eof && buffer.position() < needed) {
+            if (channel.read(buffer) < 0) {
+                eof = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= needed;
+    }
+}
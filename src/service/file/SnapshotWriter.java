@@ -0,0 +1,97 @@
+package service.file;
+
+import model.Task;
+import service.converter.TaskConverter;
+import service.exeptions.ManagerIOException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Кодирует снимок кусками в разных потоках и записывает куски по порядку одной сборной записью.
+// Границы кусков кратны размеру блока, поэтому результат совпадает с последовательным кодированием байт в байт.
+final class SnapshotWriter {
+    private static final String HEADER = "id,type,name,status,description,epic,duration,startTime";
+    static final int SLICE_RECORDS = 4 * BinarySnapshot.BLOCK_RECORDS;
+
+    private SnapshotWriter() {
+    }
+
+    static ByteBuffer[] encode(List<Task> records, SnapshotFormat format) {
+        return encode(records, format, SLICE_RECORDS, BinarySnapshot.BLOCK_RECORDS);
+    }
+
+    static ByteBuffer[] encode(List<Task> records, SnapshotFormat format, int sliceRecords, int blockRecords) {
+        int slice = Math.max(1, sliceRecords);
+        if (format == SnapshotFormat.BINARY) {
+            slice = (slice + blockRecords - 1) / blockRecords * blockRecords;
+        }
+        int slices = (records.size() + slice - 1) / slice;
+        int sliceSize = slice;
+        List<ByteBuffer> buffers = new ArrayList<>(slices + 1);
+        buffers.add(format == SnapshotFormat.BINARY ? BinarySnapshot.header()
+                : ByteBuffer.wrap((HEADER + System.lineSeparator()).getBytes(StandardCharsets.UTF_8)));
+        IntStream.range(0, slices)
+                .parallel()
+                .mapToObj(i -> {
+                    List<Task> part = records.subList(i * sliceSize, Math.min(records.size(), (i + 1) * sliceSize));
+                    return format == SnapshotFormat.BINARY ? BinarySnapshot.encodeBlocks(part, blockRecords)
+                            : encodeCsv(part);
+                })
+                .forEachOrdered(buffers::add);
+        return buffers.toArray(new ByteBuffer[0]);
+    }
+
+    // durable: после записи журнал будет очищен, поэтому снимок должен дойти до диска раньше переименования,
+    // а само переименование - раньше очистки журнала.
+    static void write(Path target, ByteBuffer[] buffers, boolean durable) {
+        Path tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer last = buffers[buffers.length - 1];
+                while (last.hasRemaining()) {
+                    channel.write(buffers);
+                }
+                if (durable) {
+                    channel.force(true);
+                }
+            }
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (durable) {
+                forceDirectory(target.toAbsolutePath().getParent());
+            }
+        } catch (IOException e) {
+            throw new ManagerIOException("Ошибка при записи файла " + target, e);
+        }
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Windows не открывает каталог как файл: там переименование сбрасывает сама файловая система.
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private static ByteBuffer encodeCsv(List<Task> records) {
+        StringBuilder sb = new StringBuilder(records.size() * 64);
+        for (Task task : records) {
+            sb.append(TaskConverter.toString(task)).append(System.lineSeparator());
+        }
+        return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
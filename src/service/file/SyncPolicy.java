@@ -0,0 +1,7 @@
+package service.file;
+
+public enum SyncPolicy {
+    PER_OPERATION,
+    INTERVAL,
+    OS
+}
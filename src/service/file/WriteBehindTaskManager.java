@@ -0,0 +1,96 @@
+package service.file;
+
+import service.HistoryManager;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public final class WriteBehindTaskManager extends FileBackedTaskManager {
+    private final int maxPendingChanges;
+    private final ScheduledExecutorService scheduler;
+    private final Object flushLock = new Object();
+    private final Thread shutdownHook;
+    private long pendingChanges;
+    private boolean flushRequested;
+    private long mutationCount;
+    private long flushCount;
+
+    public WriteBehindTaskManager(HistoryManager historyManager, Path file, long flushIntervalMillis,
+                                  int maxPendingChanges) {
+        super(historyManager, file);
+        this.maxPendingChanges = maxPendingChanges;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-" + file.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.shutdownHook = new Thread(this::flush, "write-behind-shutdown-" + file.getFileName());
+        // Журнал, оставшийся от обычного режима, переносится в снимок: дальше пишется только снимок.
+        save();
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        // Несохранённые изменения записываются и при остановке JVM без вызова close().
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            ByteBuffer[] snapshot;
+            synchronized (this) {
+                flushRequested = false;
+                if (pendingChanges == 0) {
+                    return;
+                }
+                snapshot = snapshot();
+                pendingChanges = 0;
+            }
+            writeSnapshot(snapshot);
+            synchronized (this) {
+                flushCount++;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM уже останавливается: хук запущен или будет запущен и сам сбросит изменения.
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        super.close();
+    }
+
+    public synchronized long getMutationCount() {
+        return mutationCount;
+    }
+
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    public synchronized double getCoalescingRatio() {
+        return flushCount == 0 ? 0 : (double) mutationCount / flushCount;
+    }
+
+    @Override
+    protected CompletableFuture<Void> append(String record) {
+        mutationCount++;
+        // Одна внеочередная запись на порог: остальные изменения попадут в тот же снимок.
+        if (++pendingChanges >= maxPendingChanges && !flushRequested && !scheduler.isShutdown()) {
+            flushRequested = true;
+            scheduler.execute(this::flush);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
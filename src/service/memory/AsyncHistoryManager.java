@@ -0,0 +1,175 @@
+package service.memory;
+
+import model.Task;
+import service.HistoryManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AsyncHistoryManager implements HistoryManager, AutoCloseable {
+    private static final long PUT_RETRY_MILLIS = 10;
+
+    public enum OverflowPolicy {
+        DROP,
+        BLOCK
+    }
+
+    private static class Event {
+        final Task task;
+        final int removedId;
+        final boolean barrier;
+        boolean applied;
+
+        Event(Task task, int removedId, boolean barrier) {
+            this.task = task;
+            this.removedId = removedId;
+            this.barrier = barrier;
+        }
+    }
+
+    private final HistoryManager historyManager;
+    private final BlockingQueue<Event> events;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread consumer;
+    // События, поставленные или ставящиеся в очередь и ещё не применённые.
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean closed;
+
+    public AsyncHistoryManager(HistoryManager historyManager, int queueCapacity, OverflowPolicy overflowPolicy) {
+        this.historyManager = historyManager;
+        this.events = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.consumer = new Thread(this::consume, "history-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void add(Task task) {
+        Event event = new Event(task, 0, false);
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            put(event);
+            return;
+        }
+        ensureOpen();
+        pending.incrementAndGet();
+        if (!events.offer(event)) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void remove(int taskId) {
+        // Удаление нельзя потерять: иначе в истории останется удалённая задача.
+        put(new Event(null, taskId, false));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        // Если в очереди ничего нет, все завершившиеся вызовы add и remove уже применены.
+        if (pending.get() != 0) {
+            // Очередь упорядочена, поэтому после метки применены все события, поставленные до неё.
+            Event barrier = new Event(null, 0, true);
+            put(barrier);
+            synchronized (this) {
+                while (!barrier.applied) {
+                    ensureOpen();
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        }
+        synchronized (this) {
+            ensureOpen();
+            return historyManager.getHistory();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Число событий, на которых упал вложенный менеджер истории.
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        consumer.interrupt();
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Менеджер истории закрыт");
+        }
+    }
+
+    // Ожидание места в очереди прерывается закрытием менеджера, чтобы не зависнуть после остановки потока.
+    private void put(Event event) {
+        ensureOpen();
+        pending.incrementAndGet();
+        try {
+            while (!events.offer(event, PUT_RETRY_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    pending.decrementAndGet();
+                    ensureOpen();
+                }
+            }
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано ожидание места в очереди истории", e);
+        }
+    }
+
+    private void consume() {
+        List<Event> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                batch.add(events.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            events.drainTo(batch);
+            synchronized (this) {
+                for (Event event : batch) {
+                    apply(event);
+                }
+                pending.addAndGet(-batch.size());
+                notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    // Ошибка на одном событии не должна останавливать поток: иначе getHistory ждал бы вечно.
+    private void apply(Event event) {
+        try {
+            if (event.barrier) {
+                event.applied = true;
+            } else if (event.task != null) {
+                historyManager.add(event.task);
+            } else {
+                historyManager.remove(event.removedId);
+            }
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+        }
+    }
+}
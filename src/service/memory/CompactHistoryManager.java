@@ -0,0 +1,114 @@
+package service.memory;
+
+import model.Task;
+import service.HistoryManager;
+import util.IntIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+public class CompactHistoryManager implements HistoryManager {
+    // Метка пустой ячейки: id 0 - обычная задача, поэтому нулями массива дыры не помечаются.
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private final int capacity;
+    private final IntIntMap positions = new IntIntMap();
+    private final IntFunction<Task> resolver;
+    private int[] ids;
+    private int head;
+    private int tail;
+
+    public CompactHistoryManager(IntFunction<Task> resolver) {
+        this(Integer.MAX_VALUE, resolver);
+    }
+
+    // resolver возвращает текущую версию задачи по id или null, если задачи уже нет.
+    public CompactHistoryManager(int capacity, IntFunction<Task> resolver) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.resolver = resolver;
+        this.ids = new int[Math.min(capacity, MIN_CAPACITY) * 2];
+        Arrays.fill(ids, EMPTY);
+    }
+
+    @Override
+    public void add(Task task) {
+        int id = task.getId();
+        remove(id);
+        if (positions.size() >= capacity) {
+            evictOldest();
+        }
+        if (tail == ids.length) {
+            ensureRoom();
+        }
+        positions.put(id, tail);
+        ids[tail++] = id;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(positions.size());
+        for (int i = head; i < tail; i++) {
+            if (ids[i] != EMPTY) {
+                Task task = resolver.apply(ids[i]);
+                if (task != null) {
+                    history.add(task);
+                }
+            }
+        }
+        return history;
+    }
+
+    @Override
+    public void remove(int taskId) {
+        int position = positions.get(taskId, -1);
+        if (position < 0) {
+            return;
+        }
+        positions.remove(taskId);
+        ids[position] = EMPTY;
+        skipHoles();
+    }
+
+    private void evictOldest() {
+        positions.remove(ids[head]);
+        ids[head] = EMPTY;
+        skipHoles();
+    }
+
+    private void skipHoles() {
+        while (head < tail && ids[head] == EMPTY) {
+            head++;
+        }
+        while (tail > head && ids[tail - 1] == EMPTY) {
+            tail--;
+        }
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+    }
+
+    private void ensureRoom() {
+        if (positions.size() > ids.length / 2) {
+            int length = ids.length;
+            ids = Arrays.copyOf(ids, length * 2);
+            Arrays.fill(ids, length, ids.length, EMPTY);
+        }
+        int count = 0;
+        for (int i = head; i < tail; i++) {
+            if (ids[i] != EMPTY) {
+                positions.put(ids[i], count);
+                ids[count++] = ids[i];
+            }
+        }
+        Arrays.fill(ids, count, tail, EMPTY);
+        head = 0;
+        tail = count;
+    }
+}
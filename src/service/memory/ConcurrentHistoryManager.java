@@ -0,0 +1,84 @@
+package service.memory;
+
+import model.Task;
+import service.HistoryManager;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int DRAIN_BATCH = 64;
+
+    private static class Event {
+        final Task task;
+        final int removedId;
+
+        Event(Task task, int removedId) {
+            this.task = task;
+            this.removedId = removedId;
+        }
+    }
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final InMemoryHistoryManager history;
+
+    public ConcurrentHistoryManager() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public ConcurrentHistoryManager(int capacity) {
+        history = new InMemoryHistoryManager(capacity);
+    }
+
+    @Override
+    public void add(Task task) {
+        publish(new Event(task, 0));
+    }
+
+    @Override
+    public void remove(int taskId) {
+        publish(new Event(null, taskId));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain(Integer.MAX_VALUE);
+            return history.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void publish(Event event) {
+        events.offer(event);
+        // Очередь разбирает тот поток, которому удалось взять блокировку; остальные не ждут.
+        if (pending.incrementAndGet() >= DRAIN_BATCH && drainLock.tryLock()) {
+            try {
+                drain(pending.get());
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drain(int limit) {
+        int drained = 0;
+        Event event;
+        while (drained < limit && (event = events.poll()) != null) {
+            drained++;
+            if (event.task != null) {
+                history.add(event.task);
+            } else {
+                history.remove(event.removedId);
+            }
+        }
+        pending.addAndGet(-drained);
+    }
+}
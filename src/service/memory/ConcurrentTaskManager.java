@@ -0,0 +1,432 @@
+package service.memory;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TimeSlot;
+import service.HistoryManager;
+import service.Managers;
+import service.TaskManager;
+import service.exeptions.NotFoundException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int EPIC_LOCK_STRIPES = 64;
+    private static final int VIEW_STRIPES = 16;
+
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final Map<Integer, SubTask> subTasks = new ConcurrentHashMap<>();
+    private final Map<Integer, EpicAggregate> epicAggregates = new ConcurrentHashMap<>();
+    private final AtomicInteger newTaskId = new AtomicInteger();
+    private final ViewTracker views;
+
+    private final NavigableSet<Task> prioritizedTasks = new ConcurrentSkipListSet<>(PRIORITY_ORDER);
+    private final Schedule schedule = new Schedule(prioritizedTasks);
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final ReentrantLock[] epicLocks = new ReentrantLock[EPIC_LOCK_STRIPES];
+
+    public ConcurrentTaskManager() {
+        this(Managers.getConcurrentHistory());
+    }
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this.views = new ViewTracker(historyManager, VIEW_STRIPES);
+        for (int i = 0; i < epicLocks.length; i++) {
+            epicLocks[i] = new ReentrantLock();
+        }
+    }
+
+    private int generateId() {
+        return newTaskId.incrementAndGet();
+    }
+
+    @Override
+    public Task create(Task task) {
+        if (task.getStartMinutes() == Task.NO_TIME) {
+            task.setId(generateId());
+            tasks.put(task.getId(), task);
+            return task;
+        }
+        return withSchedule(() -> {
+            schedule.checkCrossing(task);
+            task.setId(generateId());
+            tasks.put(task.getId(), task);
+            prioritizedTasks.add(task);
+            return task;
+        });
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(generateId());
+        return withEpic(epic.getId(), () -> {
+            epics.put(epic.getId(), epic);
+            aggregateOf(epic).applyTo(epic);
+            return epic;
+        });
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        return withEpic(subTask.getEpicId(), () -> {
+            Epic epic = epics.get(subTask.getEpicId());
+            if (epic == null) {
+                throw new NotFoundException("Не найден эпик " + subTask.getEpicId());
+            }
+
+            if (subTask.getStartMinutes() == Task.NO_TIME) {
+                subTask.setId(generateId());
+                subTasks.put(subTask.getId(), subTask);
+            } else {
+                withSchedule(() -> {
+                    schedule.checkCrossing(subTask);
+                    subTask.setId(generateId());
+                    subTasks.put(subTask.getId(), subTask);
+                    return prioritizedTasks.add(subTask);
+                });
+            }
+            linkSubTask(epic, subTask);
+            return subTask;
+        });
+    }
+
+    @Override
+    public Task get(int id) {
+        final Task task = tasks.get(id);
+        if (task == null) {
+            throw new NotFoundException("Не найдена задача " + id);
+        }
+        views.record(task);
+        return task;
+    }
+
+    @Override
+    public Task findTask(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        if (task == null) {
+            task = subTasks.get(id);
+        }
+        return task;
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        final Epic epic = epics.get(id);
+        if (epic == null) {
+            throw new NotFoundException("Не найден эпик " + id);
+        }
+        views.record(epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        final SubTask subTask = subTasks.get(id);
+        if (subTask == null) {
+            throw new NotFoundException("Не найдена подзадача " + id);
+        }
+        views.record(subTask);
+        return subTask;
+    }
+
+    @Override
+    public Task update(Task task) {
+        return withSchedule(() -> {
+            schedule.checkCrossing(task);
+
+            Task saved = tasks.get(task.getId());
+            if (saved == null) {
+                throw new NotFoundException("Не найдена задача " + task.getId());
+            }
+
+            prioritizedTasks.remove(saved);
+            saved.setDescription(task.getDescription());
+            saved.setName(task.getName());
+            saved.setTaskStatus(task.getTaskStatus());
+            saved.setDuration(task.getDuration());
+            saved.setStartTime(task.getStartTime());
+            if (saved.getStartMinutes() != Task.NO_TIME) {
+                prioritizedTasks.add(saved);
+            }
+            return saved;
+        });
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return withEpic(epic.getId(), () -> {
+            Epic saved = epics.get(epic.getId());
+            if (saved == null) {
+                throw new NotFoundException("Не найден эпик " + epic.getId());
+            }
+            saved.setName(epic.getName());
+            saved.setDescription(epic.getDescription());
+            return saved;
+        });
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subTask) {
+        SubTask current = subTasks.get(subTask.getId());
+        if (current == null) {
+            throw new NotFoundException("Не найдена подзадача " + subTask.getId());
+        }
+
+        return withEpic(current.getEpicId(), () -> {
+            SubTask saved = subTasks.get(subTask.getId());
+            if (saved == null) {
+                throw new NotFoundException("Не найдена подзадача " + subTask.getId());
+            }
+
+            Epic epic = epics.get(saved.getEpicId());
+            EpicAggregate aggregate = epic != null && epic.containsSubTaskId(saved.getId())
+                    ? aggregateOf(epic) : null;
+
+            withSchedule(() -> {
+                schedule.checkCrossing(subTask);
+                prioritizedTasks.remove(saved);
+                if (aggregate != null) {
+                    aggregate.remove(saved.getId());
+                }
+                saved.setDescription(subTask.getDescription());
+                saved.setName(subTask.getName());
+                saved.setTaskStatus(subTask.getTaskStatus());
+                saved.setDuration(subTask.getDuration());
+                saved.setStartTime(subTask.getStartTime());
+                if (saved.getStartMinutes() != Task.NO_TIME) {
+                    prioritizedTasks.add(saved);
+                }
+                return saved;
+            });
+            if (aggregate != null) {
+                aggregate.add(saved);
+                aggregate.applyTo(epic);
+            }
+            return saved;
+        });
+    }
+
+    @Override
+    public Task delete(int id) {
+        views.forget(id);
+        Task removed = tasks.remove(id);
+        if (removed != null) {
+            withSchedule(() -> prioritizedTasks.remove(removed));
+        }
+        return removed;
+    }
+
+    @Override
+    public Epic deleteEpic(int id) {
+        return withEpic(id, () -> {
+            Epic epic = epics.remove(id);
+            epicAggregates.remove(id);
+            views.forget(id);
+            if (epic == null)
+                return null;
+            epic.getSubTasksIdsStream().forEach(subTaskId -> {
+                SubTask removed = subTasks.remove(subTaskId);
+                if (removed != null) {
+                    withSchedule(() -> prioritizedTasks.remove(removed));
+                }
+                views.forget(subTaskId);
+            });
+            return epic;
+        });
+    }
+
+    @Override
+    public SubTask deleteSubTask(int id) {
+        views.forget(id);
+        SubTask current = subTasks.get(id);
+        if (current == null)
+            return null;
+
+        return withEpic(current.getEpicId(), () -> {
+            SubTask subTask = subTasks.remove(id);
+            if (subTask == null)
+                return null;
+            Epic epic = epics.get(subTask.getEpicId());
+            if (epic != null) {
+                unlinkSubTask(epic, subTask);
+            }
+            withSchedule(() -> prioritizedTasks.remove(subTask));
+            return subTask;
+        });
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return sortedById(tasks);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return sortedById(epics);
+    }
+
+    @Override
+    public List<SubTask> getSubtasks() {
+        return sortedById(subTasks);
+    }
+
+    @Override
+    public List<SubTask> getEpicSubtasks(int id) {
+        return withEpic(id, () -> {
+            Epic epic = epics.get(id);
+            if (epic == null) {
+                throw new NotFoundException("Не найден эпик " + id);
+            }
+
+            return epic.getSubTasksIdsStream()
+                    .mapToObj(subTasks::get)
+                    .toList();
+        });
+    }
+
+    @Override
+    public TreeSet<Task> getPrioritizedTasks() {
+        TreeSet<Task> result = new TreeSet<>(PRIORITY_ORDER);
+        prioritizedTasks.forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public NavigableSet<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return schedule.range(from, to);
+    }
+
+    @Override
+    public List<Task> nextAfter(LocalDateTime time, int limit) {
+        return schedule.nextAfter(time, limit);
+    }
+
+    @Override
+    public List<Task> previousBefore(LocalDateTime time, int limit) {
+        return schedule.previousBefore(time, limit);
+    }
+
+    @Override
+    public TimeSlot findFreeSlot(LocalDateTime after, Duration duration) {
+        return schedule.findFreeSlot(after, duration);
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        return schedule.findFreeSlots(from, to, minDuration);
+    }
+
+    @Override
+    public void clearTasks() {
+        tasks.keySet().forEach(this::delete);
+    }
+
+    @Override
+    public void clearEpics() {
+        epics.keySet().forEach(this::deleteEpic);
+    }
+
+    @Override
+    public void clearSubTasks() {
+        subTasks.keySet().forEach(this::deleteSubTask);
+    }
+
+    @Override
+    public void removeSubTaskFromEpic(Epic epic, Integer subTaskId) {
+        withEpic(epic.getId(), () -> {
+            if (epic.removeSubTaskId(subTaskId)) {
+                aggregateOf(epic).remove(subTaskId);
+            }
+            aggregateOf(epic).applyTo(epic);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeAllSubtasksFromEpic(Epic epic) {
+        withEpic(epic.getId(), () -> {
+            epic.clearSubTaskIds();
+            aggregateOf(epic).clear();
+            aggregateOf(epic).applyTo(epic);
+            return null;
+        });
+    }
+
+    @Override
+    public SubTask addSubTaskToEpic(Epic epic, SubTask subTask) {
+        if (epic == null)
+            return null;
+        return withEpic(epic.getId(), () -> linkSubTask(epic, subTask));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return views.getHistory();
+    }
+
+    @Override
+    public List<Task> getTopViewed(int k) {
+        return views.getTopViewed(k, this::findTask);
+    }
+
+    private SubTask linkSubTask(Epic epic, SubTask subTask) {
+        if (epic.addSubTaskId(subTask.getId())) {
+            aggregateOf(epic).add(subTask);
+        }
+        aggregateOf(epic).applyTo(epic);
+        return subTask;
+    }
+
+    private void unlinkSubTask(Epic epic, SubTask subTask) {
+        if (epic.removeSubTaskId(subTask.getId())) {
+            aggregateOf(epic).remove(subTask.getId());
+        }
+        aggregateOf(epic).applyTo(epic);
+    }
+
+    private EpicAggregate aggregateOf(Epic epic) {
+        return epicAggregates.computeIfAbsent(epic.getId(), id -> new EpicAggregate());
+    }
+
+    private static <T extends Task> List<T> sortedById(Map<Integer, T> items) {
+        List<T> result = new ArrayList<>(items.values());
+        result.sort(Comparator.comparing(Task::getId));
+        return result;
+    }
+
+    private <R> R withEpic(int epicId, Supplier<R> action) {
+        ReentrantLock lock = epicLocks[Math.floorMod(epicId, EPIC_LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <R> R withSchedule(Supplier<R> action) {
+        scheduleLock.lock();
+        try {
+            return action.get();
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package service.memory;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import util.IntObjectMap;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+class EpicAggregate {
+    static final long EMPTY_START_TIME = Task.toEpochMinutes(LocalDateTime.MIN);
+    static final long EMPTY_END_TIME = Task.toEpochMinutes(LocalDateTime.MIN.plusYears(1));
+
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private final TreeMap<Long, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<Long, Integer> endTimes = new TreeMap<>();
+    private final IntObjectMap<Contribution> contributions = new IntObjectMap<>();
+    private long durationMinutes;
+
+    // Вклад каждой подзадачи запоминается по id: вызывающий код может изменить сохранённый объект
+    // до updateSubTask, и тогда по самому объекту уже не узнать, что было учтено раньше.
+    void add(SubTask subTask) {
+        remove(subTask.getId());
+        Contribution contribution = new Contribution(subTask);
+        contributions.put(subTask.getId(), contribution);
+        statusCounts[contribution.status.ordinal()]++;
+        durationMinutes += contribution.durationMinutes;
+        startTimes.merge(contribution.startMinutes, 1, Integer::sum);
+        endTimes.merge(contribution.endMinutes, 1, Integer::sum);
+    }
+
+    void remove(int subTaskId) {
+        Contribution contribution = contributions.remove(subTaskId);
+        if (contribution == null) {
+            return;
+        }
+        statusCounts[contribution.status.ordinal()]--;
+        durationMinutes -= contribution.durationMinutes;
+        decrement(startTimes, contribution.startMinutes);
+        decrement(endTimes, contribution.endMinutes);
+    }
+
+    void clear() {
+        contributions.clear();
+        durationMinutes = 0;
+        Arrays.fill(statusCounts, 0);
+        startTimes.clear();
+        endTimes.clear();
+    }
+
+    void applyTo(Epic epic) {
+        if (contributions.isEmpty()) {
+            epic.setTaskStatus(TaskStatus.NEW);
+            epic.setSchedule(EMPTY_START_TIME, 0, EMPTY_END_TIME);
+            return;
+        }
+
+        epic.setSchedule(startTimes.firstKey(), durationMinutes, Math.max(endTimes.lastKey(), EMPTY_END_TIME));
+        epic.setTaskStatus(getStatus());
+    }
+
+    private TaskStatus getStatus() {
+        int size = contributions.size();
+        if (statusCounts[TaskStatus.NEW.ordinal()] == size) {
+            return TaskStatus.NEW;
+        }
+        if (statusCounts[TaskStatus.DONE.ordinal()] == size) {
+            return TaskStatus.DONE;
+        }
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    private static void decrement(TreeMap<Long, Integer> times, long time) {
+        times.computeIfPresent(time, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static final class Contribution {
+        private final TaskStatus status;
+        private final long startMinutes;
+        private final long endMinutes;
+        private final long durationMinutes;
+
+        private Contribution(SubTask subTask) {
+            this.status = subTask.getTaskStatus();
+            this.startMinutes = subTask.getStartMinutes();
+            this.endMinutes = subTask.getEndMinutes();
+            this.durationMinutes = subTask.getDurationMinutes();
+        }
+    }
+}
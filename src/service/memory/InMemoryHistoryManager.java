@@ -26,9 +26,25 @@ public class InMemoryHistoryManager implements HistoryManager {
     Node first;
     Node last;
 
+    private final int capacity;
+
+    public InMemoryHistoryManager() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
     @Override
     public void add(Task task) {
         remove(task.getId());
+        if (history.size() >= capacity) {
+            remove(first.data.getId());
+        }
         Node oldLast = last;
         Node newNode = new Node(last, null, task);
         history.put(task.getId(), newNode);
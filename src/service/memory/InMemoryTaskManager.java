@@ -3,12 +3,12 @@ package service.memory;
 import model.Epic;
 import model.SubTask;
 import model.Task;
-import model.TaskStatus;
+import model.TimeSlot;
 import service.HistoryManager;
 import service.Managers;
 import service.TaskManager;
 import service.exeptions.NotFoundException;
-import service.exeptions.TaskTimeValidateException;
+import util.IntObjectMap;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -16,23 +16,27 @@ import java.util.*;
 
 public class InMemoryTaskManager implements TaskManager {
 
-    protected final Map<Integer, Task> tasks = new HashMap<>();
+    protected final IntObjectMap<Task> tasks = new IntObjectMap<>();
 
-    protected final Map<Integer, Epic> epics = new HashMap<>();
+    protected final IntObjectMap<Epic> epics = new IntObjectMap<>();
 
-    protected final Map<Integer, SubTask> subTasks = new HashMap<>();
+    protected final IntObjectMap<SubTask> subTasks = new IntObjectMap<>();
 
     protected int newTaskId = 0;
-    private final HistoryManager historyManager;
+    private final ViewTracker views;
 
-    protected final Set<Task> prioritizedTasks = new TreeSet<>(Comparator.comparing(Task::getStartTime));
+    protected final NavigableSet<Task> prioritizedTasks = new TreeSet<>(PRIORITY_ORDER);
+
+    private final Schedule schedule = new Schedule(prioritizedTasks);
+
+    private final IntObjectMap<EpicAggregate> epicAggregates = new IntObjectMap<>();
 
     public InMemoryTaskManager() {
-        historyManager = Managers.getDefaultHistory();
+        views = new ViewTracker(Managers.getDefaultHistory());
     }
 
     public InMemoryTaskManager(HistoryManager historyManager) {
-        this.historyManager = historyManager;
+        this.views = new ViewTracker(historyManager);
     }
 
     private int generateId() {
@@ -44,7 +48,7 @@ public class InMemoryTaskManager implements TaskManager {
         checkTaskTime(task);
         task.setId(generateId());
         tasks.put(task.getId(), task);
-        if (task.getStartTime() != null)
+        if (task.getStartMinutes() != Task.NO_TIME)
             prioritizedTasks.add(task);
         return task;
     }
@@ -67,10 +71,9 @@ public class InMemoryTaskManager implements TaskManager {
         checkTaskTime(subTask);
         subTask.setId(generateId());
         subTasks.put(subTask.getId(), subTask);
-        if (subTask.getStartTime() != null)
+        if (subTask.getStartMinutes() != Task.NO_TIME)
             prioritizedTasks.add(subTask);
-        addSubTaskToEpic(epic, subTask);
-        updateEpicStatus(epic);
+        linkSubTask(epic, subTask);
         return subTask;
     }
 
@@ -80,7 +83,23 @@ public class InMemoryTaskManager implements TaskManager {
         if (task == null) {
             throw new NotFoundException("Не найдена задача " + id);
         }
-        historyManager.add(task);
+        views.record(task);
+        return task;
+    }
+
+    @Override
+    public Task findTask(int id) {
+        return lookup(id);
+    }
+
+    private Task lookup(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        if (task == null) {
+            task = subTasks.get(id);
+        }
         return task;
     }
 
@@ -90,7 +109,7 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             throw new NotFoundException("Не найден эпик " + id);
         }
-        historyManager.add(epic);
+        views.record(epic);
         return epic;
     }
 
@@ -100,7 +119,7 @@ public class InMemoryTaskManager implements TaskManager {
         if (subTask == null) {
             throw new NotFoundException("Не найдена подзадача " + id);
         }
-        historyManager.add(subTask);
+        views.record(subTask);
         return subTask;
     }
 
@@ -119,7 +138,7 @@ public class InMemoryTaskManager implements TaskManager {
         saved.setTaskStatus(task.getTaskStatus());
         saved.setDuration(task.getDuration());
         saved.setStartTime(task.getStartTime());
-        if (saved.getStartTime() != null) {
+        if (saved.getStartMinutes() != Task.NO_TIME) {
             prioritizedTasks.add(saved);
         }
 
@@ -146,23 +165,33 @@ public class InMemoryTaskManager implements TaskManager {
             throw new NotFoundException("Не найдена подзадача " + subTask.getId());
         }
 
+        Epic epic = epics.get(saved.getEpicId());
+        EpicAggregate aggregate = epic != null && epic.containsSubTaskId(saved.getId())
+                ? aggregateOf(epic) : null;
+
         prioritizedTasks.remove(saved);
+        if (aggregate != null) {
+            aggregate.remove(saved.getId());
+        }
         saved.setDescription(subTask.getDescription());
         saved.setName(subTask.getName());
         saved.setTaskStatus(subTask.getTaskStatus());
         saved.setDuration(subTask.getDuration());
         saved.setStartTime(subTask.getStartTime());
-        if (saved.getStartTime() != null) {
-            prioritizedTasks.add(subTask);
+        if (saved.getStartMinutes() != Task.NO_TIME) {
+            prioritizedTasks.add(saved);
+        }
+        if (aggregate != null) {
+            aggregate.add(saved);
+            aggregate.applyTo(epic);
         }
-        updateEpicStatus(getEpic(saved.getEpicId()));
 
         return saved;
     }
 
     @Override
     public Task delete(int id) {
-        historyManager.remove(id);
+        views.forget(id);
         Task removed = tasks.remove(id);
         prioritizedTasks.remove(removed);
         return removed;
@@ -171,50 +200,79 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public Epic deleteEpic(int id) {
         Epic epic = epics.remove(id);
-        historyManager.remove(id);
+        epicAggregates.remove(id);
+        views.forget(id);
         if (epic == null)
             return null;
-        for (Integer subTaskId : epic.getSubTasksIds()) {
-            subTasks.remove(subTaskId);
-            historyManager.remove(subTaskId);
-        }
+        epic.getSubTasksIdsStream().forEach(subTaskId -> {
+            prioritizedTasks.remove(subTasks.remove(subTaskId));
+            views.forget(subTaskId);
+        });
         return epic;
     }
 
     @Override
     public SubTask deleteSubTask(int id) {
-        SubTask subTask = subTasks.remove(id);
-        prioritizedTasks.remove(subTask);
-        historyManager.remove(id);
+        views.forget(id);
+        SubTask subTask = subTasks.get(id);
         if (subTask == null)
             return null;
-        removeSubTaskFromEpic(getEpic(subTask.getEpicId()), subTask.getId());
-        updateEpicStatus(getEpic(subTask.getEpicId()));
+        Epic epic = epics.get(subTask.getEpicId());
+        if (epic != null) {
+            unlinkSubTask(epic, subTask.getId());
+        }
+        subTasks.remove(id);
+        prioritizedTasks.remove(subTask);
         return subTask;
     }
 
     @Override
     public List<Task> getTasks() {
-        return new ArrayList<>(tasks.values());
+        return tasks.values();
     }
 
     @Override
     public List<Epic> getEpics() {
-        return new ArrayList<>(epics.values());
+        return epics.values();
     }
 
     @Override
     public List<SubTask> getSubtasks() {
-        return new ArrayList<>(subTasks.values());
+        return subTasks.values();
     }
 
     @Override
     public TreeSet<Task> getPrioritizedTasks() {
-        TreeSet<Task> result = new TreeSet<>(Comparator.comparing(Task::getStartTime));
+        TreeSet<Task> result = new TreeSet<>(PRIORITY_ORDER);
         result.addAll(prioritizedTasks);
         return result;
     }
 
+    @Override
+    public NavigableSet<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return schedule.range(from, to);
+    }
+
+    @Override
+    public List<Task> nextAfter(LocalDateTime time, int limit) {
+        return schedule.nextAfter(time, limit);
+    }
+
+    @Override
+    public List<Task> previousBefore(LocalDateTime time, int limit) {
+        return schedule.previousBefore(time, limit);
+    }
+
+    @Override
+    public TimeSlot findFreeSlot(LocalDateTime after, Duration duration) {
+        return schedule.findFreeSlot(after, duration);
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        return schedule.findFreeSlots(from, to, minDuration);
+    }
+
     @Override
     public List<SubTask> getEpicSubtasks(int id) {
         Epic epic = epics.get(id);
@@ -222,136 +280,130 @@ public class InMemoryTaskManager implements TaskManager {
             throw new NotFoundException("Не найден эпик " + id);
         }
 
-        return epic.getSubTasksIds().stream()
-                .map(subTasks::get)
+        return epic.getSubTasksIdsStream()
+                .mapToObj(subTasks::get)
                 .toList();
     }
 
     @Override
     public void clearTasks() {
-        for (Task t : tasks.values()) {
-            historyManager.remove(t.getId());
+        tasks.forEachValue(t -> {
+            views.forget(t.getId());
             prioritizedTasks.remove(t);
-        }
+        });
         tasks.clear();
     }
 
     @Override
     public void clearEpics() {
-        for (Task task : epics.values()) {
-            historyManager.remove(task.getId());
-        }
-        for (Task task : subTasks.values()) {
-            historyManager.remove(task.getId());
-            prioritizedTasks.remove(task);
-        }
+        epics.forEachValue(epic -> views.forget(epic.getId()));
+        subTasks.forEachValue(subTask -> {
+            views.forget(subTask.getId());
+            prioritizedTasks.remove(subTask);
+        });
 
         epics.clear();
+        epicAggregates.clear();
         subTasks.clear();
     }
 
     @Override
     public void clearSubTasks() {
-        for (Task task : subTasks.values()) {
-            historyManager.remove(task.getId());
-            prioritizedTasks.remove(task);
-        }
+        subTasks.forEachValue(subTask -> {
+            views.forget(subTask.getId());
+            prioritizedTasks.remove(subTask);
+        });
         subTasks.clear();
-        for (Epic epic : epics.values()) {
-            removeAllSubtasksFromEpic(epic);
-        }
+        epics.forEachValue(this::unlinkAllSubTasks);
     }
 
     protected void updateEpicStatus(Epic epic) {
         if (epic == null)
             return;
 
-        List<Integer> subTasksIds = epic.getSubTasksIds();
-        if (subTasksIds.isEmpty()) {
-            epic.setTaskStatus(TaskStatus.NEW);
-            epic.setDuration(Duration.ZERO);
-            epic.setStartTime(LocalDateTime.MIN);
-        } else {
-            updateEpicWithSubtasks(epic, subTasksIds);
-        }
+        aggregateOf(epic).applyTo(epic);
     }
 
-    private void updateEpicWithSubtasks(Epic epic, List<Integer> subTasksIds) {
-        LocalDateTime minStartTime = LocalDateTime.MAX;
-        LocalDateTime maxEndTime = LocalDateTime.MIN.plusYears(1);
-        long duration = 0;
-        TaskStatus currentSubTaskStatus = null;
-        boolean isAllSame = true;
-
-        for (Integer subTasksId : subTasksIds) {
-
-            SubTask subTask = subTasks.get(subTasksId);
-
-            if (subTask.getStartTime().isBefore(minStartTime)) {
-                minStartTime = subTask.getStartTime();
-            }
-
-            if (subTask.getEndTime().isAfter(maxEndTime)) {
-                maxEndTime = subTask.getEndTime();
-            }
-
-            duration += subTask.getDuration().toMinutes();
+    private EpicAggregate aggregateOf(Epic epic) {
+        return epicAggregates.computeIfAbsent(epic.getId(), id -> new EpicAggregate());
+    }
 
-            if (currentSubTaskStatus == null) {
-                currentSubTaskStatus = subTask.getTaskStatus();
-            } else {
-                isAllSame = currentSubTaskStatus == subTask.getTaskStatus();
-            }
-        }
+    protected void checkTaskTime(Task task) {
+        schedule.checkCrossing(task);
+    }
 
-        epic.setStartTime(minStartTime);
-        epic.setDuration(Duration.ofMinutes(duration));
-        epic.setEndTime(maxEndTime);
-        if (isAllSame) {
-            epic.setTaskStatus(currentSubTaskStatus);
-        } else {
-            epic.setTaskStatus(TaskStatus.IN_PROGRESS);
-        }
+    // Массовая загрузка: сортировка и один проход вместо проверки каждой задачи по отдельности.
+    protected void loadSchedule(List<Task> scheduled) {
+        Task[] sorted = scheduled.toArray(new Task[0]);
+        Arrays.parallelSort(sorted, PRIORITY_ORDER);
+        List<Task> sortedList = Arrays.asList(sorted);
+        Schedule.checkSorted(sortedList);
+        prioritizedTasks.addAll(sortedList);
     }
 
-    protected void checkTaskTime(Task task) {
-        if (task.getStartTime() == null) {
-            return;
+    // Массовая загрузка: подзадачи уже лежат в хранилище. Связи проставляются за один проход,
+    // а сводки эпиков считаются параллельно: каждый эпик обрабатывает один поток, хранилища только читаются.
+    protected void linkLoadedSubTasks(List<SubTask> loaded) {
+        for (SubTask subTask : loaded) {
+            Epic epic = epics.get(subTask.getEpicId());
+            if (epic != null) {
+                epic.addSubTaskId(subTask.getId());
+            }
         }
-        prioritizedTasks.stream()
-                .filter(t -> (!t.equals(task) && t.isCrossed(task)))
-                .findFirst()
-                .ifPresent(t -> {
-                    throw new TaskTimeValidateException("Пересечение с задачей " + task.getName());
-                });
+        List<Epic> allEpics = epics.values();
+        allEpics.forEach(this::aggregateOf);
+        allEpics.parallelStream().forEach(epic -> {
+            EpicAggregate aggregate = epicAggregates.get(epic.getId());
+            epic.getSubTasksIdsStream().forEach(id -> aggregate.add(subTasks.get(id)));
+            aggregate.applyTo(epic);
+        });
     }
 
     @Override
     public void removeSubTaskFromEpic(Epic epic, Integer subTaskId) {
-        epic.getSubTasksIds().remove(subTaskId);
-        updateEpicStatus(epic);
+        unlinkSubTask(epic, subTaskId);
     }
 
     @Override
     public void removeAllSubtasksFromEpic(Epic epic) {
-        epic.getSubTasksIds().clear();
-        updateEpicStatus(epic);
+        unlinkAllSubTasks(epic);
     }
 
     @Override
     public SubTask addSubTaskToEpic(Epic epic, SubTask subTask) {
+        return linkSubTask(epic, subTask);
+    }
+
+    private void unlinkSubTask(Epic epic, Integer subTaskId) {
+        if (epic.removeSubTaskId(subTaskId)) {
+            aggregateOf(epic).remove(subTaskId);
+        }
+        updateEpicStatus(epic);
+    }
+
+    private void unlinkAllSubTasks(Epic epic) {
+        epic.clearSubTaskIds();
+        aggregateOf(epic).clear();
+        updateEpicStatus(epic);
+    }
+
+    private SubTask linkSubTask(Epic epic, SubTask subTask) {
         if (epic == null)
             return null;
-        List<Integer> subTaskIds = epic.getSubTasksIds();
-        Integer subTaskId = subTask.getId();
-        if (!subTaskIds.contains(subTaskId))
-            subTaskIds.add(subTaskId);
+        if (epic.addSubTaskId(subTask.getId())) {
+            aggregateOf(epic).add(subTask);
+        }
         updateEpicStatus(epic);
         return subTask;
     }
 
     @Override
     public List<Task> getHistory() {
-        return historyManager.getHistory();
+        return views.getHistory();
+    }
+
+    @Override
+    public List<Task> getTopViewed(int k) {
+        return views.getTopViewed(k, this::lookup);
     }
 }
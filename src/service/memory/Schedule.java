@@ -0,0 +1,121 @@
+package service.memory;
+
+import model.Task;
+import model.TaskStatus;
+import model.TimeSlot;
+import service.exeptions.TaskTimeValidateException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+
+class Schedule {
+    private final NavigableSet<Task> tasks;
+
+    Schedule(NavigableSet<Task> tasks) {
+        this.tasks = tasks;
+    }
+
+    void checkCrossing(Task task) {
+        if (task.getStartMinutes() == Task.NO_TIME) {
+            return;
+        }
+        // Задачи в расписании не пересекаются, поэтому при сортировке по началу их окончания тоже упорядочены:
+        // достаточно проверить ближайшую задачу, начавшуюся раньше окончания новой.
+        for (Task t : tasks.headSet(bound(task.getEndMinutes()), false).descendingSet()) {
+            if (t.equals(task)) {
+                continue;
+            }
+            if (t.isCrossed(task)) {
+                throw new TaskTimeValidateException("Пересечение с задачей " + task.getName());
+            }
+            return;
+        }
+    }
+
+    static void checkSorted(List<Task> sorted) {
+        // Сравнивается с задачей, которая заканчивается позже всех предыдущих: если пересечение есть, то с ней.
+        Task latest = null;
+        for (Task task : sorted) {
+            if (latest != null && latest.isCrossed(task)) {
+                throw new TaskTimeValidateException("Пересечение с задачей " + task.getName());
+            }
+            if (latest == null || task.getEndMinutes() > latest.getEndMinutes()) {
+                latest = task;
+            }
+        }
+    }
+
+    NavigableSet<Task> range(LocalDateTime from, LocalDateTime to) {
+        NavigableSet<Task> range = tasks;
+        if (from != null) {
+            range = range.tailSet(bound(Task.toEpochMinutes(from)), true);
+        }
+        if (to != null) {
+            range = range.headSet(bound(Task.toEpochMinutes(to)), false);
+        }
+        return Collections.unmodifiableNavigableSet(range);
+    }
+
+    List<Task> nextAfter(LocalDateTime time, int limit) {
+        return take(tasks.tailSet(bound(Task.toEpochMinutes(time)), true), limit);
+    }
+
+    List<Task> previousBefore(LocalDateTime time, int limit) {
+        return take(tasks.headSet(bound(Task.toEpochMinutes(time)), false).descendingSet(), limit);
+    }
+
+    TimeSlot findFreeSlot(LocalDateTime after, Duration duration) {
+        long length = duration.toMinutes();
+        long cursor = freeFrom(Task.toEpochMinutes(after));
+        for (Task t : tasks.tailSet(bound(cursor), true)) {
+            if (t.getStartMinutes() - cursor >= length) {
+                break;
+            }
+            cursor = Math.max(cursor, t.getEndMinutes());
+        }
+        return new TimeSlot(cursor, cursor + length);
+    }
+
+    List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        long length = Math.max(minDuration.toMinutes(), 1);
+        long end = Task.toEpochMinutes(to);
+        long cursor = freeFrom(Task.toEpochMinutes(from));
+        List<TimeSlot> result = new ArrayList<>();
+        if (cursor >= end) {
+            return result;
+        }
+        for (Task t : tasks.subSet(bound(cursor), true, bound(end), false)) {
+            if (t.getStartMinutes() - cursor >= length) {
+                result.add(new TimeSlot(cursor, t.getStartMinutes()));
+            }
+            cursor = Math.max(cursor, t.getEndMinutes());
+        }
+        if (end - cursor >= length) {
+            result.add(new TimeSlot(cursor, end));
+        }
+        return result;
+    }
+
+    private long freeFrom(long minutes) {
+        Task previous = tasks.lower(bound(minutes));
+        return previous == null ? minutes : Math.max(minutes, previous.getEndMinutes());
+    }
+
+    private static Task bound(long minutes) {
+        return new Task(null, "", "", TaskStatus.NEW, minutes, 0);
+    }
+
+    private static List<Task> take(Iterable<Task> tasks, int limit) {
+        List<Task> result = new ArrayList<>(Math.min(limit, 16));
+        Iterator<Task> iterator = tasks.iterator();
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+}
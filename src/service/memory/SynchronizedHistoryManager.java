@@ -0,0 +1,29 @@
+package service.memory;
+
+import model.Task;
+import service.HistoryManager;
+
+import java.util.List;
+
+class SynchronizedHistoryManager implements HistoryManager {
+    private final HistoryManager historyManager;
+
+    SynchronizedHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        historyManager.add(task);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public synchronized void remove(int taskId) {
+        historyManager.remove(taskId);
+    }
+}
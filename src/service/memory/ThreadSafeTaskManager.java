@@ -0,0 +1,230 @@
+package service.memory;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TimeSlot;
+import service.HistoryManager;
+import service.Managers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+public class ThreadSafeTaskManager extends InMemoryTaskManager {
+    private final StampedLock lock = new StampedLock();
+
+    public ThreadSafeTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public ThreadSafeTaskManager(HistoryManager historyManager) {
+        super(new SynchronizedHistoryManager(historyManager));
+    }
+
+    @Override
+    public Task create(Task task) {
+        return write(() -> super.create(task));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return write(() -> super.createEpic(epic));
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        return write(() -> super.createSubTask(subTask));
+    }
+
+    @Override
+    public Task get(int id) {
+        return read(() -> super.get(id));
+    }
+
+    @Override
+    public Task findTask(int id) {
+        return optimisticRead(() -> super.findTask(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return read(() -> super.getEpic(id));
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        return read(() -> super.getSubTask(id));
+    }
+
+    @Override
+    public Task update(Task task) {
+        return write(() -> super.update(task));
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return write(() -> super.updateEpic(epic));
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subTask) {
+        return write(() -> super.updateSubTask(subTask));
+    }
+
+    @Override
+    public Task delete(int id) {
+        return write(() -> super.delete(id));
+    }
+
+    @Override
+    public Epic deleteEpic(int id) {
+        return write(() -> super.deleteEpic(id));
+    }
+
+    @Override
+    public SubTask deleteSubTask(int id) {
+        return write(() -> super.deleteSubTask(id));
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return optimisticRead(super::getTasks);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return optimisticRead(super::getEpics);
+    }
+
+    @Override
+    public List<SubTask> getSubtasks() {
+        return optimisticRead(super::getSubtasks);
+    }
+
+    @Override
+    public List<SubTask> getEpicSubtasks(int id) {
+        return optimisticRead(() -> super.getEpicSubtasks(id));
+    }
+
+    @Override
+    public List<Task> getTopViewed(int k) {
+        return optimisticRead(() -> super.getTopViewed(k));
+    }
+
+    @Override
+    public TreeSet<Task> getPrioritizedTasks() {
+        return read(super::getPrioritizedTasks);
+    }
+
+    @Override
+    public NavigableSet<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return read(() -> Collections.unmodifiableNavigableSet(new TreeSet<>(super.getPrioritizedTasks(from, to))));
+    }
+
+    @Override
+    public List<Task> nextAfter(LocalDateTime time, int limit) {
+        return read(() -> super.nextAfter(time, limit));
+    }
+
+    @Override
+    public List<Task> previousBefore(LocalDateTime time, int limit) {
+        return read(() -> super.previousBefore(time, limit));
+    }
+
+    @Override
+    public TimeSlot findFreeSlot(LocalDateTime after, Duration duration) {
+        return read(() -> super.findFreeSlot(after, duration));
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        return read(() -> super.findFreeSlots(from, to, minDuration));
+    }
+
+    @Override
+    public void clearTasks() {
+        write(() -> {
+            super.clearTasks();
+            return null;
+        });
+    }
+
+    @Override
+    public void clearEpics() {
+        write(() -> {
+            super.clearEpics();
+            return null;
+        });
+    }
+
+    @Override
+    public void clearSubTasks() {
+        write(() -> {
+            super.clearSubTasks();
+            return null;
+        });
+    }
+
+    @Override
+    public void removeSubTaskFromEpic(Epic epic, Integer subTaskId) {
+        write(() -> {
+            super.removeSubTaskFromEpic(epic, subTaskId);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeAllSubtasksFromEpic(Epic epic) {
+        write(() -> {
+            super.removeAllSubtasksFromEpic(epic);
+            return null;
+        });
+    }
+
+    @Override
+    public SubTask addSubTaskToEpic(Epic epic, SubTask subTask) {
+        return write(() -> super.addSubTaskToEpic(epic, subTask));
+    }
+
+    private <R> R optimisticRead(Supplier<R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Исключение внутри оптимистичного чтения допустимо только если данные не менялись.
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        return read(reader);
+    }
+
+    private <R> R read(Supplier<R> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <R> R write(Supplier<R> writer) {
+        long stamp = lock.writeLock();
+        try {
+            return writer.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package service.memory;
+
+import model.Task;
+import service.HistoryManager;
+import service.TaskManager;
+import util.SpaceSavingSketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// Просмотры задач: история и счётчик самых просматриваемых обновляются вместе и вместе забывают удалённые задачи.
+public class ViewTracker {
+    private final HistoryManager historyManager;
+    private final SpaceSavingSketch[] stripes;
+
+    public ViewTracker(HistoryManager historyManager) {
+        this(historyManager, 1);
+    }
+
+    // Счётчик делится на независимые полосы по id, чтобы параллельные чтения не ждали одну блокировку.
+    // Каждый id попадает только в свою полосу, поэтому топ полос сливается без потери точности Space-Saving.
+    public ViewTracker(HistoryManager historyManager, int stripeCount) {
+        this.historyManager = historyManager;
+        this.stripes = new SpaceSavingSketch[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new SpaceSavingSketch(Math.max(TaskManager.TOP_VIEWED_CAPACITY / stripeCount, 1));
+        }
+    }
+
+    public void record(Task task) {
+        historyManager.add(task);
+        stripeOf(task.getId()).offer(task.getId());
+    }
+
+    public void forget(int id) {
+        historyManager.remove(id);
+        stripeOf(id).remove(id);
+    }
+
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    // resolver возвращает текущую версию задачи или null, если задача уже удалена.
+    public List<Task> getTopViewed(int k, IntFunction<Task> resolver) {
+        List<Task> result = new ArrayList<>();
+        for (int id : top(k)) {
+            Task task = resolver.apply(id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    private int[] top(int k) {
+        if (stripes.length == 1) {
+            return stripes[0].top(k);
+        }
+        List<long[]> candidates = new ArrayList<>();
+        for (SpaceSavingSketch stripe : stripes) {
+            for (int id : stripe.top(k)) {
+                candidates.add(new long[]{id, stripe.estimate(id)});
+            }
+        }
+        return candidates.stream()
+                .sorted(Comparator.<long[]>comparingLong(candidate -> -candidate[1])
+                        .thenComparingLong(candidate -> candidate[0]))
+                .limit(Math.max(k, 0))
+                .mapToInt(candidate -> (int) candidate[0])
+                .toArray();
+    }
+
+    private SpaceSavingSketch stripeOf(int id) {
+        return stripes[Math.floorMod(id, stripes.length)];
+    }
+}
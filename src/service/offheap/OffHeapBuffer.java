@@ -0,0 +1,66 @@
+package service.offheap;
+
+import java.nio.ByteBuffer;
+
+// Растущая область памяти вне кучи. При расширении содержимое копируется в новый буфер,
+// старый освобождается сборщиком вместе с объектом-обёрткой.
+final class OffHeapBuffer {
+    private ByteBuffer buffer;
+
+    OffHeapBuffer(int capacity) {
+        buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Превышен размер области памяти: " + required);
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE,
+                Math.max(required, (long) buffer.capacity() * 2)));
+        grown.put(0, buffer, 0, buffer.capacity());
+        buffer = grown;
+    }
+
+    byte get(int index) {
+        return buffer.get(index);
+    }
+
+    void put(int index, byte value) {
+        buffer.put(index, value);
+    }
+
+    int getInt(int index) {
+        return buffer.getInt(index);
+    }
+
+    void putInt(int index, int value) {
+        buffer.putInt(index, value);
+    }
+
+    long getLong(int index) {
+        return buffer.getLong(index);
+    }
+
+    void putLong(int index, long value) {
+        buffer.putLong(index, value);
+    }
+
+    void get(int index, byte[] target) {
+        buffer.get(index, target);
+    }
+
+    void put(int index, byte[] source) {
+        buffer.put(index, source);
+    }
+
+    void copyTo(int index, OffHeapBuffer target, int targetIndex, int length) {
+        target.buffer.put(targetIndex, buffer, index, length);
+    }
+}
@@ -0,0 +1,816 @@
+package service.offheap;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import model.TimeSlot;
+import service.HistoryManager;
+import service.Managers;
+import service.TaskManager;
+import service.columnar.RowSchedule;
+import service.exeptions.NotFoundException;
+import service.memory.ViewTracker;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// Все записи, строки, индекс по id и расписание лежат вне кучи; объекты Task создаются только при чтении.
+// Подзадачи эпика связаны двусвязным списком прямо в записях, поэтому размер кучи не зависит от размера доски.
+// Для сводки эпика его подзадачи собраны ещё в два декартовых дерева - по началу и по концу: корни и счётчики
+// статусов лежат в записи эпика, и изменение подзадачи пересчитывает эпик за O(log k) без обхода списка.
+public class OffHeapTaskManager implements TaskManager {
+    private static final int RECORD_SIZE = 120;
+    private static final int R_TYPE = 0;
+    private static final int R_STATUS = 1;
+    private static final int R_ID = 4;
+    private static final int R_EPIC_ID = 8;
+    private static final int R_OWNER = 12;
+    private static final int R_PREV = 16;
+    private static final int R_NEXT = 20;
+    private static final int R_HEAD = 24;
+    private static final int R_TAIL = 28;
+    private static final int R_START = 32;
+    private static final int R_DURATION = 40;
+    private static final int R_END = 48;
+    private static final int R_NAME = 56;
+    private static final int R_DESCRIPTION = 64;
+    // Ссылки дерева расписания.
+    private static final int R_SCHEDULE_LINKS = 72;
+    // Поля эпика: число подзадач, корни деревьев времён, число новых и выполненных подзадач.
+    private static final int R_SUBTASKS = 84;
+    private static final int R_STARTS_ROOT = 88;
+    private static final int R_ENDS_ROOT = 92;
+    private static final int R_NEW_SUBTASKS = 96;
+    private static final int R_DONE_SUBTASKS = 100;
+    // Ссылки подзадачи в деревьях времён эпика: левая и правая для каждого дерева; запись дополнена
+    // до кратного восьми размера.
+    private static final int R_TIME_LINKS = 104;
+
+    private static final int STARTS = 0;
+    private static final int ENDS = 1;
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+
+    private static final byte FREE = -1;
+    private static final int NO_ROW = -1;
+    private static final int NO_ID = 0;
+    private static final int NULL_STRING = -1;
+    private static final int INITIAL_RECORDS = 1024;
+    private static final int INITIAL_STRINGS = 64 << 10;
+    private static final long EMPTY_EPIC_START = Task.toEpochMinutes(LocalDateTime.MIN);
+    private static final long EMPTY_EPIC_END = Task.toEpochMinutes(LocalDateTime.MIN.plusYears(1));
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final OffHeapBuffer records = new OffHeapBuffer(INITIAL_RECORDS * RECORD_SIZE);
+    private int recordCount;
+    private int freeHead = NO_ROW;
+
+    // index[id] = номер записи + 1, ноль означает отсутствие задачи.
+    private final OffHeapBuffer index = new OffHeapBuffer(INITIAL_RECORDS * Integer.BYTES);
+
+    private OffHeapBuffer strings = new OffHeapBuffer(INITIAL_STRINGS);
+    private int stringsEnd;
+    private int stringsGarbage;
+
+    private final RowSchedule schedule = new RowSchedule(new RowSchedule.Rows() {
+        @Override
+        public long start(int row) {
+            return getLong(row, R_START);
+        }
+
+        @Override
+        public long end(int row) {
+            return getLong(row, R_END);
+        }
+
+        @Override
+        public int id(int row) {
+            return getInt(row, R_ID);
+        }
+
+        @Override
+        public Task materialize(int row) {
+            return OffHeapTaskManager.this.materialize(row);
+        }
+
+        @Override
+        public int link(int row, int link) {
+            return getInt(row, R_SCHEDULE_LINKS + link * Integer.BYTES);
+        }
+
+        @Override
+        public void setLink(int row, int link, int value) {
+            putInt(row, R_SCHEDULE_LINKS + link * Integer.BYTES, value);
+        }
+    });
+
+    private int newTaskId = 0;
+    private final ViewTracker views;
+
+    public OffHeapTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public OffHeapTaskManager(HistoryManager historyManager) {
+        this.views = new ViewTracker(historyManager);
+    }
+
+    private int generateId() {
+        return ++newTaskId;
+    }
+
+    @Override
+    public Task create(Task task) {
+        schedule.checkTaskTime(task.getStartMinutes(), task.getEndMinutes(), 0);
+        task.setId(generateId());
+        int row = appendRow(task, TaskType.TASK, 0);
+        scheduleInsert(row);
+        return task;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(generateId());
+        int row = appendRow(epic, TaskType.EPIC, 0);
+        clearEpic(row);
+        updateEpic(row);
+        copyEpicFields(row, epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subTask) {
+        int epicRow = rowOf(subTask.getEpicId(), TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + subTask.getEpicId());
+        }
+
+        schedule.checkTaskTime(subTask.getStartMinutes(), subTask.getEndMinutes(), 0);
+        subTask.setId(generateId());
+        int row = appendRow(subTask, TaskType.SUBTASK, subTask.getEpicId());
+        scheduleInsert(row);
+        link(epicRow, row);
+        updateEpic(epicRow);
+        return subTask;
+    }
+
+    @Override
+    public Task get(int id) {
+        int row = rowOf(id, TaskType.TASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена задача " + id);
+        }
+        Task task = materialize(row);
+        views.record(task);
+        return task;
+    }
+
+    @Override
+    public Task findTask(int id) {
+        int row = rowOf(id);
+        return row == NO_ROW ? null : materialize(row);
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        int row = rowOf(id, TaskType.EPIC);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + id);
+        }
+        Epic epic = (Epic) materialize(row);
+        views.record(epic);
+        return epic;
+    }
+
+    @Override
+    public SubTask getSubTask(int id) {
+        int row = rowOf(id, TaskType.SUBTASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена подзадача " + id);
+        }
+        SubTask subTask = (SubTask) materialize(row);
+        views.record(subTask);
+        return subTask;
+    }
+
+    @Override
+    public Task update(Task task) {
+        schedule.checkTaskTime(task.getStartMinutes(), task.getEndMinutes(), task.getId());
+
+        int row = rowOf(task.getId(), TaskType.TASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена задача " + task.getId());
+        }
+
+        scheduleRemove(row);
+        writeRow(row, task);
+        scheduleInsert(row);
+        return materialize(row);
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        int row = rowOf(epic.getId(), TaskType.EPIC);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        writeString(row, R_NAME, epic.getName());
+        writeString(row, R_DESCRIPTION, epic.getDescription());
+        return (Epic) materialize(row);
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subTask) {
+        schedule.checkTaskTime(subTask.getStartMinutes(), subTask.getEndMinutes(), subTask.getId());
+
+        int row = rowOf(subTask.getId(), TaskType.SUBTASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена подзадача " + subTask.getId());
+        }
+
+        // Прежние времена подзадачи убираются из деревьев эпика до перезаписи, новые добавляются после.
+        int epicRow = rowOf(getInt(row, R_OWNER), TaskType.EPIC);
+        if (epicRow != NO_ROW) {
+            contribute(epicRow, row, -1);
+        }
+        scheduleRemove(row);
+        writeRow(row, subTask);
+        scheduleInsert(row);
+        if (epicRow != NO_ROW) {
+            contribute(epicRow, row, 1);
+            updateEpic(epicRow);
+        }
+        return (SubTask) materialize(row);
+    }
+
+    @Override
+    public Task delete(int id) {
+        views.forget(id);
+        int row = rowOf(id, TaskType.TASK);
+        if (row == NO_ROW) {
+            return null;
+        }
+        Task removed = materialize(row);
+        deleteRow(row);
+        return removed;
+    }
+
+    @Override
+    public Epic deleteEpic(int id) {
+        views.forget(id);
+        int row = rowOf(id, TaskType.EPIC);
+        if (row == NO_ROW) {
+            return null;
+        }
+        Epic removed = (Epic) materialize(row);
+        for (int subTaskId = getInt(row, R_HEAD); subTaskId != NO_ID; ) {
+            int subTaskRow = rowOf(subTaskId);
+            int next = getInt(subTaskRow, R_NEXT);
+            deleteRow(subTaskRow);
+            views.forget(subTaskId);
+            subTaskId = next;
+        }
+        deleteRow(row);
+        return removed;
+    }
+
+    @Override
+    public SubTask deleteSubTask(int id) {
+        views.forget(id);
+        int row = rowOf(id, TaskType.SUBTASK);
+        if (row == NO_ROW) {
+            return null;
+        }
+        SubTask removed = (SubTask) materialize(row);
+        int epicRow = rowOf(getInt(row, R_OWNER), TaskType.EPIC);
+        if (epicRow != NO_ROW) {
+            unlink(epicRow, row);
+        }
+        deleteRow(row);
+        if (epicRow != NO_ROW) {
+            updateEpic(epicRow);
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return collect(TaskType.TASK);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return collect(TaskType.EPIC);
+    }
+
+    @Override
+    public List<SubTask> getSubtasks() {
+        return collect(TaskType.SUBTASK);
+    }
+
+    @Override
+    public List<SubTask> getEpicSubtasks(int id) {
+        int epicRow = rowOf(id, TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + id);
+        }
+        List<SubTask> result = new ArrayList<>();
+        for (int subTaskId = getInt(epicRow, R_HEAD); subTaskId != NO_ID; ) {
+            int row = rowOf(subTaskId);
+            result.add((SubTask) materialize(row));
+            subTaskId = getInt(row, R_NEXT);
+        }
+        return result;
+    }
+
+    @Override
+    public TreeSet<Task> getPrioritizedTasks() {
+        return schedule.getPrioritizedTasks();
+    }
+
+    @Override
+    public NavigableSet<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return schedule.getPrioritizedTasks(from, to);
+    }
+
+    @Override
+    public List<Task> nextAfter(LocalDateTime time, int limit) {
+        return schedule.nextAfter(time, limit);
+    }
+
+    @Override
+    public List<Task> previousBefore(LocalDateTime time, int limit) {
+        return schedule.previousBefore(time, limit);
+    }
+
+    @Override
+    public TimeSlot findFreeSlot(LocalDateTime after, Duration duration) {
+        return schedule.findFreeSlot(after, duration);
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(LocalDateTime from, LocalDateTime to, Duration minDuration) {
+        return schedule.findFreeSlots(from, to, minDuration);
+    }
+
+    @Override
+    public void clearTasks() {
+        clearRows(TaskType.TASK);
+    }
+
+    @Override
+    public void clearEpics() {
+        clearRows(TaskType.SUBTASK);
+        clearRows(TaskType.EPIC);
+    }
+
+    @Override
+    public void clearSubTasks() {
+        clearRows(TaskType.SUBTASK);
+        for (int row = 0; row < recordCount; row++) {
+            if (records.get(offset(row) + R_TYPE) == TaskType.EPIC.ordinal()) {
+                clearEpic(row);
+                updateEpic(row);
+            }
+        }
+    }
+
+    @Override
+    public void removeSubTaskFromEpic(Epic epic, Integer subTaskId) {
+        int epicRow = rowOf(epic.getId(), TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        int row = rowOf(subTaskId, TaskType.SUBTASK);
+        if (row != NO_ROW && getInt(row, R_OWNER) == epic.getId()) {
+            unlink(epicRow, row);
+        }
+        epic.removeSubTaskId(subTaskId);
+        updateEpic(epicRow);
+        copyEpicFields(epicRow, epic);
+    }
+
+    @Override
+    public void removeAllSubtasksFromEpic(Epic epic) {
+        int epicRow = rowOf(epic.getId(), TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        while (getInt(epicRow, R_HEAD) != NO_ID) {
+            unlink(epicRow, rowOf(getInt(epicRow, R_HEAD)));
+        }
+        epic.clearSubTaskIds();
+        updateEpic(epicRow);
+        copyEpicFields(epicRow, epic);
+    }
+
+    @Override
+    public SubTask addSubTaskToEpic(Epic epic, SubTask subTask) {
+        if (epic == null)
+            return null;
+        int epicRow = rowOf(epic.getId(), TaskType.EPIC);
+        if (epicRow == NO_ROW) {
+            throw new NotFoundException("Не найден эпик " + epic.getId());
+        }
+        int row = rowOf(subTask.getId(), TaskType.SUBTASK);
+        if (row == NO_ROW) {
+            throw new NotFoundException("Не найдена подзадача " + subTask.getId());
+        }
+        // Подзадача состоит не более чем в одном списке: при переносе она уходит из прежнего эпика.
+        int ownerRow = rowOf(getInt(row, R_OWNER), TaskType.EPIC);
+        if (ownerRow != epicRow) {
+            if (ownerRow != NO_ROW) {
+                unlink(ownerRow, row);
+                updateEpic(ownerRow);
+            }
+            putInt(row, R_EPIC_ID, epic.getId());
+            link(epicRow, row);
+        }
+        epic.addSubTaskId(subTask.getId());
+        updateEpic(epicRow);
+        copyEpicFields(epicRow, epic);
+        return subTask;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return views.getHistory();
+    }
+
+    @Override
+    public List<Task> getTopViewed(int k) {
+        return views.getTopViewed(k, this::findTask);
+    }
+
+    private static int offset(int row) {
+        return row * RECORD_SIZE;
+    }
+
+    private int getInt(int row, int field) {
+        return records.getInt(offset(row) + field);
+    }
+
+    private void putInt(int row, int field, int value) {
+        records.putInt(offset(row) + field, value);
+    }
+
+    private long getLong(int row, int field) {
+        return records.getLong(offset(row) + field);
+    }
+
+    private void putLong(int row, int field, long value) {
+        records.putLong(offset(row) + field, value);
+    }
+
+    private int rowOf(int id) {
+        if (id <= 0 || (long) id * Integer.BYTES >= index.capacity()) {
+            return NO_ROW;
+        }
+        return index.getInt(id * Integer.BYTES) - 1;
+    }
+
+    private int rowOf(int id, TaskType type) {
+        int row = rowOf(id);
+        return row != NO_ROW && records.get(offset(row) + R_TYPE) == type.ordinal() ? row : NO_ROW;
+    }
+
+    private int appendRow(Task task, TaskType type, int epicId) {
+        int row;
+        if (freeHead != NO_ROW) {
+            row = freeHead;
+            freeHead = getInt(row, R_NEXT);
+        } else {
+            row = recordCount++;
+            records.ensureCapacity((long) recordCount * RECORD_SIZE);
+        }
+        records.put(offset(row) + R_TYPE, (byte) type.ordinal());
+        putInt(row, R_ID, task.getId());
+        putInt(row, R_EPIC_ID, epicId);
+        putInt(row, R_OWNER, NO_ID);
+        putInt(row, R_PREV, NO_ID);
+        putInt(row, R_NEXT, NO_ID);
+        putInt(row, R_HEAD, NO_ID);
+        putInt(row, R_TAIL, NO_ID);
+        putInt(row, R_NAME + Integer.BYTES, NULL_STRING);
+        putInt(row, R_DESCRIPTION + Integer.BYTES, NULL_STRING);
+        writeRow(row, task);
+
+        index.ensureCapacity(((long) task.getId() + 1) * Integer.BYTES);
+        index.putInt(task.getId() * Integer.BYTES, row + 1);
+        return row;
+    }
+
+    private void writeRow(int row, Task task) {
+        writeString(row, R_NAME, task.getName());
+        writeString(row, R_DESCRIPTION, task.getDescription());
+        records.put(offset(row) + R_STATUS, (byte) task.getTaskStatus().ordinal());
+        putLong(row, R_START, task.getStartMinutes());
+        putLong(row, R_DURATION, task.getDurationMinutes());
+        putLong(row, R_END, task.getEndMinutes());
+    }
+
+    private void deleteRow(int row) {
+        scheduleRemove(row);
+        releaseString(row, R_NAME);
+        releaseString(row, R_DESCRIPTION);
+        index.putInt(getInt(row, R_ID) * Integer.BYTES, 0);
+        records.put(offset(row) + R_TYPE, FREE);
+        putInt(row, R_NEXT, freeHead);
+        freeHead = row;
+    }
+
+    private void clearRows(TaskType type) {
+        for (int row = 0; row < recordCount; row++) {
+            if (records.get(offset(row) + R_TYPE) == type.ordinal()) {
+                views.forget(getInt(row, R_ID));
+                deleteRow(row);
+            }
+        }
+    }
+
+    private void link(int epicRow, int row) {
+        int id = getInt(row, R_ID);
+        int tail = getInt(epicRow, R_TAIL);
+        putInt(row, R_OWNER, getInt(epicRow, R_ID));
+        putInt(row, R_PREV, tail);
+        putInt(row, R_NEXT, NO_ID);
+        if (tail == NO_ID) {
+            putInt(epicRow, R_HEAD, id);
+        } else {
+            putInt(rowOf(tail), R_NEXT, id);
+        }
+        putInt(epicRow, R_TAIL, id);
+        contribute(epicRow, row, 1);
+    }
+
+    private void unlink(int epicRow, int row) {
+        contribute(epicRow, row, -1);
+        int prev = getInt(row, R_PREV);
+        int next = getInt(row, R_NEXT);
+        if (prev == NO_ID) {
+            putInt(epicRow, R_HEAD, next);
+        } else {
+            putInt(rowOf(prev), R_NEXT, next);
+        }
+        if (next == NO_ID) {
+            putInt(epicRow, R_TAIL, prev);
+        } else {
+            putInt(rowOf(next), R_PREV, prev);
+        }
+        putInt(row, R_OWNER, NO_ID);
+        putInt(row, R_PREV, NO_ID);
+        putInt(row, R_NEXT, NO_ID);
+    }
+
+    private void clearEpic(int epicRow) {
+        putInt(epicRow, R_HEAD, NO_ID);
+        putInt(epicRow, R_TAIL, NO_ID);
+        putInt(epicRow, R_SUBTASKS, 0);
+        putInt(epicRow, R_NEW_SUBTASKS, 0);
+        putInt(epicRow, R_DONE_SUBTASKS, 0);
+        putInt(epicRow, R_STARTS_ROOT, NO_ROW);
+        putInt(epicRow, R_ENDS_ROOT, NO_ROW);
+        putLong(epicRow, R_DURATION, 0);
+    }
+
+    // Добавляет (sign = 1) или снимает (sign = -1) вклад подзадачи в счётчики и деревья времён эпика.
+    private void contribute(int epicRow, int row, int sign) {
+        putInt(epicRow, R_SUBTASKS, getInt(epicRow, R_SUBTASKS) + sign);
+        byte status = records.get(offset(row) + R_STATUS);
+        if (status == TaskStatus.NEW.ordinal()) {
+            putInt(epicRow, R_NEW_SUBTASKS, getInt(epicRow, R_NEW_SUBTASKS) + sign);
+        } else if (status == TaskStatus.DONE.ordinal()) {
+            putInt(epicRow, R_DONE_SUBTASKS, getInt(epicRow, R_DONE_SUBTASKS) + sign);
+        }
+        putLong(epicRow, R_DURATION, getLong(epicRow, R_DURATION) + sign * getLong(row, R_DURATION));
+        for (int tree : new int[]{STARTS, ENDS}) {
+            int rootField = tree == STARTS ? R_STARTS_ROOT : R_ENDS_ROOT;
+            int root = getInt(epicRow, rootField);
+            if (sign > 0) {
+                setTimeLink(row, tree, LEFT, NO_ROW);
+                setTimeLink(row, tree, RIGHT, NO_ROW);
+                putInt(epicRow, rootField, insertTime(root, row, tree));
+            } else {
+                putInt(epicRow, rootField, removeTime(root, row, tree));
+            }
+        }
+    }
+
+    // Поля эпика выводятся из счётчиков и крайних узлов деревьев времён.
+    private void updateEpic(int epicRow) {
+        int size = getInt(epicRow, R_SUBTASKS);
+        if (size == 0) {
+            records.put(offset(epicRow) + R_STATUS, (byte) TaskStatus.NEW.ordinal());
+            putLong(epicRow, R_START, EMPTY_EPIC_START);
+            putLong(epicRow, R_DURATION, 0);
+            putLong(epicRow, R_END, EMPTY_EPIC_END);
+            return;
+        }
+
+        TaskStatus status = TaskStatus.IN_PROGRESS;
+        if (getInt(epicRow, R_NEW_SUBTASKS) == size) {
+            status = TaskStatus.NEW;
+        } else if (getInt(epicRow, R_DONE_SUBTASKS) == size) {
+            status = TaskStatus.DONE;
+        }
+        records.put(offset(epicRow) + R_STATUS, (byte) status.ordinal());
+        putLong(epicRow, R_START, edgeTime(getInt(epicRow, R_STARTS_ROOT), STARTS, LEFT));
+        putLong(epicRow, R_END, Math.max(edgeTime(getInt(epicRow, R_ENDS_ROOT), ENDS, RIGHT), EMPTY_EPIC_END));
+    }
+
+    // Деревья времён упорядочены по (время, id), приоритет узла - перемешанный id, как в RowSchedule.
+    // Глубина рекурсии ожидаемо логарифмическая.
+    private int insertTime(int node, int row, int tree) {
+        if (node == NO_ROW) {
+            return row;
+        }
+        int side = compareTimes(row, node, tree) < 0 ? LEFT : RIGHT;
+        int child = insertTime(timeLink(node, tree, side), row, tree);
+        setTimeLink(node, tree, side, child);
+        if (priority(child) <= priority(node)) {
+            return node;
+        }
+        // Поворот: ребёнок поднимается на место node.
+        setTimeLink(node, tree, side, timeLink(child, tree, 1 - side));
+        setTimeLink(child, tree, 1 - side, node);
+        return child;
+    }
+
+    private int removeTime(int node, int row, int tree) {
+        if (node == NO_ROW) {
+            return NO_ROW;
+        }
+        if (node == row) {
+            return mergeTimes(timeLink(row, tree, LEFT), timeLink(row, tree, RIGHT), tree);
+        }
+        int side = compareTimes(row, node, tree) < 0 ? LEFT : RIGHT;
+        setTimeLink(node, tree, side, removeTime(timeLink(node, tree, side), row, tree));
+        return node;
+    }
+
+    private int mergeTimes(int left, int right, int tree) {
+        if (left == NO_ROW) {
+            return right;
+        }
+        if (right == NO_ROW) {
+            return left;
+        }
+        if (priority(left) > priority(right)) {
+            setTimeLink(left, tree, RIGHT, mergeTimes(timeLink(left, tree, RIGHT), right, tree));
+            return left;
+        }
+        setTimeLink(right, tree, LEFT, mergeTimes(left, timeLink(right, tree, LEFT), tree));
+        return right;
+    }
+
+    private long edgeTime(int node, int tree, int side) {
+        while (timeLink(node, tree, side) != NO_ROW) {
+            node = timeLink(node, tree, side);
+        }
+        return timeOf(node, tree);
+    }
+
+    private int compareTimes(int first, int second, int tree) {
+        int compare = Long.compare(timeOf(first, tree), timeOf(second, tree));
+        return compare != 0 ? compare : Integer.compare(getInt(first, R_ID), getInt(second, R_ID));
+    }
+
+    private long timeOf(int row, int tree) {
+        return getLong(row, tree == STARTS ? R_START : R_END);
+    }
+
+    private int timeLink(int row, int tree, int side) {
+        return getInt(row, R_TIME_LINKS + (tree * 2 + side) * Integer.BYTES);
+    }
+
+    private void setTimeLink(int row, int tree, int side, int value) {
+        putInt(row, R_TIME_LINKS + (tree * 2 + side) * Integer.BYTES, value);
+    }
+
+    private int priority(int row) {
+        int hash = getInt(row, R_ID) * 0x9E3779B9;
+        return hash ^ hash >>> 16;
+    }
+
+    private void copyEpicFields(int epicRow, Epic epic) {
+        epic.setTaskStatus(STATUSES[records.get(offset(epicRow) + R_STATUS)]);
+        epic.setSchedule(getLong(epicRow, R_START), getLong(epicRow, R_DURATION), getLong(epicRow, R_END));
+    }
+
+    // Порядок по id совпадает с порядком создания, как у остальных менеджеров.
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> collect(TaskType type) {
+        List<T> result = new ArrayList<>();
+        for (int id = 1; id <= newTaskId; id++) {
+            int row = rowOf(id, type);
+            if (row != NO_ROW) {
+                result.add((T) materialize(row));
+            }
+        }
+        return result;
+    }
+
+    private Task materialize(int row) {
+        int id = getInt(row, R_ID);
+        String name = readString(row, R_NAME);
+        String description = readString(row, R_DESCRIPTION);
+        TaskStatus status = STATUSES[records.get(offset(row) + R_STATUS)];
+        long start = getLong(row, R_START);
+        long duration = getLong(row, R_DURATION);
+        return switch (TYPES[records.get(offset(row) + R_TYPE)]) {
+            case TASK -> new Task(id, name, description, status, start, duration);
+            case SUBTASK -> new SubTask(id, getInt(row, R_EPIC_ID), name, description, status, start, duration);
+            case EPIC -> {
+                Epic epic = new Epic(name, description);
+                epic.setId(id);
+                copyEpicFields(row, epic);
+                for (int subTaskId = getInt(row, R_HEAD); subTaskId != NO_ID; ) {
+                    epic.addSubTaskId(subTaskId);
+                    subTaskId = getInt(rowOf(subTaskId), R_NEXT);
+                }
+                yield epic;
+            }
+        };
+    }
+
+    // Поле строки: смещение в области строк и длина в байтах.
+    private void writeString(int row, int field, String value) {
+        releaseString(row, field);
+        if (value == null) {
+            putInt(row, field + Integer.BYTES, NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (stringsGarbage > stringsEnd / 2 && stringsGarbage >= INITIAL_STRINGS) {
+            compactStrings();
+        }
+        strings.ensureCapacity((long) stringsEnd + bytes.length);
+        strings.put(stringsEnd, bytes);
+        putInt(row, field, stringsEnd);
+        putInt(row, field + Integer.BYTES, bytes.length);
+        stringsEnd += bytes.length;
+    }
+
+    private String readString(int row, int field) {
+        int length = getInt(row, field + Integer.BYTES);
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        strings.get(getInt(row, field), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void releaseString(int row, int field) {
+        int length = getInt(row, field + Integer.BYTES);
+        if (length > 0) {
+            stringsGarbage += length;
+        }
+        putInt(row, field + Integer.BYTES, NULL_STRING);
+    }
+
+    private void compactStrings() {
+        OffHeapBuffer compacted = new OffHeapBuffer(Math.max(INITIAL_STRINGS, stringsEnd - stringsGarbage));
+        int end = 0;
+        for (int row = 0; row < recordCount; row++) {
+            if (records.get(offset(row) + R_TYPE) == FREE) {
+                continue;
+            }
+            for (int field : new int[]{R_NAME, R_DESCRIPTION}) {
+                int length = getInt(row, field + Integer.BYTES);
+                if (length > 0) {
+                    strings.copyTo(getInt(row, field), compacted, end, length);
+                    putInt(row, field, end);
+                    end += length;
+                }
+            }
+        }
+        strings = compacted;
+        stringsEnd = end;
+        stringsGarbage = 0;
+    }
+
+    private boolean isScheduled(int row) {
+        return getLong(row, R_START) != Task.NO_TIME && records.get(offset(row) + R_TYPE) != TaskType.EPIC.ordinal();
+    }
+
+    private void scheduleInsert(int row) {
+        if (isScheduled(row)) {
+            schedule.insert(row);
+        }
+    }
+
+    private void scheduleRemove(int row) {
+        if (isScheduled(row)) {
+            schedule.remove(row);
+        }
+    }
+}
@@ -2,15 +2,63 @@ package service.server;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import service.converter.LocalDateTimeAdapter;
+import service.exeptions.BadRequestException;
 
 import java.io.IOException;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
 
 public abstract class BaseHttpHandler implements HttpHandler {
     protected String readText(HttpExchange httpExchange) throws IOException {
         return new String(httpExchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
     }
 
+    protected Map<String, String> readQuery(HttpExchange httpExchange) {
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = httpExchange.getRequestURI().getRawQuery();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    // Даты в параметрах запроса в том же формате, что и в JSON; отсутствующий параметр - null.
+    protected LocalDateTime readTime(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value, LocalDateTimeAdapter.TIME_FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Некорректная дата в параметре " + name + ": " + value);
+        }
+    }
+
+    protected int readNumber(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Некорректное число в параметре " + name + ": " + value);
+        }
+    }
+
     protected void sendText(HttpExchange httpExchange, String text, int code) throws IOException {
         byte[] responseText = text.getBytes(StandardCharsets.UTF_8);
         httpExchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
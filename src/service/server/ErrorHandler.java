@@ -2,6 +2,7 @@ package service.server;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
+import service.exeptions.BadRequestException;
 import service.exeptions.NotFoundException;
 import service.exeptions.TaskTimeValidateException;
 
@@ -23,6 +24,10 @@ public class ErrorHandler {
                 exchange.sendResponseHeaders(406, 0);
                 return;
             }
+            if (e instanceof BadRequestException) {
+                exchange.sendResponseHeaders(400, 0);
+                return;
+            }
             e.printStackTrace();
             exchange.sendResponseHeaders(500, 0);
         } catch (Exception newException) {
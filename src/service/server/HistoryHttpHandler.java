@@ -4,7 +4,11 @@ import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import service.TaskManager;
 
+import java.util.regex.Pattern;
+
 public class HistoryHttpHandler extends BaseHttpHandler {
+    private static final int DEFAULT_TOP_SIZE = 10;
+
     private final TaskManager taskManager;
     private final Gson gson;
     private final ErrorHandler errorHandler;
@@ -20,10 +24,17 @@ public class HistoryHttpHandler extends BaseHttpHandler {
         try (httpExchange) {
             try {
                 String method = httpExchange.getRequestMethod();
+                String path = httpExchange.getRequestURI().getPath();
 
-                if (method.equals("GET")) {
+                if (method.equals("GET") && Pattern.matches("^/history/top$", path)) {
+                    int k = readNumber(readQuery(httpExchange), "k", DEFAULT_TOP_SIZE);
+                    String response = gson.toJson(taskManager.getTopViewed(k));
+                    sendText(httpExchange, response, 200);
+                } else if (method.equals("GET") && Pattern.matches("^/history$", path)) {
                     String response = gson.toJson(taskManager.getHistory());
                     sendText(httpExchange, response, 200);
+                } else if (method.equals("GET")) {
+                    httpExchange.sendResponseHeaders(400, 0);
                 } else {
                     httpExchange.sendResponseHeaders(405, 0);
                 }
@@ -6,7 +6,10 @@ import com.sun.net.httpserver.HttpServer;
 import service.Managers;
 import service.TaskManager;
 import service.converter.DurationAdapter;
+import service.converter.IntOrderedSetAdapter;
 import service.converter.LocalDateTimeAdapter;
+import service.converter.TaskAdapterFactory;
+import util.IntOrderedSet;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -41,6 +44,8 @@ public class HttpTaskServer {
         GsonBuilder builder = new GsonBuilder();
         builder.registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter());
         builder.registerTypeAdapter(Duration.class, new DurationAdapter());
+        builder.registerTypeAdapter(IntOrderedSet.class, new IntOrderedSetAdapter());
+        builder.registerTypeAdapterFactory(new TaskAdapterFactory());
         return builder.create();
     }
 
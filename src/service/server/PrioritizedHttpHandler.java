@@ -2,8 +2,15 @@ package service.server;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
+import model.Task;
 import service.TaskManager;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Pattern;
+
 public class PrioritizedHttpHandler extends BaseHttpHandler {
     private final TaskManager taskManager;
     private final Gson gson;
@@ -20,10 +27,20 @@ public class PrioritizedHttpHandler extends BaseHttpHandler {
         try (httpExchange) {
             try {
                 String method = httpExchange.getRequestMethod();
+                String path = httpExchange.getRequestURI().getPath();
 
-                if (method.equals("GET")) {
-                    String response = gson.toJson(taskManager.getPrioritizedTasks());
+                if (method.equals("GET") && Pattern.matches("^/prioritized/free$", path)) {
+                    Map<String, String> query = readQuery(httpExchange);
+                    if (!query.containsKey("from") || !query.containsKey("duration")) {
+                        httpExchange.sendResponseHeaders(400, 0);
+                        return;
+                    }
+                    sendText(httpExchange, gson.toJson(getFree(query)), 200);
+                } else if (method.equals("GET") && Pattern.matches("^/prioritized$", path)) {
+                    String response = gson.toJson(getPrioritized(readQuery(httpExchange)));
                     sendText(httpExchange, response, 200);
+                } else if (method.equals("GET")) {
+                    httpExchange.sendResponseHeaders(400, 0);
                 } else {
                     httpExchange.sendResponseHeaders(405, 0);
                 }
@@ -32,4 +49,34 @@ public class PrioritizedHttpHandler extends BaseHttpHandler {
             }
         }
     }
+
+    private Object getFree(Map<String, String> query) {
+        LocalDateTime from = readTime(query, "from");
+        Duration duration = Duration.ofMinutes(Math.max(0, readNumber(query, "duration", 0)));
+        if (query.containsKey("to")) {
+            return taskManager.findFreeSlots(from, readTime(query, "to"), duration);
+        }
+        return taskManager.findFreeSlot(from, duration);
+    }
+
+    private Collection<Task> getPrioritized(Map<String, String> query) {
+        LocalDateTime from = readTime(query, "from");
+        LocalDateTime to = readTime(query, "to");
+        if (!query.containsKey("limit")) {
+            return from == null && to == null
+                    ? taskManager.getPrioritizedTasks()
+                    : taskManager.getPrioritizedTasks(from, to);
+        }
+
+        int limit = Math.max(0, readNumber(query, "limit", 0));
+        if (from != null && to == null) {
+            return taskManager.nextAfter(from, limit);
+        }
+        if (from == null && to != null) {
+            return taskManager.previousBefore(to, limit);
+        }
+        return taskManager.getPrioritizedTasks(from, to).stream()
+                .limit(limit)
+                .toList();
+    }
 }
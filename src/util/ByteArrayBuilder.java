@@ -0,0 +1,63 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class ByteArrayBuilder {
+    private byte[] bytes;
+    private int size;
+
+    public ByteArrayBuilder() {
+        this(256);
+    }
+
+    public ByteArrayBuilder(int initialCapacity) {
+        bytes = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    public void write(int b) {
+        ensureCapacity(size + 1);
+        bytes[size++] = (byte) b;
+    }
+
+    public void write(byte[] source, int offset, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(source, offset, bytes, size, length);
+        size += length;
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(size + Integer.BYTES);
+        setInt(size, value);
+        size += Integer.BYTES;
+    }
+
+    public void setInt(int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+}
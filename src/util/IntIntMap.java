@@ -0,0 +1,108 @@
+package util;
+
+import java.util.Arrays;
+
+public class IntIntMap {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    public IntIntMap() {
+        allocate(MIN_CAPACITY * 2);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return used[slotOf(key)];
+    }
+
+    public int get(int key, int defaultValue) {
+        int slot = slotOf(key);
+        return used[slot] ? values[slot] : defaultValue;
+    }
+
+    public void put(int key, int value) {
+        int slot = slotOf(key);
+        if (!used[slot]) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                slot = slotOf(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    public boolean remove(int key) {
+        int slot = slotOf(key);
+        if (!used[slot]) {
+            return false;
+        }
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (!used[next]) {
+                break;
+            }
+            int home = IntOrderedSet.hash(keys[next]) & mask;
+            boolean staysInPlace = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+            if (!staysInPlace) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        used[hole] = false;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int slotOf(int key) {
+        int slot = IntOrderedSet.hash(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int length) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int length) {
+        keys = new int[length];
+        values = new int[length];
+        used = new boolean[length];
+        mask = length - 1;
+    }
+}
@@ -0,0 +1,173 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+public class IntObjectMap<V> {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private Object[] values;
+    private int end;
+    private int size;
+
+    private int[] table;
+    private int mask;
+
+    public IntObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntObjectMap(int capacity) {
+        keys = new int[Math.max(capacity, MIN_CAPACITY)];
+        values = new Object[keys.length];
+        allocateTable(keys.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return table[slotOf(key)] != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int position = table[slotOf(key)];
+        return position == 0 ? null : (V) values[position - 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        Objects.requireNonNull(value);
+        int slot = slotOf(key);
+        if (table[slot] != 0) {
+            V previous = (V) values[table[slot] - 1];
+            values[table[slot] - 1] = value;
+            return previous;
+        }
+        if (end == keys.length) {
+            ensureRoom();
+            slot = slotOf(key);
+        }
+        keys[end] = key;
+        values[end] = value;
+        table[slot] = ++end;
+        size++;
+        return null;
+    }
+
+    public V computeIfAbsent(int key, IntFunction<? extends V> mapping) {
+        V value = get(key);
+        if (value == null) {
+            value = mapping.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = slotOf(key);
+        if (table[slot] == 0) {
+            return null;
+        }
+        int position = table[slot] - 1;
+        V removed = (V) values[position];
+        deleteSlot(slot);
+        values[position] = null;
+        size--;
+        while (end > 0 && values[end - 1] == null) {
+            end--;
+        }
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, end, null);
+        Arrays.fill(table, 0);
+        end = 0;
+        size = 0;
+    }
+
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        forEachValue(result::add);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < end; i++) {
+            if (values[i] != null) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    private void ensureRoom() {
+        if (size > end / 2) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            values = Arrays.copyOf(values, keys.length);
+            allocateTable(keys.length);
+        }
+        compact();
+    }
+
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (values[i] != null) {
+                keys[count] = keys[i];
+                values[count++] = values[i];
+            }
+        }
+        Arrays.fill(values, count, end, null);
+        end = count;
+        Arrays.fill(table, 0);
+        for (int i = 0; i < end; i++) {
+            table[slotOf(keys[i])] = i + 1;
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        int length = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        table = new int[length];
+        mask = length - 1;
+    }
+
+    private int slotOf(int key) {
+        int slot = IntOrderedSet.hash(key) & mask;
+        while (table[slot] != 0 && keys[table[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == 0) {
+                break;
+            }
+            int home = IntOrderedSet.hash(keys[table[next] - 1]) & mask;
+            boolean staysInPlace = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+            if (!staysInPlace) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+    }
+}
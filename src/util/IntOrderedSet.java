@@ -0,0 +1,196 @@
+package util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+public class IntOrderedSet {
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] values;
+    private final BitSet removed = new BitSet();
+    private int end;
+    private int size;
+
+    private int[] table;
+    private int mask;
+
+    public IntOrderedSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntOrderedSet(int capacity) {
+        values = new int[Math.max(capacity, MIN_CAPACITY)];
+        allocateTable(values.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        return table[slotOf(value)] != 0;
+    }
+
+    public boolean add(int value) {
+        int slot = slotOf(value);
+        if (table[slot] != 0) {
+            return false;
+        }
+        if (end == values.length) {
+            ensureRoom();
+            slot = slotOf(value);
+        }
+        values[end] = value;
+        table[slot] = ++end;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int slot = slotOf(value);
+        if (table[slot] == 0) {
+            return false;
+        }
+        int position = table[slot] - 1;
+        deleteSlot(slot);
+        size--;
+        if (position == end - 1) {
+            end--;
+            while (end > 0 && removed.get(end - 1)) {
+                removed.clear(--end);
+            }
+        } else {
+            removed.set(position);
+        }
+        return true;
+    }
+
+    public void clear() {
+        end = 0;
+        size = 0;
+        removed.clear();
+        Arrays.fill(table, 0);
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < end; i++) {
+            if (!removed.get(i)) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int position = nextPosition(0);
+
+            @Override
+            public boolean hasNext() {
+                return position < end;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int value = values[position];
+                position = nextPosition(position + 1);
+                return value;
+            }
+        };
+    }
+
+    public IntStream stream() {
+        return IntStream.of(toArray());
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (!removed.get(i)) {
+                result[count++] = values[i];
+            }
+        }
+        return result;
+    }
+
+    private int nextPosition(int from) {
+        int position = from;
+        while (position < end && removed.get(position)) {
+            position++;
+        }
+        return position;
+    }
+
+    private void ensureRoom() {
+        if (size <= end / 2) {
+            compact();
+        } else {
+            values = Arrays.copyOf(values, values.length * 2);
+            allocateTable(values.length);
+            compact();
+        }
+    }
+
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < end; i++) {
+            if (!removed.get(i)) {
+                values[count++] = values[i];
+            }
+        }
+        end = count;
+        removed.clear();
+        Arrays.fill(table, 0);
+        for (int i = 0; i < end; i++) {
+            table[slotOf(values[i])] = i + 1;
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        int length = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        table = new int[length];
+        mask = length - 1;
+    }
+
+    private int slotOf(int value) {
+        int slot = hash(value) & mask;
+        while (table[slot] != 0 && values[table[slot] - 1] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == 0) {
+                break;
+            }
+            int home = hash(values[table[next] - 1]) & mask;
+            boolean staysInPlace = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+            if (!staysInPlace) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
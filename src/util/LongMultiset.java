@@ -0,0 +1,50 @@
+package util;
+
+import java.util.TreeMap;
+
+// Упорядоченное мультимножество: одинаковые значения хранятся одним ключом со счётчиком повторов,
+// крайние значения берутся за O(log n) и после удаления любого из них.
+public class LongMultiset {
+    private final TreeMap<Long, Integer> counts = new TreeMap<>();
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(long value) {
+        counts.merge(value, 1, Integer::sum);
+        size++;
+    }
+
+    public boolean remove(long value) {
+        Integer count = counts.get(value);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            counts.remove(value);
+        } else {
+            counts.put(value, count - 1);
+        }
+        size--;
+        return true;
+    }
+
+    public long first() {
+        return counts.firstKey();
+    }
+
+    public long last() {
+        return counts.lastKey();
+    }
+
+    public void clear() {
+        counts.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,118 @@
+package util;
+
+import java.util.stream.IntStream;
+
+public class SpaceSavingSketch {
+    private final int[] ids;
+    private final long[] counts;
+    private final IntIntMap positions = new IntIntMap();
+    private int size;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер счётчика должен быть положительным: " + capacity);
+        }
+        ids = new int[capacity];
+        counts = new long[capacity];
+    }
+
+    public synchronized void offer(int id) {
+        int position = positions.get(id, -1);
+        if (position >= 0) {
+            counts[position]++;
+            siftDown(position);
+            return;
+        }
+        if (size < ids.length) {
+            ids[size] = id;
+            counts[size] = 1;
+            positions.put(id, size);
+            siftUp(size++);
+            return;
+        }
+        // Space-Saving: новый элемент занимает счётчик самого редкого и наследует его значение.
+        positions.remove(ids[0]);
+        ids[0] = id;
+        counts[0]++;
+        positions.put(id, 0);
+        siftDown(0);
+    }
+
+    public synchronized void remove(int id) {
+        int position = positions.get(id, -1);
+        if (position < 0) {
+            return;
+        }
+        positions.remove(id);
+        size--;
+        if (position == size) {
+            return;
+        }
+        ids[position] = ids[size];
+        counts[position] = counts[size];
+        positions.put(ids[position], position);
+        siftUp(position);
+        siftDown(positions.get(ids[position], position));
+    }
+
+    public synchronized long estimate(int id) {
+        int position = positions.get(id, -1);
+        return position < 0 ? 0 : counts[position];
+    }
+
+    public synchronized int[] top(int k) {
+        return IntStream.range(0, size)
+                .boxed()
+                .sorted((a, b) -> counts[a] != counts[b] ? Long.compare(counts[b], counts[a])
+                        : Integer.compare(ids[a], ids[b]))
+                .limit(Math.max(k, 0))
+                .mapToInt(position -> ids[position])
+                .toArray();
+    }
+
+    public synchronized void clear() {
+        positions.clear();
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int first, int second) {
+        int id = ids[first];
+        long count = counts[first];
+        ids[first] = ids[second];
+        counts[first] = counts[second];
+        ids[second] = id;
+        counts[second] = count;
+        positions.put(ids[first], first);
+        positions.put(ids[second], second);
+    }
+}
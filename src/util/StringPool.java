@@ -0,0 +1,69 @@
+package util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class StringPool {
+    public static final int NULL_REF = -1;
+
+    private final Map<String, Integer> refs = new HashMap<>();
+    private String[] strings = new String[16];
+    private int[] counts = new int[16];
+    private int[] free = new int[16];
+    private int freeCount;
+    private int end;
+
+    public int acquire(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        Integer ref = refs.get(value);
+        if (ref != null) {
+            counts[ref]++;
+            return ref;
+        }
+        int newRef = freeCount > 0 ? free[--freeCount] : nextRef();
+        strings[newRef] = value;
+        counts[newRef] = 1;
+        refs.put(value, newRef);
+        return newRef;
+    }
+
+    public void release(int ref) {
+        if (ref == NULL_REF) {
+            return;
+        }
+        if (--counts[ref] == 0) {
+            refs.remove(strings[ref]);
+            strings[ref] = null;
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, free.length * 2);
+            }
+            free[freeCount++] = ref;
+        }
+    }
+
+    public String get(int ref) {
+        return ref == NULL_REF ? null : strings[ref];
+    }
+
+    public int size() {
+        return refs.size();
+    }
+
+    public void clear() {
+        refs.clear();
+        Arrays.fill(strings, 0, end, null);
+        end = 0;
+        freeCount = 0;
+    }
+
+    private int nextRef() {
+        if (end == strings.length) {
+            strings = Arrays.copyOf(strings, end * 2);
+            counts = Arrays.copyOf(counts, end * 2);
+        }
+        return end++;
+    }
+}
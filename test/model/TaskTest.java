@@ -24,5 +24,23 @@ class TaskTest {
         assertEquals(task1,task2);
     }
 
-
+    @DisplayName("Время задачи должно храниться с точностью до минуты и восстанавливаться без изменений")
+    @Test
+    public void shouldKeepTimeInEpochMinutes() {
+        Task task = new Task("Task1", "Desc1", TaskStatus.NEW, LocalDateTime.of(2024, 6, 11, 10, 15, 42),
+                Duration.ofMinutes(45));
+
+        assertEquals(LocalDateTime.of(2024, 6, 11, 10, 15), task.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 6, 11, 11, 0), task.getEndTime());
+        assertEquals(Duration.ofMinutes(45), task.getDuration());
+        assertEquals(task.getStartMinutes() + 45, task.getEndMinutes());
+
+        task.setStartTime(LocalDateTime.of(1960, 1, 1, 0, 1));
+        assertEquals(LocalDateTime.of(1960, 1, 1, 0, 1), task.getStartTime(), "Время до 1970 года должно сохраняться");
+
+        task.setStartTime(null);
+        assertNull(task.getStartTime());
+        assertNull(task.getEndTime());
+        assertEquals(Task.NO_TIME, task.getStartMinutes());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,257 @@
+package service;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import model.TimeSlot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.exeptions.NotFoundException;
+import service.exeptions.TaskTimeValidateException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Общие проверки менеджеров, которые хранят задачи в своём формате и при каждом чтении возвращают новые копии.
+public abstract class CopyingTaskManagerTest<T extends TaskManager> {
+    protected static final LocalDateTime START = LocalDateTime.of(2024, 6, 11, 10, 0);
+
+    protected T taskManager;
+
+    protected abstract T createManager();
+
+    @BeforeEach
+    void setUp() {
+        taskManager = createManager();
+    }
+
+    @DisplayName("Задачи должны сохраняться и материализоваться с теми же полями")
+    @Test
+    void shouldCreateAndGetTasks() {
+        Task task = new Task("Task1", "Desc1", TaskStatus.IN_PROGRESS, START, Duration.ofMinutes(15));
+        Task empty = new Task("Task2", null, TaskStatus.NEW, null, Duration.ZERO);
+
+        taskManager.create(task);
+        taskManager.create(empty);
+        Task saved = taskManager.get(task.getId());
+
+        assertNotSame(task, saved, "Задача должна создаваться из хранилища");
+        assertTrue(task.compareAllFields(saved), "Поля задачи должны совпадать");
+        assertNull(taskManager.get(empty.getId()).getDescription(), "Пустое описание должно сохраняться");
+        assertEquals(List.of(saved, taskManager.get(empty.getId())), taskManager.getHistory());
+        assertThrows(NotFoundException.class, () -> taskManager.getEpic(task.getId()));
+    }
+
+    @DisplayName("Эпик должен рассчитываться по подзадачам")
+    @Test
+    void shouldCalculateEpicFields() {
+        Epic epic = taskManager.createEpic(new Epic("Epic1", "Desc"));
+        SubTask subTask1 = new SubTask(epic.getId(), "Sub1", "Desc", TaskStatus.NEW, START, Duration.ofMinutes(10));
+        SubTask subTask2 = new SubTask(epic.getId(), "Sub2", "Desc", TaskStatus.DONE, START.plusHours(1),
+                Duration.ofMinutes(20));
+        SubTask subTask3 = new SubTask(epic.getId(), "Sub3", "Desc", TaskStatus.DONE, START.plusHours(2),
+                Duration.ofMinutes(5));
+
+        taskManager.createSubTask(subTask1);
+        taskManager.createSubTask(subTask2);
+        taskManager.createSubTask(subTask3);
+
+        Epic saved = taskManager.getEpic(epic.getId());
+        assertEquals(TaskStatus.IN_PROGRESS, saved.getTaskStatus());
+        assertEquals(START, saved.getStartTime());
+        assertEquals(START.plusMinutes(125), saved.getEndTime());
+        assertEquals(Duration.ofMinutes(35), saved.getDuration());
+        assertEquals(List.of(subTask1.getId(), subTask2.getId(), subTask3.getId()), saved.getSubTasksIds());
+
+        taskManager.deleteSubTask(subTask2.getId());
+        taskManager.deleteSubTask(subTask1.getId());
+        saved = taskManager.getEpic(epic.getId());
+        assertEquals(TaskStatus.DONE, saved.getTaskStatus());
+        assertEquals(List.of(subTask3), taskManager.getEpicSubtasks(epic.getId()));
+
+        taskManager.deleteEpic(epic.getId());
+        assertTrue(taskManager.getSubtasks().isEmpty(), "Подзадачи должны удаляться вместе с эпиком");
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty(), "Расписание должно очищаться вместе с эпиком");
+    }
+
+    @DisplayName("Эпик должен пересчитываться при изменении и удалении подзадач с крайними временами")
+    @Test
+    void shouldRecalculateEpicBounds() {
+        Epic epic = taskManager.createEpic(new Epic("Epic1", "Desc"));
+        SubTask first = taskManager.createSubTask(new SubTask(epic.getId(), "Sub1", "Desc", TaskStatus.NEW, START,
+                Duration.ofMinutes(10)));
+        SubTask second = taskManager.createSubTask(new SubTask(epic.getId(), "Sub2", "Desc", TaskStatus.NEW,
+                START.plusHours(1), Duration.ofMinutes(20)));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Sub3", "Desc", TaskStatus.DONE,
+                START.plusHours(2), Duration.ofMinutes(30)));
+
+        SubTask moved = new SubTask(epic.getId(), "Sub1", "Desc", TaskStatus.DONE, START.plusHours(3),
+                Duration.ofMinutes(5));
+        moved.setId(first.getId());
+        taskManager.updateSubTask(moved);
+
+        Epic saved = taskManager.getEpic(epic.getId());
+        assertEquals(START.plusHours(1), saved.getStartTime(), "Начало должно перейти к следующей подзадаче");
+        assertEquals(START.plusMinutes(185), saved.getEndTime());
+        assertEquals(Duration.ofMinutes(55), saved.getDuration());
+        assertEquals(TaskStatus.IN_PROGRESS, saved.getTaskStatus());
+
+        taskManager.deleteSubTask(moved.getId());
+        taskManager.deleteSubTask(second.getId());
+
+        saved = taskManager.getEpic(epic.getId());
+        assertEquals(START.plusHours(2), saved.getStartTime());
+        assertEquals(START.plusMinutes(150), saved.getEndTime(), "Конец должен перейти к оставшейся подзадаче");
+        assertEquals(Duration.ofMinutes(30), saved.getDuration());
+        assertEquals(TaskStatus.DONE, saved.getTaskStatus());
+    }
+
+    @DisplayName("Пересечения должны проверяться по расписанию, а перенос встык разрешаться")
+    @Test
+    void shouldValidateCrosses() {
+        taskManager.create(new Task("Long", "Desc", TaskStatus.NEW, START, Duration.ofMinutes(120)));
+        Task next = taskManager.create(new Task("Next", "Desc", TaskStatus.NEW, START.plusHours(3),
+                Duration.ofMinutes(15)));
+
+        assertThrows(TaskTimeValidateException.class, () -> taskManager.create(
+                new Task("Inner", "Desc", TaskStatus.NEW, START.plusMinutes(30), Duration.ofMinutes(15))));
+
+        Task moved = new Task("Next", "Desc", TaskStatus.DONE, START.plusHours(2), Duration.ofMinutes(15));
+        moved.setId(next.getId());
+
+        assertDoesNotThrow(() -> taskManager.update(moved), "Задача должна переноситься встык");
+        assertEquals(List.of("Long", "Next"), taskManager.getPrioritizedTasks().stream().map(Task::getName).toList());
+        assertEquals(List.of("Next"), taskManager.nextAfter(START.plusMinutes(1), 10).stream().map(Task::getName)
+                .toList());
+        assertEquals(new TimeSlot(START.plusMinutes(135), START.plusMinutes(195)),
+                taskManager.findFreeSlot(START, Duration.ofHours(1)));
+    }
+
+    @DisplayName("Очистка подзадач должна сбрасывать эпики")
+    @Test
+    void shouldClearSubtasks() {
+        Epic epic = taskManager.createEpic(new Epic("Epic1", "Desc"));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Sub1", "Desc", TaskStatus.DONE, START,
+                Duration.ofMinutes(10)));
+
+        taskManager.clearSubTasks();
+
+        Epic saved = taskManager.getEpic(epic.getId());
+        assertEquals(TaskStatus.NEW, saved.getTaskStatus());
+        assertEquals(Duration.ZERO, saved.getDuration());
+        assertTrue(taskManager.getEpicSubtasks(epic.getId()).isEmpty());
+        assertTrue(taskManager.getSubtasks().isEmpty());
+
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Sub2", "Desc", TaskStatus.NEW,
+                START, Duration.ofMinutes(10)));
+
+        assertEquals(List.of(subTask.getId()), taskManager.getEpic(epic.getId()).getSubTasksIds());
+        assertEquals(List.of(subTask), taskManager.getSubtasks());
+    }
+
+    @DisplayName("Перенос подзадачи должен убирать её из прежнего эпика")
+    @Test
+    void shouldMoveSubTaskBetweenEpics() {
+        Epic epic1 = taskManager.createEpic(new Epic("Epic1", "Desc"));
+        Epic epic2 = taskManager.createEpic(new Epic("Epic2", "Desc"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic1.getId(), "Sub1", "Desc", TaskStatus.DONE,
+                START, Duration.ofMinutes(10)));
+
+        taskManager.addSubTaskToEpic(epic2, subTask);
+
+        assertTrue(taskManager.getEpicSubtasks(epic1.getId()).isEmpty());
+        assertEquals(List.of(subTask.getId()), taskManager.getEpic(epic2.getId()).getSubTasksIds());
+        assertEquals(TaskStatus.DONE, taskManager.getEpic(epic2.getId()).getTaskStatus());
+        assertEquals(TaskStatus.NEW, taskManager.getEpic(epic1.getId()).getTaskStatus());
+        assertEquals(epic2.getId(), taskManager.getSubTask(subTask.getId()).getEpicId());
+    }
+
+    @DisplayName("Хранилище должно расти и переиспользовать место удалённых задач без потери данных")
+    @Test
+    void shouldGrowAndReuseRows() {
+        for (int i = 0; i < 3000; i++) {
+            taskManager.create(new Task("Task" + i, "Описание задачи " + i, TaskStatus.NEW, START.plusHours(i),
+                    Duration.ofMinutes(15)));
+        }
+        for (int id = 1; id <= 3000; id += 2) {
+            taskManager.delete(id);
+        }
+        for (int i = 3000; i < 4500; i++) {
+            taskManager.create(new Task("Task" + i, "Описание задачи " + i, TaskStatus.NEW, START.plusHours(i),
+                    Duration.ofMinutes(15)));
+        }
+
+        List<Task> tasks = taskManager.getTasks();
+
+        assertEquals(3000, tasks.size());
+        assertEquals("Task1", tasks.get(0).getName());
+        assertEquals("Task4499", tasks.get(2999).getName());
+        assertEquals("Task51", taskManager.get(52).getName());
+        assertEquals("Описание задачи 3001", taskManager.get(3002).getDescription());
+        assertEquals(tasks.stream().sorted(Comparator.comparing(Task::getStartTime)).toList(),
+                List.copyOf(taskManager.getPrioritizedTasks()), "Расписание должно остаться упорядоченным");
+    }
+
+    @DisplayName("Расписание должно оставаться упорядоченным при вставке и удалении в случайном порядке")
+    @Test
+    void shouldKeepScheduleOrderedForRandomInserts() {
+        int count = 20000;
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((long) i * 7919 % count);
+            taskManager.create(new Task("Task" + slot, "Desc", TaskStatus.NEW, START.plusHours(slot),
+                    Duration.ofMinutes(15)));
+        }
+        for (int id = 1; id <= count; id += 2) {
+            taskManager.delete(id);
+        }
+        for (int id = 2; id <= 200; id += 2) {
+            Task moved = taskManager.get(id);
+            moved.setStartTime(moved.getStartTime().plusMinutes(30));
+            taskManager.update(moved);
+        }
+
+        List<Task> prioritized = List.copyOf(taskManager.getPrioritizedTasks());
+
+        assertEquals(count / 2, prioritized.size());
+        assertEquals(taskManager.getTasks().stream().sorted(Comparator.comparing(Task::getStartTime)).toList(),
+                prioritized);
+        assertEquals(prioritized.subList(100, 110), taskManager.nextAfter(prioritized.get(100).getStartTime(), 10));
+        assertThrows(TaskTimeValidateException.class, () -> taskManager.create(new Task("Cross", "Desc",
+                TaskStatus.NEW, prioritized.get(10).getStartTime().plusMinutes(5), Duration.ofMinutes(5))));
+    }
+
+    @DisplayName("Диапазоны и соседние задачи должны находиться по расписанию")
+    @Test
+    void shouldReturnPrioritizedRanges() {
+        for (int i = 0; i < 5; i++) {
+            taskManager.create(new Task("Task" + i, "Desc", TaskStatus.NEW, START.plusHours(i),
+                    Duration.ofMinutes(15)));
+        }
+
+        assertEquals(List.of("Task1", "Task2"), taskManager.getPrioritizedTasks(START.plusMinutes(1),
+                START.plusHours(3)).stream().map(Task::getName).toList());
+        assertEquals(List.of("Task3", "Task4"), taskManager.nextAfter(START.plusHours(3), 10)
+                .stream().map(Task::getName).toList());
+        assertEquals(List.of("Task2", "Task1"), taskManager.previousBefore(START.plusHours(3), 2)
+                .stream().map(Task::getName).toList());
+    }
+
+    @DisplayName("Свободные окна должны находиться по расписанию")
+    @Test
+    void shouldFindFreeSlots() {
+        taskManager.create(new Task("Task1", "Desc", TaskStatus.NEW, START, Duration.ofMinutes(30)));
+        taskManager.create(new Task("Task2", "Desc", TaskStatus.NEW, START.plusHours(1), Duration.ofMinutes(30)));
+
+        assertEquals(new TimeSlot(START.plusMinutes(90), START.plusMinutes(150)),
+                taskManager.findFreeSlot(START.plusMinutes(15), Duration.ofHours(1)));
+        assertEquals(List.of(new TimeSlot(START.plusMinutes(30), START.plusHours(1)),
+                        new TimeSlot(START.plusMinutes(90), START.plusHours(2))),
+                taskManager.findFreeSlots(START, START.plusHours(2), Duration.ofMinutes(30)));
+    }
+}
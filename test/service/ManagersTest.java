@@ -1,6 +1,14 @@
 package service;
 
 import org.junit.jupiter.api.Test;
+import service.file.BTreeTaskManager;
+import service.file.MappedMirrorTaskManager;
+import service.memory.AsyncHistoryManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 class ManagersTest {
@@ -10,8 +18,63 @@ class ManagersTest {
         assertNotNull(Managers.getDefault());
     }
 
+    @Test
+    void shouldCreateThreadSafeManager() {
+        assertNotNull(Managers.getThreadSafe());
+    }
+
+    @Test
+    void shouldCreateConcurrentManager() {
+        assertNotNull(Managers.getConcurrent());
+    }
+
+    @Test
+    void shouldCreateOffHeapManager() {
+        assertNotNull(Managers.getOffHeap());
+    }
+
+    @Test
+    void shouldCreateMappedMirrorManager() throws IOException {
+        Path file = Files.createTempFile("tasks", ".mm");
+        try (MappedMirrorTaskManager taskManager = Managers.getMappedMirror(file)) {
+            assertNotNull(taskManager);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".strings"));
+        }
+    }
+
     @Test
     void shouldCreateDefaultHistoryManager() {
         assertNotNull(Managers.getDefaultHistory());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldCreateConcurrentHistoryManager() {
+        assertNotNull(Managers.getConcurrentHistory());
+    }
+
+    @Test
+    void shouldCreateBoundedHistoryManager() {
+        assertNotNull(Managers.getDefaultHistory(10));
+    }
+
+    @Test
+    void shouldCreateAsyncHistoryManager() {
+        try (AsyncHistoryManager historyManager = Managers.getAsyncHistory()) {
+            assertNotNull(historyManager);
+        }
+    }
+
+    @Test
+    void shouldCreateBTreeManager() throws IOException {
+        Path file = Files.createTempFile("tasks", ".bt");
+        Files.delete(file);
+        try (BTreeTaskManager taskManager = Managers.getBTree(file)) {
+            assertNotNull(taskManager);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".records"));
+        }
+    }
+}
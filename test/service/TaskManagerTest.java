@@ -4,6 +4,7 @@ import model.Epic;
 import model.SubTask;
 import model.Task;
 import model.TaskStatus;
+import model.TimeSlot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -632,6 +633,35 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertThrows(TaskTimeValidateException.class, () -> taskManager.create(task3), "Должно быть выброшено исключение: задача заканчивается после начала предыдущей");
     }
 
+    @DisplayName("Пересечение должно находиться с любой задачей расписания, а не только с соседней")
+    @Test
+    void shouldThrowExceptionOnCrossWithDistantTask() {
+        Task longTask = new Task("Long", "Desc", TaskStatus.NEW, LocalDateTime.of(2024, 6, 11, 9, 0),
+                Duration.ofMinutes(180));
+        Task task1 = new Task("Task1", "Desc1", TaskStatus.NEW, LocalDateTime.of(2024, 6, 11, 13, 0),
+                Duration.ofMinutes(15));
+        Task task2 = new Task("Task2", "Desc2", TaskStatus.NEW, LocalDateTime.of(2024, 6, 11, 10, 0),
+                Duration.ofMinutes(15));
+
+        taskManager.create(longTask);
+        taskManager.create(task1);
+
+        assertThrows(TaskTimeValidateException.class, () -> taskManager.create(task2),
+                "Должно быть выброшено исключение: задача внутри длинной задачи");
+
+        Task moved = new Task("Task1", "Desc1", TaskStatus.NEW, LocalDateTime.of(2024, 6, 11, 11, 45),
+                Duration.ofMinutes(30));
+        moved.setId(task1.getId());
+
+        assertThrows(TaskTimeValidateException.class, () -> taskManager.update(moved),
+                "Должно быть выброшено исключение: задача перенесена на конец длинной задачи");
+
+        moved.setStartTime(LocalDateTime.of(2024, 6, 11, 12, 0));
+
+        assertDoesNotThrow(() -> taskManager.update(moved), "Задача должна переноситься встык после длинной");
+        assertEquals(List.of(longTask, task1), List.copyOf(taskManager.getPrioritizedTasks()));
+    }
+
     @DisplayName("Не должно быть выброшено исключений для задач на стыке и в свободной временной зоне")
     @Test
     void shouldNotThrowsExceptionsWhenNoCrosses() {
@@ -700,4 +730,140 @@ public abstract class TaskManagerTest<T extends TaskManager> {
                 "Время завершения эпика должно быть 2024-06-11Т11:05");
 
     }
+
+    @DisplayName("Эпик должен пересчитываться, если подзадачу изменили на месте и передали в updateSubTask")
+    @Test
+    void shouldRecalculateEpicWhenSavedSubTaskIsChangedInPlace() {
+        Epic epic = taskManager.createEpic(new Epic("Epic1", "Desc"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Sub1", "Desc1", TaskStatus.NEW,
+                null, Duration.ofMinutes(15)));
+
+        SubTask live = taskManager.getSubTask(subTask.getId());
+        live.setTaskStatus(TaskStatus.DONE);
+        live.setStartTime(LocalDateTime.of(2024, 6, 11, 10, 0));
+        taskManager.updateSubTask(live);
+
+        Epic saved = taskManager.getEpic(epic.getId());
+        assertEquals(TaskStatus.DONE, saved.getTaskStatus(), "Статус эпика не учёл изменение подзадачи");
+        assertEquals(LocalDateTime.of(2024, 6, 11, 10, 0), saved.getStartTime(),
+                "Начало эпика не учло изменение подзадачи");
+        assertEquals(LocalDateTime.of(2024, 6, 11, 10, 15), saved.getEndTime(),
+                "Окончание эпика не учло изменение подзадачи");
+
+        live = taskManager.getSubTask(subTask.getId());
+        live.setTaskStatus(TaskStatus.IN_PROGRESS);
+        taskManager.updateSubTask(live);
+        assertEquals(TaskStatus.IN_PROGRESS, taskManager.getEpic(epic.getId()).getTaskStatus(),
+                "Статус эпика не учёл повторное изменение подзадачи");
+    }
+
+    @DisplayName("Статус и время эпика должны пересчитываться при удалении подзадач")
+    @Test
+    void shouldRecalculateEpicOnSubtaskRemoval() {
+        Epic epic1 = new Epic("Epic1", "Desc");
+
+        taskManager.createEpic(epic1);
+
+        SubTask task1 = new SubTask(epic1.getId(), "Task1", "Desc1", TaskStatus.NEW, LocalDateTime.of(2024, 6, 11, 10, 0),
+                Duration.ofMinutes(10));
+        SubTask task2 = new SubTask(epic1.getId(), "Task2", "Desc2", TaskStatus.DONE, LocalDateTime.of(2024, 6, 11, 11, 0),
+                Duration.ofMinutes(20));
+
+        taskManager.createSubTask(task1);
+        taskManager.createSubTask(task2);
+        assertEquals(TaskStatus.IN_PROGRESS, epic1.getTaskStatus(), "Эпик с разными статусами должен быть в работе");
+
+        taskManager.deleteSubTask(task1.getId());
+        assertEquals(TaskStatus.DONE, epic1.getTaskStatus(), "Эпик со всеми выполненными подзадачами должен быть выполнен");
+        assertEquals(LocalDateTime.of(2024, 6, 11, 11, 0), epic1.getStartTime());
+        assertEquals(Duration.ofMinutes(20), epic1.getDuration());
+
+        taskManager.deleteSubTask(task2.getId());
+        assertEquals(TaskStatus.NEW, epic1.getTaskStatus(), "Эпик без подзадач должен быть новым");
+        assertEquals(Duration.ZERO, epic1.getDuration());
+        assertTrue(taskManager.getHistory().isEmpty(), "Пересчёт эпика не должен попадать в историю");
+    }
+
+    @DisplayName("Должны возвращаться диапазоны расписания без копирования всего списка")
+    @Test
+    void shouldReturnPrioritizedRanges() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        Task task1 = new Task("Task1", "Desc1", TaskStatus.NEW, start, Duration.ofMinutes(15));
+        Task task2 = new Task("Task2", "Desc2", TaskStatus.NEW, start.plusHours(1), Duration.ofMinutes(15));
+        Task task3 = new Task("Task3", "Desc3", TaskStatus.NEW, start.plusHours(2), Duration.ofMinutes(15));
+
+        taskManager.create(task3);
+        taskManager.create(task1);
+        taskManager.create(task2);
+
+        assertEquals(List.of(task2, task3), List.copyOf(taskManager.getPrioritizedTasks(start.plusMinutes(1), null)));
+        assertEquals(List.of(task1, task2), List.copyOf(taskManager.getPrioritizedTasks(null, start.plusHours(2))));
+        assertEquals(List.of(task2), List.copyOf(taskManager.getPrioritizedTasks(start.plusHours(1), start.plusHours(2))));
+        assertThrows(UnsupportedOperationException.class,
+                () -> taskManager.getPrioritizedTasks(null, null).pollFirst(), "Диапазон должен быть только для чтения");
+
+        assertEquals(List.of(task2, task3), taskManager.nextAfter(start.plusHours(1), 5));
+        assertEquals(List.of(task1), taskManager.nextAfter(start, 1));
+        assertEquals(List.of(task2, task1), taskManager.previousBefore(start.plusHours(2), 5));
+        assertTrue(taskManager.previousBefore(start, 5).isEmpty());
+    }
+
+    @DisplayName("Должен находить свободные окна между задачами расписания")
+    @Test
+    void shouldFindFreeSlots() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        taskManager.create(new Task("Task1", "Desc1", TaskStatus.NEW, start, Duration.ofMinutes(30)));
+        taskManager.create(new Task("Task2", "Desc2", TaskStatus.NEW, start.plusMinutes(45), Duration.ofMinutes(15)));
+        taskManager.create(new Task("Task3", "Desc3", TaskStatus.NEW, start.plusHours(2), Duration.ofMinutes(60)));
+
+        assertEquals(new TimeSlot(start.plusMinutes(30), start.plusMinutes(45)),
+                taskManager.findFreeSlot(start.plusMinutes(10), Duration.ofMinutes(15)));
+        assertEquals(new TimeSlot(start.plusHours(1), start.plusHours(1).plusMinutes(20)),
+                taskManager.findFreeSlot(start, Duration.ofMinutes(20)));
+        assertEquals(new TimeSlot(start.plusHours(3), start.plusHours(5)),
+                taskManager.findFreeSlot(start, Duration.ofHours(2)));
+
+        assertEquals(List.of(new TimeSlot(start.plusMinutes(30), start.plusMinutes(45)),
+                        new TimeSlot(start.plusHours(1), start.plusHours(2)),
+                        new TimeSlot(start.plusHours(3), start.plusHours(4))),
+                taskManager.findFreeSlots(start.plusMinutes(10), start.plusHours(4), Duration.ZERO));
+        assertEquals(List.of(new TimeSlot(start.plusHours(1), start.plusHours(2))),
+                taskManager.findFreeSlots(start, start.plusHours(3), Duration.ofMinutes(30)));
+        assertTrue(taskManager.findFreeSlots(start.plusHours(2), start.plusHours(3), Duration.ZERO).isEmpty());
+    }
+
+    @DisplayName("Поиск задачи по id не должен попадать в историю")
+    @Test
+    void shouldFindTaskWithoutHistory() {
+        Task task = taskManager.create(new Task("Task", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Desc"));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "SubTask", "Desc", TaskStatus.NEW,
+                null, Duration.ZERO));
+
+        assertEquals(task, taskManager.findTask(task.getId()));
+        assertEquals(epic, taskManager.findTask(epic.getId()));
+        assertEquals(subTask, taskManager.findTask(subTask.getId()));
+        assertNull(taskManager.findTask(-1));
+        assertTrue(taskManager.getHistory().isEmpty(), "Поиск не должен менять историю");
+    }
+
+    @DisplayName("Должен возвращать самые просматриваемые задачи")
+    @Test
+    void shouldReturnTopViewed() {
+        Task task1 = taskManager.create(new Task("Task1", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+        Task task2 = taskManager.create(new Task("Task2", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Desc"));
+
+        for (int i = 0; i < 3; i++) {
+            taskManager.get(task2.getId());
+        }
+        taskManager.getEpic(epic.getId());
+        taskManager.getEpic(epic.getId());
+        taskManager.get(task1.getId());
+
+        assertEquals(List.of(task2, epic), taskManager.getTopViewed(2));
+
+        taskManager.delete(task2.getId());
+        assertEquals(List.of(epic, task1), taskManager.getTopViewed(5), "Удалённая задача не должна попадать в топ");
+    }
 }
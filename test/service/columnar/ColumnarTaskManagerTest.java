@@ -0,0 +1,33 @@
+package service.columnar;
+
+import model.Task;
+import model.TaskStatus;
+import model.TaskType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.CopyingTaskManagerTest;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColumnarTaskManagerTest extends CopyingTaskManagerTest<ColumnarTaskManager> {
+    @Override
+    protected ColumnarTaskManager createManager() {
+        return new ColumnarTaskManager();
+    }
+
+    @DisplayName("Статусы должны подсчитываться по колонкам")
+    @Test
+    void shouldCountByStatus() {
+        taskManager.create(new Task("Task1", "Desc", TaskStatus.DONE, START, Duration.ofMinutes(15)));
+        Task task = taskManager.create(new Task("Task2", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+        task.setTaskStatus(TaskStatus.DONE);
+        taskManager.update(task);
+        taskManager.create(new Task("Task3", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+
+        assertEquals(2, taskManager.countByStatus(TaskType.TASK, TaskStatus.DONE));
+        assertEquals(1, taskManager.countByStatus(TaskType.TASK, TaskStatus.NEW));
+        assertEquals(0, taskManager.countByStatus(TaskType.EPIC, TaskStatus.NEW));
+    }
+}
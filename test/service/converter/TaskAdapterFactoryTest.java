@@ -0,0 +1,65 @@
+package service.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.server.HttpTaskServer;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskAdapterFactoryTest {
+    private final Gson gson = HttpTaskServer.getGson();
+
+    @DisplayName("Время задачи должно сериализоваться в прежние поля json")
+    @Test
+    void shouldWriteTimeFields() {
+        final SubTask subTask = new SubTask(2, "Sub1", "Desc subtask 1", TaskStatus.DONE,
+                LocalDateTime.of(2024, 2, 3, 2, 1), Duration.ofMinutes(200));
+        subTask.setId(3);
+
+        JsonObject json = gson.toJsonTree(subTask).getAsJsonObject();
+
+        assertEquals(200, json.get("duration").getAsInt());
+        assertEquals("03.02.2024 02:01", json.get("startTime").getAsString());
+        assertEquals("03.02.2024 05:21", json.get("endTime").getAsString());
+        assertEquals(2, json.get("epicId").getAsInt());
+        assertFalse(json.has("startMinutes"), "Внутренние поля не должны попадать в json");
+    }
+
+    @DisplayName("Задачи должны восстанавливаться из json без потери полей")
+    @Test
+    void shouldReadTasks() {
+        final Task task = new Task("Task1", "Desc task 1", TaskStatus.IN_PROGRESS,
+                LocalDateTime.of(2024, 4, 1, 12, 12), Duration.ofMinutes(15));
+        task.setId(1);
+        final Epic epic = new Epic("Epic1", "Desc epic 1");
+        epic.setId(2);
+        epic.addSubTaskId(3);
+        epic.setSchedule(Task.toEpochMinutes(LocalDateTime.of(2024, 3, 15, 22, 5)), 77,
+                Task.toEpochMinutes(LocalDateTime.of(2024, 3, 16, 0, 0)));
+
+        Task restoredTask = gson.fromJson(gson.toJson(task), Task.class);
+        Epic restoredEpic = gson.fromJson(gson.toJson(epic), Epic.class);
+
+        assertTrue(task.compareAllFields(restoredTask), "Поля задачи должны совпадать");
+        assertTrue(epic.compareAllFields(restoredEpic), "Поля эпика должны совпадать");
+        assertEquals(epic.getSubTasksIds(), restoredEpic.getSubTasksIds());
+    }
+
+    @DisplayName("Задача без времени начала должна читаться из json")
+    @Test
+    void shouldReadTaskWithoutStartTime() {
+        Task task = gson.fromJson("{\"name\":\"Task1\",\"description\":\"Desc\",\"taskStatus\":\"NEW\"}", Task.class);
+
+        assertNull(task.getStartTime());
+        assertEquals(Duration.ZERO, task.getDuration());
+    }
+}
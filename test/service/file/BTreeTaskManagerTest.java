@@ -0,0 +1,196 @@
+package service.file;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.CopyingTaskManagerTest;
+import service.Managers;
+import service.exeptions.NotFoundException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BTreeTaskManagerTest extends CopyingTaskManagerTest<BTreeTaskManager> {
+    private Path file;
+
+    @Override
+    protected BTreeTaskManager createManager() {
+        try {
+            file = Files.createTempFile("tasks", ".bt");
+            Files.delete(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new BTreeTaskManager(Managers.getDefaultHistory(), file);
+    }
+
+    @AfterEach
+    void deleteFiles() throws IOException {
+        taskManager.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + BTreeTaskManager.RECORDS_SUFFIX));
+    }
+
+    private BTreeTaskManager reopen(int cachePages) {
+        taskManager.close();
+        taskManager = new BTreeTaskManager(Managers.getDefaultHistory(), file, cachePages);
+        return taskManager;
+    }
+
+    @DisplayName("Задачи, эпики и подзадачи должны читаться после повторного открытия")
+    @Test
+    void shouldKeepTasksAfterReopen() {
+        Task task = taskManager.create(new Task("Task1", "Desc1", TaskStatus.IN_PROGRESS, START,
+                Duration.ofMinutes(15)));
+        Epic epic = taskManager.createEpic(new Epic("Epic1", null));
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Sub1", "Описание", TaskStatus.DONE,
+                START.plusHours(1), Duration.ofMinutes(30)));
+
+        reopen(BTreeTaskManager.DEFAULT_CACHE_PAGES);
+
+        assertTrue(task.compareAllFields(taskManager.get(task.getId())), "Поля задачи должны совпадать");
+        assertTrue(subTask.compareAllFields(taskManager.getSubTask(subTask.getId())),
+                "Поля подзадачи должны совпадать");
+        Epic saved = taskManager.getEpic(epic.getId());
+        assertNull(saved.getDescription());
+        assertEquals(TaskStatus.DONE, saved.getTaskStatus());
+        assertEquals(START.plusHours(1), saved.getStartTime());
+        assertEquals(List.of(subTask.getId()), saved.getSubTasksIds());
+        assertEquals(List.of(task.getId(), subTask.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(subTask.getId() + 1, taskManager.create(new Task("Task2", "Desc", TaskStatus.NEW, null,
+                Duration.ZERO)).getId(), "Счётчик id должен восстанавливаться из заголовка");
+        assertThrows(NotFoundException.class, () -> taskManager.getEpic(task.getId()));
+    }
+
+    @DisplayName("Запросы должны читать с диска только нужные страницы")
+    @Test
+    void shouldTouchOnlyNeededPages() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Desc"));
+        for (int i = 0; i < 20000; i++) {
+            taskManager.create(new Task("Task" + i, "Desc", TaskStatus.NEW, START.plusHours(i),
+                    Duration.ofMinutes(15)));
+        }
+        SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Sub", "Desc", TaskStatus.NEW,
+                START.minusDays(1), Duration.ofMinutes(15)));
+
+        reopen(PageFile.MIN_CACHE_PAGES);
+
+        long before = taskManager.pageReads();
+        assertEquals("Task9999", taskManager.get(10001).getName());
+        assertTrue(taskManager.pageReads() - before <= 6, "Чтение по id должно пройти только путь от корня");
+
+        before = taskManager.pageReads();
+        assertEquals(List.of("Task5000", "Task5001", "Task5002"), taskManager.getPrioritizedTasks(
+                START.plusHours(5000), START.plusHours(5003)).stream().map(Task::getName).toList());
+        assertTrue(taskManager.pageReads() - before <= 8, "Диапазон расписания должен читать только свои листья");
+
+        before = taskManager.pageReads();
+        assertEquals(List.of(subTask), taskManager.getEpicSubtasks(epic.getId()));
+        assertTrue(taskManager.pageReads() - before <= 12, "Подзадачи эпика должны находиться по индексу эпиков");
+    }
+
+    @DisplayName("Изменение подзадачи должно пересчитывать эпик без чтения соседних подзадач")
+    @Test
+    void shouldUpdateEpicWithoutReadingSiblings() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Desc"));
+        for (int i = 0; i < 5000; i++) {
+            taskManager.createSubTask(new SubTask(epic.getId(), "Sub" + i, "Desc", TaskStatus.NEW,
+                    START.plusHours(i), Duration.ofMinutes(15)));
+        }
+
+        reopen(PageFile.MIN_CACHE_PAGES);
+
+        long before = taskManager.pageReads();
+        SubTask changed = new SubTask(epic.getId(), "Sub", "Desc", TaskStatus.DONE, START.minusDays(1),
+                Duration.ofMinutes(30));
+        changed.setId(epic.getId() + 2500);
+        taskManager.updateSubTask(changed);
+        assertTrue(taskManager.pageReads() - before <= 24, "Пересчёт эпика должен читать только пути в деревьях");
+
+        Epic saved = taskManager.getEpic(epic.getId());
+        assertEquals(TaskStatus.IN_PROGRESS, saved.getTaskStatus());
+        assertEquals(START.minusDays(1), saved.getStartTime());
+        assertEquals(START.plusHours(4999).plusMinutes(15), saved.getEndTime());
+        assertEquals(Duration.ofMinutes(5000 * 15 + 15), saved.getDuration());
+    }
+
+    @DisplayName("Мусор в файле записей должен сжиматься при открытии")
+    @Test
+    void shouldCompactRecordsOnOpen() throws IOException {
+        Task task = taskManager.create(new Task("Task", "Desc", TaskStatus.NEW, START, Duration.ofMinutes(15)));
+        Task other = taskManager.create(new Task("Other", "Desc", TaskStatus.NEW, START.plusHours(1),
+                Duration.ofMinutes(15)));
+        for (int i = 0; i < 100; i++) {
+            Task updated = new Task("Task", "x".repeat(i), TaskStatus.NEW, START, Duration.ofMinutes(15));
+            updated.setId(task.getId());
+            taskManager.update(updated);
+        }
+        Path records = file.resolveSibling(file.getFileName() + BTreeTaskManager.RECORDS_SUFFIX);
+        taskManager.flush();
+        long size = Files.size(records);
+
+        reopen(BTreeTaskManager.DEFAULT_CACHE_PAGES);
+
+        assertTrue(Files.size(records) < size, "Файл записей должен уменьшиться");
+        assertEquals("x".repeat(99), taskManager.get(task.getId()).getDescription());
+        assertEquals("Other", taskManager.get(other.getId()).getName());
+        assertEquals(List.of(task.getId(), other.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+    }
+
+    @DisplayName("Сбой до переименования индекса должен оставлять прежнее хранилище")
+    @Test
+    void shouldDiscardUnfinishedCompaction() throws IOException {
+        Task task = taskManager.create(new Task("Task", "Desc", TaskStatus.NEW, START, Duration.ofMinutes(15)));
+        taskManager.close();
+        Path compacted = file.resolveSibling(file.getFileName() + BTreeTaskManager.COMPACTED_SUFFIX);
+        Path compactedRecords = records().resolveSibling(records().getFileName() + BTreeTaskManager.COMPACTED_SUFFIX);
+        Files.write(compacted, new byte[]{1, 2, 3});
+        Files.write(compactedRecords, new byte[]{4, 5, 6});
+
+        taskManager = new BTreeTaskManager(Managers.getDefaultHistory(), file);
+
+        assertEquals("Task", taskManager.get(task.getId()).getName());
+        assertFalse(Files.exists(compacted), "Недописанный индекс должен удаляться");
+        assertFalse(Files.exists(compactedRecords), "Недописанный файл записей должен удаляться");
+    }
+
+    @DisplayName("Сбой после переименования индекса должен завершаться переименованием файла записей")
+    @Test
+    void shouldFinishCommittedCompaction() throws IOException {
+        Task task = taskManager.create(new Task("Task", "Desc", TaskStatus.NEW, START, Duration.ofMinutes(15)));
+        taskManager.close();
+        // Состояние после точки фиксации: индекс помечен, сжатый файл записей лежит рядом со старым.
+        Path compactedRecords = records().resolveSibling(records().getFileName() + BTreeTaskManager.COMPACTED_SUFFIX);
+        Files.move(records(), compactedRecords);
+        Files.write(records(), new byte[PageFile.PAGE_SIZE]);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1), BTreeTaskManager.HEADER_COMPACTION);
+        }
+
+        taskManager = new BTreeTaskManager(Managers.getDefaultHistory(), file);
+
+        assertEquals("Task", taskManager.get(task.getId()).getName());
+        assertFalse(Files.exists(compactedRecords), "Сжатый файл записей должен занять место старого");
+        taskManager.close();
+        taskManager = new BTreeTaskManager(Managers.getDefaultHistory(), file);
+        assertEquals("Task", taskManager.get(task.getId()).getName(), "Пометка сжатия должна сниматься");
+    }
+
+    private Path records() {
+        return file.resolveSibling(file.getFileName() + BTreeTaskManager.RECORDS_SUFFIX);
+    }
+}
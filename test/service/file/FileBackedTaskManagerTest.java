@@ -8,16 +8,23 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import service.Managers;
 import service.TaskManagerTest;
+import service.converter.TaskConverter;
+import service.exeptions.ManagerIOException;
+import service.exeptions.TaskTimeValidateException;
 
 public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
     Path temFile;
@@ -39,8 +46,11 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
 
     @AfterEach
     void deleteTempFile() {
+        taskManager.close();
         try {
             Files.deleteIfExists(temFile);
+            Files.deleteIfExists(logFile(""));
+            Files.deleteIfExists(logFile(".1"));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -100,4 +110,357 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
         final SubTask subTask2 = manager2.getSubTask(subTask.getId());
         assertTrue(subTask2.compareAllFields(subTask), "Поля загруженной и сохранённой подзадачи должны быть идентичны");
     }
+
+    @DisplayName("Поток записи журнала должен запускаться только первой записью")
+    @Test
+    void shouldStartLogWriterLazily() {
+        String name = "log-writer-" + temFile.getFileName() + ".log";
+        taskManager.save();
+
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(thread -> thread.getName().equals(name)),
+                "Менеджер без изменений не должен запускать поток журнала");
+
+        taskManager.create(new Task("Task1", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+
+        assertTrue(Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals(name)),
+                "Первая запись должна запускать поток журнала");
+    }
+
+    @DisplayName("Изменения должны дописываться в журнал без перезаписи файла")
+    @Test
+    void shouldAppendMutationsToLog() throws IOException {
+        final Task task = taskManager.create(new Task("Task1", "Desc1", TaskStatus.NEW, null, Duration.ZERO));
+        final Epic epic = taskManager.createEpic(new Epic("Epic1", "Desc epic 1"));
+        final SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Sub1", "Desc subtask 1",
+                TaskStatus.DONE, LocalDateTime.of(2024, 6, 11, 10, 0), Duration.ofMinutes(15)));
+        task.setName("Task1 renamed");
+        taskManager.update(task);
+        taskManager.deleteSubTask(subTask.getId());
+
+        assertEquals(0, Files.size(temFile), "Файл снимка не должен перезаписываться при каждом изменении");
+        assertEquals(5, Files.readAllLines(logFile("")).size(), "Каждое изменение должно давать одну запись журнала");
+
+        final FileBackedTaskManager manager2 = FileBackedTaskManager.loadFromFile(temFile);
+        assertEquals("Task1 renamed", manager2.get(task.getId()).getName(), "Журнал должен применяться при загрузке");
+        assertNull(manager2.get(task.getId()).getStartTime(), "Задача без времени должна восстанавливаться");
+        assertTrue(manager2.getSubtasks().isEmpty(), "Удаление должно применяться при загрузке");
+        assertEquals(TaskStatus.NEW, manager2.getEpic(epic.getId()).getTaskStatus());
+    }
+
+    @DisplayName("Журнал должен сжиматься в снимок в фоне после превышения порога")
+    @Test
+    void shouldCompactLogInBackground() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile, 256);
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        for (int i = 0; i < 20; i++) {
+            manager.create(new Task("Task" + i, "Desc", TaskStatus.NEW, start.plusHours(i), Duration.ofMinutes(15)));
+        }
+        manager.close();
+
+        assertTrue(Files.readAllLines(temFile).size() > 1, "Снимок должен содержать задачи из журнала");
+        assertFalse(Files.exists(logFile(".1")), "Старый журнал должен удаляться после сжатия");
+        assertEquals(20, FileBackedTaskManager.loadFromFile(temFile).getTasks().size());
+    }
+
+    @DisplayName("Порог сжатия должен считаться в байтах журнала, а не в символах")
+    @Test
+    void shouldCountLogSizeInBytes() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile, 1000);
+        for (int i = 0; i < 4; i++) {
+            manager.create(new Task("Задача".repeat(25) + i, "Desc", TaskStatus.NEW, null, Duration.ZERO));
+        }
+        manager.close();
+
+        assertTrue(Files.readAllLines(temFile).size() > 1, "Сжатие должно начаться по размеру в байтах");
+    }
+
+    @DisplayName("Ошибка фонового сжатия должна сообщаться один раз и не останавливать сжатие журнала")
+    @Test
+    void shouldRecoverFromFailedCompaction() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile, 256) {
+            private boolean failed;
+
+            @Override
+            protected void writeSnapshot(ByteBuffer[] snapshot) {
+                if (!failed) {
+                    failed = true;
+                    throw new ManagerIOException("Диск заполнен");
+                }
+                super.writeSnapshot(snapshot);
+            }
+        };
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        for (int i = 0; i < 200; i++) {
+            manager.create(new Task("Task" + i, "Desc", TaskStatus.NEW, start.plusHours(i), Duration.ofMinutes(15)));
+        }
+
+        assertThrows(ManagerIOException.class, manager::awaitCompaction, "Ошибка сжатия должна сообщаться");
+        assertDoesNotThrow(manager::awaitCompaction, "Ошибка сжатия должна сообщаться только один раз");
+        manager.close();
+
+        assertFalse(Files.exists(logFile(".1")), "Старый журнал должен удаляться после синхронного сжатия");
+        assertTrue(!Files.exists(logFile("")) || Files.readAllLines(logFile("")).size() < 100,
+                "Журнал должен сжиматься и после ошибки фонового сжатия");
+        assertEquals(200, FileBackedTaskManager.loadFromFile(temFile).getTasks().size());
+    }
+
+    @DisplayName("Закрытие должно закрывать журнал, даже если фоновое сжатие завершилось ошибкой")
+    @Test
+    void shouldCloseLogWhenCompactionFailed() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile, 256) {
+            @Override
+            protected void writeSnapshot(ByteBuffer[] snapshot) {
+                throw new ManagerIOException("Диск заполнен");
+            }
+        };
+        // Вторая запись переходит порог и запускает единственное сжатие.
+        manager.create(new Task("Task1", "D".repeat(150), TaskStatus.NEW, null, Duration.ZERO));
+        manager.create(new Task("Task2", "D".repeat(150), TaskStatus.NEW, null, Duration.ZERO));
+
+        assertThrows(ManagerIOException.class, manager::close, "Ошибка сжатия должна сообщаться при закрытии");
+        assertThrows(IllegalStateException.class,
+                () -> manager.create(new Task("Task3", "Desc", TaskStatus.NEW, null, Duration.ZERO)),
+                "Журнал должен быть закрыт");
+    }
+
+    @DisplayName("Старый журнал после прерванного сжатия должен применяться повторно без ошибок")
+    @Test
+    void shouldReplayRotatedLogOverNewerSnapshot() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        final Task task1 = taskManager.create(new Task("Task1", "Desc", TaskStatus.NEW, start, Duration.ofMinutes(30)));
+        task1.setStartTime(start.plusHours(2));
+        taskManager.update(task1);
+        final Task task2 = taskManager.create(new Task("Task2", "Desc", TaskStatus.NEW, start, Duration.ofMinutes(30)));
+        List<String> rotatedLog = Files.readAllLines(logFile(""));
+        taskManager.save();
+        Files.write(logFile(".1"), rotatedLog);
+
+        final FileBackedTaskManager manager2 = FileBackedTaskManager.loadFromFile(temFile);
+        assertEquals(start.plusHours(2), manager2.get(task1.getId()).getStartTime());
+        assertEquals(start, manager2.get(task2.getId()).getStartTime());
+        assertEquals(2, manager2.getPrioritizedTasks().size());
+    }
+
+    @DisplayName("Ошибка записи снимка не должна терять журнал")
+    @Test
+    void shouldKeepLogWhenSnapshotFails() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile) {
+            @Override
+            protected void writeSnapshot(ByteBuffer[] snapshot) {
+                throw new ManagerIOException("Диск заполнен");
+            }
+        };
+        final Task task = manager.create(new Task("Task1", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+
+        assertThrows(ManagerIOException.class, manager::save);
+        manager.close();
+
+        assertEquals("Task1", FileBackedTaskManager.loadFromFile(temFile).get(task.getId()).getName(),
+                "Изменения должны восстанавливаться из журнала");
+    }
+
+    @DisplayName("Изменения из разных потоков должны группироваться в общую запись журнала")
+    @Test
+    void shouldGroupCommitConcurrentMutations() throws Exception {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile,
+                Long.MAX_VALUE, SyncPolicy.PER_OPERATION, 0, true);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    manager.create(new Task("Task" + i, "Desc", TaskStatus.NEW, null, Duration.ZERO));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        manager.close();
+
+        assertEquals(400, Files.readAllLines(logFile("")).size(), "Каждое изменение должно попасть в журнал");
+        assertEquals(400, FileBackedTaskManager.loadFromFile(temFile).getTasks().size());
+    }
+
+    @DisplayName("При периодическом сбросе изменение должно дожидаться сброса журнала")
+    @Test
+    void shouldSyncLogByInterval() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile,
+                Long.MAX_VALUE, SyncPolicy.INTERVAL, 5, true);
+        final Task task = manager.create(new Task("Task1", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+
+        assertEquals(1, Files.readAllLines(logFile("")).size(), "Запись должна быть в журнале после возврата");
+        manager.close();
+        assertEquals(task.getName(), FileBackedTaskManager.loadFromFile(temFile).get(task.getId()).getName());
+    }
+
+    @DisplayName("Двоичный снимок должен сохранять задачи с запятыми в названии и описании")
+    @Test
+    void shouldSaveAndRestoreBinarySnapshot() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile,
+                SnapshotFormat.BINARY);
+        final Task task = manager.create(new Task("Задача, первая", "Описание, с запятой", TaskStatus.IN_PROGRESS,
+                LocalDateTime.of(2024, 6, 11, 10, 0), Duration.ofMinutes(37)));
+        final Epic epic = manager.createEpic(new Epic("Epic1", null));
+        final SubTask subTask = manager.createSubTask(new SubTask(epic.getId(), "Sub1", "Desc subtask 1",
+                TaskStatus.DONE, null, Duration.ofMinutes(15)));
+        manager.save();
+        manager.close();
+
+        assertEquals(SnapshotFormat.BINARY, SnapshotFormat.detect(temFile), "Снимок должен быть записан в двоичном виде");
+        final FileBackedTaskManager manager2 = FileBackedTaskManager.loadFromFile(temFile);
+        assertTrue(manager2.get(task.getId()).compareAllFields(task), "Задача должна восстанавливаться полностью");
+        assertNull(manager2.getEpic(epic.getId()).getDescription(), "Пустое описание должно восстанавливаться");
+        assertTrue(manager2.getSubTask(subTask.getId()).compareAllFields(subTask));
+        assertEquals(TaskStatus.DONE, manager2.getEpic(epic.getId()).getTaskStatus());
+    }
+
+    @DisplayName("В двоичном режиме журнал должен сохранять задачи с запятыми")
+    @Test
+    void shouldReplayBinaryLog() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile,
+                SnapshotFormat.BINARY);
+        final Task task = manager.create(new Task("a,b,c", "d,e", TaskStatus.NEW, null, Duration.ZERO));
+        manager.close();
+
+        final FileBackedTaskManager manager2 = new FileBackedTaskManager(Managers.getDefaultHistory(), temFile,
+                SnapshotFormat.BINARY);
+        assertTrue(manager2.get(task.getId()).compareAllFields(task), "Журнал должен применяться при загрузке");
+    }
+
+    @DisplayName("Снимок в CSV должен преобразовываться в двоичный формат")
+    @Test
+    void shouldConvertCsvSnapshotToBinary() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        for (int i = 0; i < 100; i++) {
+            taskManager.create(new Task("Task" + i, "Desc", TaskStatus.NEW, start.plusHours(i), Duration.ofMinutes(30)));
+        }
+        final Epic epic = taskManager.createEpic(new Epic("Epic1", "Desc epic 1"));
+        taskManager.createSubTask(new SubTask(epic.getId(), "Sub1", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+        taskManager.save();
+        Path binaryFile = temFile.resolveSibling(temFile.getFileName() + SnapshotFormat.BINARY_EXTENSION);
+
+        try {
+            FileBackedTaskManager.convert(temFile, binaryFile, SnapshotFormat.BINARY);
+
+            assertEquals(SnapshotFormat.BINARY, SnapshotFormat.detect(binaryFile));
+            assertTrue(Files.size(binaryFile) < Files.size(temFile), "Двоичный снимок должен быть компактнее");
+            final FileBackedTaskManager manager2 = FileBackedTaskManager.loadFromFile(binaryFile);
+            assertEquals(taskManager.getTasks().size(), manager2.getTasks().size());
+            assertEquals(taskManager.getPrioritizedTasks(), manager2.getPrioritizedTasks());
+            assertEquals(List.of(manager2.getSubtasks().getFirst().getId()),
+                    manager2.getEpic(epic.getId()).getSubTasksIds(), "Связь эпика с подзадачей должна сохраняться");
+            manager2.close();
+        } finally {
+            Files.deleteIfExists(binaryFile);
+            Files.deleteIfExists(binaryFile.resolveSibling(binaryFile.getFileName() + ".log"));
+        }
+    }
+
+    @DisplayName("Двоичный снимок неизвестной версии не должен загружаться")
+    @Test
+    void shouldRejectUnsupportedBinaryVersion() throws IOException {
+        Files.write(temFile, new byte[]{'K', 'N', 'B', 'N', 99});
+
+        assertThrows(ManagerIOException.class, () -> FileBackedTaskManager.loadFromFile(temFile));
+    }
+
+    @DisplayName("Снимок должен читаться потоково, в том числе строки длиннее буфера и без перевода строки в конце")
+    @Test
+    void shouldStreamSnapshotWithLongLines() throws IOException {
+        String longName = "x".repeat(3 << 20);
+        Files.writeString(temFile, "id,type,name,status,description,epic,duration,startTime\r\n"
+                + "1,TASK," + longName + ",NEW,Desc,0,30,2024-06-11T10:00\r\n"
+                + "2,EPIC,Epic,NEW,Desc,0,0,null\r\n"
+                + "3,SUBTASK,Sub,DONE,Desc,2,15,2024-06-11T10:30:15");
+
+        final FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(temFile);
+        assertEquals(longName, manager.get(1).getName(), "Длинная строка должна читаться целиком");
+        assertEquals(LocalDateTime.of(2024, 6, 11, 10, 30), manager.getSubTask(3).getStartTime(),
+                "Время с секундами должно разбираться");
+        assertEquals(TaskStatus.DONE, manager.getEpic(2).getTaskStatus(), "Статус эпика должен вычисляться после загрузки");
+        assertEquals(2, manager.getPrioritizedTasks().size());
+        assertEquals(4, manager.create(new Task("Task", "Desc", TaskStatus.NEW, null, Duration.ZERO)).getId());
+    }
+
+    @DisplayName("Снимок с пересекающимися задачами не должен загружаться")
+    @Test
+    void shouldRejectOverlappingSnapshot() throws IOException {
+        Files.write(temFile, List.of("id,type,name,status,description,epic,duration,startTime",
+                "1,TASK,Task1,NEW,Desc,0,60,2024-06-11T10:00",
+                "2,TASK,Task2,NEW,Desc,0,0,null",
+                "3,TASK,Task3,NEW,Desc,0,30,2024-06-11T09:00",
+                "4,TASK,Task4,NEW,Desc,0,15,2024-06-11T10:45"));
+
+        assertThrows(TaskTimeValidateException.class, () -> FileBackedTaskManager.loadFromFile(temFile));
+    }
+
+    @DisplayName("Параллельное чтение кусками должно давать те же записи в том же порядке, что и последовательное")
+    @Test
+    void shouldReadSnapshotInParallelChunks() throws IOException {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        for (int i = 0; i < 50; i++) {
+            final Epic epic = taskManager.createEpic(new Epic("Epic" + i, "Desc"));
+            taskManager.create(new Task("Task" + i, "Desc", TaskStatus.NEW, start.plusHours(i), Duration.ofMinutes(30)));
+            taskManager.createSubTask(new SubTask(epic.getId(), "Sub" + i, "Desc", TaskStatus.DONE, null, Duration.ZERO));
+        }
+        taskManager.save();
+        Path binaryFile = temFile.resolveSibling(temFile.getFileName() + SnapshotFormat.BINARY_EXTENSION);
+
+        try {
+            FileBackedTaskManager.convert(temFile, binaryFile, SnapshotFormat.BINARY);
+            for (Path file : List.of(temFile, binaryFile)) {
+                List<String> sequential = new ArrayList<>();
+                SnapshotReader.read(file, task -> sequential.add(TaskConverter.toString(task)));
+                for (int chunkSize : List.of(1, 64, 1000)) {
+                    List<String> parallel = new ArrayList<>();
+                    SnapshotReader.readParallel(file, chunkSize, task -> parallel.add(TaskConverter.toString(task)));
+                    assertEquals(sequential, parallel, "Записи не должны теряться и повторяться на границах кусков");
+                }
+                assertEquals(150, sequential.size());
+            }
+        } finally {
+            Files.deleteIfExists(binaryFile);
+            Files.deleteIfExists(binaryFile.resolveSibling(binaryFile.getFileName() + ".log"));
+        }
+    }
+
+    @DisplayName("Параллельное кодирование снимка должно совпадать с последовательным байт в байт")
+    @Test
+    void shouldEncodeSnapshotInParallelSlices() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        for (int i = 0; i < 40; i++) {
+            final Epic epic = taskManager.createEpic(new Epic("Эпик " + i, "Описание"));
+            taskManager.create(new Task("Задача " + i, "Desc", TaskStatus.NEW, start.plusHours(i), Duration.ofMinutes(30)));
+            taskManager.createSubTask(new SubTask(epic.getId(), "Sub" + i, "Desc", TaskStatus.DONE, null, Duration.ZERO));
+        }
+        List<Task> records = new ArrayList<>(taskManager.getTasks());
+        records.addAll(taskManager.getEpics());
+        records.addAll(taskManager.getSubtasks());
+
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            byte[] sequential = concat(SnapshotWriter.encode(records, format, records.size(), 8));
+            for (int sliceRecords : List.of(1, 3, 20)) {
+                ByteBuffer[] slices = SnapshotWriter.encode(records, format, sliceRecords, 8);
+                assertTrue(slices.length > 2, "Снимок должен кодироваться несколькими кусками");
+                assertArrayEquals(sequential, concat(slices), "Результат не должен зависеть от разбиения на куски");
+            }
+        }
+    }
+
+    private static byte[] concat(ByteBuffer[] buffers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer buffer : buffers) {
+            ByteBuffer copy = buffer.duplicate();
+            byte[] bytes = new byte[copy.remaining()];
+            copy.get(bytes);
+            out.writeBytes(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private Path logFile(String suffix) {
+        return temFile.resolveSibling(temFile.getFileName() + ".log" + suffix);
+    }
 }
@@ -0,0 +1,146 @@
+package service.file;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.Managers;
+import service.TaskManagerTest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedMirrorTaskManagerTest extends TaskManagerTest<MappedMirrorTaskManager> {
+    private Path file;
+
+    @Override
+    protected MappedMirrorTaskManager createManager() {
+        try {
+            file = Files.createTempFile("tasks", ".mm");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new MappedMirrorTaskManager(Managers.getDefaultHistory(), file);
+    }
+
+    @AfterEach
+    void deleteFiles() throws IOException {
+        taskManager.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(stringsFile());
+    }
+
+    @DisplayName("Состояние должно восстанавливаться из отображённого файла после изменений")
+    @Test
+    void shouldRestoreStateFromMappedFile() {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 10, 0);
+        final Task task = taskManager.create(new Task("Task1", "Desc", TaskStatus.NEW, start, Duration.ofMinutes(30)));
+        final Task deleted = taskManager.create(new Task("Task2", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+        final Epic epic = taskManager.createEpic(new Epic("Epic1", null));
+        final SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "Sub1", "Desc", TaskStatus.DONE,
+                start.plusHours(1), Duration.ofMinutes(15)));
+        task.setName("Task1 renamed");
+        task.setTaskStatus(TaskStatus.IN_PROGRESS);
+        taskManager.update(task);
+        taskManager.delete(deleted.getId());
+        taskManager.flush();
+
+        final MappedMirrorTaskManager manager2 = new MappedMirrorTaskManager(Managers.getDefaultHistory(), file);
+        assertTrue(manager2.get(task.getId()).compareAllFields(task), "Изменение должно сохраняться на месте");
+        assertNull(manager2.findTask(deleted.getId()), "Удалённая задача не должна восстанавливаться");
+        assertNull(manager2.getEpic(epic.getId()).getDescription());
+        assertTrue(manager2.getSubTask(subTask.getId()).compareAllFields(subTask));
+        assertEquals(TaskStatus.DONE, manager2.getEpic(epic.getId()).getTaskStatus(),
+                "Статус эпика должен вычисляться по подзадачам");
+        assertEquals(List.of(task, subTask), List.copyOf(manager2.getPrioritizedTasks()));
+        assertEquals(subTask.getId() + 1, manager2.create(new Task("Task3", "Desc", TaskStatus.NEW, null,
+                Duration.ZERO)).getId(), "Идентификаторы удалённых задач не должны выдаваться повторно");
+        manager2.close();
+    }
+
+    @DisplayName("Хранилище должно расти, а длинные строки освобождать место при повторном открытии")
+    @Test
+    void shouldGrowAndCompactStrings() throws IOException {
+        String longDescription = "Длинное описание задачи ".repeat(20);
+        for (int i = 0; i < 3000; i++) {
+            taskManager.create(new Task("Task" + i, longDescription, TaskStatus.NEW, null, Duration.ZERO));
+        }
+        for (int round = 0; round < 2; round++) {
+            for (Task task : taskManager.getTasks()) {
+                task.setDescription(longDescription + task.getId());
+                taskManager.update(task);
+            }
+        }
+        taskManager.flush();
+        long sizeBefore = usedStrings();
+
+        final MappedMirrorTaskManager manager2 = new MappedMirrorTaskManager(Managers.getDefaultHistory(), file);
+        assertEquals(3000, manager2.getTasks().size());
+        assertEquals(longDescription + 3000, manager2.get(3000).getDescription());
+        manager2.close();
+        assertTrue(usedStrings() < sizeBefore / 2 + 1, "Старые значения строк должны удаляться при сжатии");
+    }
+
+    @DisplayName("Оборванная запись слота не должна портить задачу: остаётся прежнее значение")
+    @Test
+    void shouldKeepPreviousValueWhenWriteIsTorn() throws IOException {
+        final Task task = taskManager.create(new Task("Task1", "Описание до изменения", TaskStatus.NEW, null,
+                Duration.ZERO));
+        final Task created = new Task("Task1", "Описание до изменения", TaskStatus.NEW, null, Duration.ZERO);
+        created.setId(task.getId());
+        task.setName("Task1 renamed");
+        task.setTaskStatus(TaskStatus.DONE);
+        taskManager.update(task);
+        taskManager.close();
+
+        // Портится слот с последней версией, как если бы процесс упал посреди его записи.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long pair = (long) task.getId() * 2 * MappedStore.SLOT_SIZE;
+            ByteBuffer versions = ByteBuffer.allocate(MappedStore.SLOT_SIZE * 2);
+            channel.read(versions, pair);
+            int newer = versions.get(MappedStore.SLOT_SIZE + 3) - versions.get(3) > 0 ? MappedStore.SLOT_SIZE : 0;
+            channel.write(ByteBuffer.wrap(new byte[]{42}), pair + newer + 20);
+        }
+
+        taskManager = new MappedMirrorTaskManager(Managers.getDefaultHistory(), file);
+        assertTrue(taskManager.get(task.getId()).compareAllFields(created), "Должно остаться прежнее значение");
+    }
+
+    @DisplayName("Незавершённое сжатие строк должно отбрасываться при открытии")
+    @Test
+    void shouldDiscardUnfinishedStringsCompaction() throws IOException {
+        final Task task = taskManager.create(new Task("Task1", "Длинное описание задачи", TaskStatus.NEW, null,
+                Duration.ZERO));
+        taskManager.close();
+        Path compacted = file.resolveSibling(stringsFile().getFileName() + MappedStore.COMPACTED_SUFFIX);
+        Files.write(compacted, new byte[64]);
+
+        taskManager = new MappedMirrorTaskManager(Managers.getDefaultHistory(), file);
+        assertFalse(Files.exists(compacted), "Файл незавершённого сжатия должен удаляться");
+        assertEquals("Длинное описание задачи", taskManager.get(task.getId()).getDescription());
+    }
+
+    private long usedStrings() throws IOException {
+        try (FileChannel channel = FileChannel.open(stringsFile())) {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            channel.read(buffer, 0);
+            return buffer.flip().getLong();
+        }
+    }
+
+    private Path stringsFile() {
+        return file.resolveSibling(file.getFileName() + MappedStore.STRINGS_SUFFIX);
+    }
+}
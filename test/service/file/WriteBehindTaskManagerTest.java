@@ -0,0 +1,68 @@
+package service.file;
+
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.Managers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindTaskManagerTest {
+    private Path file;
+
+    @BeforeEach
+    void createTempFile() throws IOException {
+        file = Files.createTempFile("tasks", ".tmp");
+    }
+
+    @AfterEach
+    void deleteTempFile() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".log"));
+    }
+
+    @DisplayName("Серия изменений должна сохраняться небольшим числом записей снимка")
+    @Test
+    void shouldCoalesceUpdates() {
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(Managers.getDefaultHistory(), file,
+                TimeUnit.HOURS.toMillis(1), 1000);
+        Task task = manager.create(new Task("Task", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+        for (int i = 0; i < 10_000; i++) {
+            task.setDescription("Desc " + i);
+            manager.update(task);
+        }
+        manager.close();
+
+        assertEquals(10_001, manager.getMutationCount());
+        assertTrue(manager.getFlushCount() > 0 && manager.getFlushCount() <= 11,
+                "Неверное количество записей снимка: " + manager.getFlushCount());
+        assertTrue(manager.getCoalescingRatio() >= 900, "Изменения должны объединяться");
+        assertEquals("Desc 9999", FileBackedTaskManager.loadFromFile(file).get(task.getId()).getDescription(),
+                "После закрытия снимок должен содержать последнее состояние");
+    }
+
+    @DisplayName("Изменения должны сохраняться по таймеру без явного закрытия")
+    @Test
+    void shouldFlushByInterval() throws InterruptedException {
+        WriteBehindTaskManager manager = new WriteBehindTaskManager(Managers.getDefaultHistory(), file, 10,
+                Integer.MAX_VALUE);
+        Task task = manager.create(new Task("Task", "Desc", TaskStatus.NEW, null, Duration.ZERO));
+
+        for (int i = 0; i < 500 && manager.getFlushCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, manager.getFlushCount(), "Снимок должен быть записан по таймеру");
+        assertEquals(task.getName(), FileBackedTaskManager.loadFromFile(file).get(task.getId()).getName());
+        manager.close();
+    }
+}
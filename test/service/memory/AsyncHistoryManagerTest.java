@@ -0,0 +1,164 @@
+package service.memory;
+
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncHistoryManagerTest {
+
+    @DisplayName("История должна применяться в фоне с сохранением порядка просмотров")
+    @Test
+    void shouldApplyViewsInOrder() {
+        Task task1 = createTask(1);
+        Task task2 = createTask(2);
+        Task task3 = createTask(3);
+
+        try (AsyncHistoryManager historyManager = new AsyncHistoryManager(new InMemoryHistoryManager(), 16,
+                AsyncHistoryManager.OverflowPolicy.BLOCK)) {
+            historyManager.add(task1);
+            historyManager.add(task2);
+            historyManager.add(task3);
+            historyManager.add(task1);
+            historyManager.remove(task2.getId());
+
+            assertEquals(List.of(task3, task1), historyManager.getHistory(), "Некорректная история просмотров");
+        }
+    }
+
+    @DisplayName("При переполнении очереди просмотры должны отбрасываться, а удаления нет")
+    @Test
+    void shouldDropViewsOnOverflow() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryHistoryManager slowHistory = new InMemoryHistoryManager() {
+            @Override
+            public void add(Task task) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.add(task);
+            }
+        };
+
+        try (AsyncHistoryManager historyManager = new AsyncHistoryManager(slowHistory, 1,
+                AsyncHistoryManager.OverflowPolicy.DROP)) {
+            historyManager.add(createTask(1));
+            assertTrue(started.await(5, TimeUnit.SECONDS), "Фоновый поток не начал обработку");
+            historyManager.add(createTask(2));
+            historyManager.add(createTask(3));
+            release.countDown();
+
+            assertEquals(List.of(createTask(1), createTask(2)), historyManager.getHistory(),
+                    "Некорректная история просмотров");
+            assertEquals(1, historyManager.getDroppedCount(), "Неверное количество отброшенных просмотров");
+        }
+    }
+
+    @DisplayName("Поток должен видеть свои просмотры при параллельной записи из других потоков")
+    @Test
+    void shouldReadOwnWritesUnderContention() throws InterruptedException {
+        AtomicInteger misses = new AtomicInteger();
+        try (AsyncHistoryManager historyManager = new AsyncHistoryManager(new InMemoryHistoryManager(), 4096,
+                AsyncHistoryManager.OverflowPolicy.BLOCK)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int base = t * 1000;
+                threads.add(new Thread(() -> {
+                    for (int i = 1; i <= 200; i++) {
+                        Task task = createTask(base + i);
+                        historyManager.add(task);
+                        if (!historyManager.getHistory().contains(task)) {
+                            misses.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+
+        assertEquals(0, misses.get(), "Поток должен видеть собственные просмотры");
+    }
+
+    @DisplayName("Ошибка вложенного менеджера не должна останавливать обработку событий")
+    @Test
+    void shouldSurviveFailingHistory() {
+        InMemoryHistoryManager failingHistory = new InMemoryHistoryManager() {
+            @Override
+            public void add(Task task) {
+                if (task.getId() == 2) {
+                    throw new IllegalArgumentException("Сбой");
+                }
+                super.add(task);
+            }
+        };
+
+        try (AsyncHistoryManager historyManager = new AsyncHistoryManager(failingHistory, 16,
+                AsyncHistoryManager.OverflowPolicy.BLOCK)) {
+            historyManager.add(createTask(1));
+            historyManager.add(createTask(2));
+            historyManager.add(createTask(3));
+
+            assertEquals(List.of(createTask(1), createTask(3)), historyManager.getHistory(),
+                    "События после ошибки должны применяться");
+            assertEquals(1, historyManager.getFailedCount(), "Неверное количество ошибок");
+        }
+    }
+
+    @DisplayName("После закрытия вызовы должны завершаться ошибкой, а не зависать")
+    @Test
+    void shouldFailFastAfterClose() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        InMemoryHistoryManager stuckHistory = new InMemoryHistoryManager() {
+            @Override
+            public void add(Task task) {
+                started.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        AsyncHistoryManager historyManager = new AsyncHistoryManager(stuckHistory, 1,
+                AsyncHistoryManager.OverflowPolicy.BLOCK);
+        historyManager.add(createTask(1));
+        assertTrue(started.await(5, TimeUnit.SECONDS), "Фоновый поток не начал обработку");
+        historyManager.add(createTask(2));
+        Thread blocked = new Thread(() -> assertThrows(IllegalStateException.class,
+                () -> historyManager.add(createTask(3))));
+        blocked.start();
+
+        historyManager.close();
+        blocked.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertFalse(blocked.isAlive(), "Ожидание места в очереди должно прерываться закрытием");
+        assertThrows(IllegalStateException.class, historyManager::getHistory);
+        assertThrows(IllegalStateException.class, () -> historyManager.remove(1));
+    }
+
+    private static Task createTask(int id) {
+        Task task = new Task("Task" + id, "Desc", TaskStatus.NEW, LocalDateTime.now(), Duration.ofMinutes(15));
+        task.setId(id);
+        return task;
+    }
+}
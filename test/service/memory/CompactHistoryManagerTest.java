@@ -0,0 +1,114 @@
+package service.memory;
+
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.Managers;
+import service.TaskManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactHistoryManagerTest {
+    private final Map<Integer, Task> store = new HashMap<>();
+    private CompactHistoryManager historyManager;
+
+    @BeforeEach
+    void beforeEach() {
+        store.clear();
+        historyManager = new CompactHistoryManager(3, store::get);
+    }
+
+    @DisplayName("История должна хранить порядок просмотров и вытеснять самые давние")
+    @Test
+    void shouldKeepOrderAndEvictOldest() {
+        Task task1 = createTask(1);
+        Task task2 = createTask(2);
+        Task task3 = createTask(3);
+        Task task4 = createTask(4);
+
+        historyManager.add(task1);
+        historyManager.add(task2);
+        historyManager.add(task3);
+        historyManager.add(task1);
+        historyManager.add(task4);
+
+        assertEquals(List.of(task3, task1, task4), historyManager.getHistory(), "Некорректная история просмотров");
+
+        historyManager.remove(task1.getId());
+        assertEquals(List.of(task3, task4), historyManager.getHistory(), "Некорректная история после удаления");
+    }
+
+    @DisplayName("История должна возвращать актуальные объекты из хранилища")
+    @Test
+    void shouldResolveLiveTasks() {
+        historyManager.add(createTask(1));
+        historyManager.add(createTask(2));
+
+        Task replaced = createTask(1);
+        store.remove(2);
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(1, history.size(), "Удалённая задача не должна попадать в историю");
+        assertSame(replaced, history.get(0), "История должна возвращать текущий объект задачи");
+    }
+
+    @DisplayName("Многократные просмотры не должны приводить к росту истории")
+    @Test
+    void shouldStayBoundedOnRepeatedViews() {
+        for (int i = 0; i < 10_000; i++) {
+            historyManager.add(createTask(i % 5 + 1));
+        }
+
+        assertEquals(List.of(store.get(3), store.get(4), store.get(5)), historyManager.getHistory(),
+                "Некорректная история просмотров");
+    }
+
+    @DisplayName("Задача с id 0 не должна считаться пустой ячейкой, в том числе после роста массива")
+    @Test
+    void shouldKeepZeroId() {
+        historyManager = new CompactHistoryManager(100, store::get);
+        Task zero = createTask(0);
+        historyManager.add(zero);
+        for (int i = 1; i < 40; i++) {
+            historyManager.add(createTask(i));
+        }
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(40, history.size(), "Некорректный размер истории");
+        assertSame(zero, history.get(0), "Задача с id 0 пропала из истории");
+
+        historyManager.remove(0);
+        assertEquals(39, historyManager.getHistory().size(), "Задача с id 0 не удалилась из истории");
+    }
+
+    @DisplayName("Менеджер с компактной историей должен забывать удалённые задачи")
+    @Test
+    void shouldWorkWithTaskManager() {
+        TaskManager taskManager = Managers.getWithCompactHistory(10);
+        Task task = taskManager.create(new Task("Task", "Desc", TaskStatus.NEW, LocalDateTime.now(),
+                Duration.ofMinutes(15)));
+
+        taskManager.get(task.getId());
+        assertEquals(List.of(task), taskManager.getHistory(), "Просмотр не попал в историю");
+
+        taskManager.delete(task.getId());
+        assertTrue(taskManager.getHistory().isEmpty(), "Удалённая задача осталась в истории");
+    }
+
+    private Task createTask(int id) {
+        Task task = new Task("Task" + id, "Desc", TaskStatus.NEW, LocalDateTime.now(), Duration.ofMinutes(15));
+        task.setId(id);
+        store.put(id, task);
+        return task;
+    }
+}
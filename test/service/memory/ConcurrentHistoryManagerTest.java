@@ -0,0 +1,71 @@
+package service.memory;
+
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrentHistoryManagerTest {
+    private ConcurrentHistoryManager historyManager;
+
+    @BeforeEach
+    void beforeEach() {
+        historyManager = new ConcurrentHistoryManager();
+    }
+
+    @DisplayName("История должна сохранять порядок просмотров и удалений")
+    @Test
+    void shouldKeepOrderOfViewsAndRemovals() {
+        List<Task> tasks = createTasks(200);
+        tasks.forEach(historyManager::add);
+        historyManager.add(tasks.get(0));
+        historyManager.remove(tasks.get(1).getId());
+
+        List<Task> history = historyManager.getHistory();
+
+        assertEquals(199, history.size(), "Неверное количество задач в истории");
+        assertEquals(tasks.get(2), history.get(0), "Не верная история в начале списка");
+        assertEquals(tasks.get(0), history.get(198), "Повторный просмотр должен переместить задачу в конец");
+    }
+
+    @DisplayName("Просмотры из разных потоков не должны теряться")
+    @Test
+    void shouldRecordViewsFromManyThreads() throws InterruptedException {
+        List<Task> tasks = createTasks(1000);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = offset; i < tasks.size(); i += 8) {
+                    historyManager.add(tasks.get(i));
+                    historyManager.add(tasks.get(i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(tasks.size(), historyManager.getHistory().size(), "Потеряны просмотры задач");
+    }
+
+    private static List<Task> createTasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Task task = new Task("Task" + i, "Desc", TaskStatus.NEW, LocalDateTime.now(), Duration.ofMinutes(15));
+            task.setId(i);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,89 @@
+package service.memory;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.TaskManagerTest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 200;
+
+    @Override
+    protected ConcurrentTaskManager createManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @DisplayName("Записи в разные эпики из разных потоков не должны нарушать целостность менеджера")
+    @Test
+    void shouldStayConsistentUnderConcurrentAccess() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 6, 11, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS * 2, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            LocalDateTime threadStart = start.plusDays(t);
+            futures.add(executor.submit(() -> {
+                Epic epic = taskManager.createEpic(new Epic("Epic", "Desc"));
+                for (int i = 0; i < ROUNDS; i++) {
+                    LocalDateTime time = threadStart.plusMinutes(i * 5L);
+                    Task task = taskManager.create(new Task("Task" + i, "Desc", TaskStatus.NEW, time,
+                            Duration.ofMinutes(1)));
+                    SubTask subTask = taskManager.createSubTask(new SubTask(epic.getId(), "SubTask" + i, "Desc",
+                            TaskStatus.DONE, time.plusMinutes(2), Duration.ofMinutes(1)));
+                    taskManager.get(task.getId());
+                    taskManager.getSubTask(subTask.getId());
+                    if (i % 2 == 0) {
+                        taskManager.delete(task.getId());
+                        taskManager.deleteSubTask(subTask.getId());
+                    }
+                }
+                return null;
+            }));
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < ROUNDS; i++) {
+                    taskManager.getTasks().forEach(item -> assertNotNull(item));
+                    taskManager.getSubtasks().forEach(item -> assertNotNull(item));
+                    taskManager.getPrioritizedTasks();
+                    taskManager.getHistory();
+                    taskManager.findFreeSlot(threadStart, Duration.ofMinutes(2));
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS * ROUNDS / 2, taskManager.getTasks().size(), "Потеряны задачи");
+        assertEquals(THREADS * ROUNDS / 2, taskManager.getSubtasks().size(), "Потеряны подзадачи");
+        assertEquals(THREADS * ROUNDS, taskManager.getPrioritizedTasks().size(), "Нарушено расписание");
+        assertEquals(THREADS * ROUNDS, taskManager.getHistory().size(), "Нарушена история просмотров");
+        for (Epic epic : taskManager.getEpics()) {
+            assertEquals(ROUNDS / 2, epic.getSubTasksCount(), "Нарушен список подзадач эпика");
+            assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Некорректный статус эпика");
+        }
+    }
+}
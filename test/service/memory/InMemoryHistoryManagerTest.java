@@ -136,4 +136,24 @@ class InMemoryHistoryManagerTest {
         assertEquals(task3, historyFromManager.get(0), "Не верная история в начале списка");
         assertEquals(task2, historyFromManager.get(1), "Не верная история в конце списка");
     }
+
+    @Test
+    void shouldEvictLeastRecentTaskWhenFull() {
+        historyManager = new InMemoryHistoryManager(2);
+        Task task2 = new Task("Task2", "Desc2", TaskStatus.NEW, LocalDateTime.now(), Duration.ofMinutes(15));
+        task2.setId(2);
+        Task task3 = new Task("Task3", "Desc3", TaskStatus.NEW, LocalDateTime.now(), Duration.ofMinutes(15));
+        task3.setId(3);
+
+        historyManager.add(task);
+        historyManager.add(task2);
+        historyManager.add(task);
+        historyManager.add(task3);
+
+        List<Task> historyFromManager = historyManager.getHistory();
+
+        assertEquals(2, historyFromManager.size(), "История не должна превышать заданный размер");
+        assertEquals(task, historyFromManager.get(0), "Должна быть вытеснена давно просмотренная задача");
+        assertEquals(task3, historyFromManager.get(1), "Не верная история в конце списка");
+    }
 }
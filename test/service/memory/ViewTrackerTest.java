@@ -0,0 +1,71 @@
+package service.memory;
+
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ViewTrackerTest {
+    private static final int TASKS = 40;
+
+    @DisplayName("Топ по полосам должен совпадать с топом одного счётчика")
+    @Test
+    void shouldMergeStripesIntoSameTop() {
+        List<Task> tasks = createTasks();
+        ViewTracker single = new ViewTracker(new InMemoryHistoryManager());
+        ViewTracker striped = new ViewTracker(new ConcurrentHistoryManager(), 16);
+        for (int i = 1; i <= TASKS; i++) {
+            for (int view = 0; view < i % 7; view++) {
+                single.record(tasks.get(i));
+                striped.record(tasks.get(i));
+            }
+        }
+        single.forget(6);
+        striped.forget(6);
+
+        IntFunction<Task> resolver = tasks::get;
+        assertEquals(single.getTopViewed(10, resolver), striped.getTopViewed(10, resolver),
+                "Топ не должен зависеть от числа полос");
+        assertEquals(List.of(tasks.get(13), tasks.get(20)), striped.getTopViewed(2, resolver));
+    }
+
+    @DisplayName("Параллельные просмотры должны учитываться все")
+    @Test
+    void shouldCountConcurrentViews() throws InterruptedException {
+        List<Task> tasks = createTasks();
+        ViewTracker tracker = new ViewTracker(new ConcurrentHistoryManager(), 16);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    tracker.record(tasks.get(i % 10 == 0 ? 1 : 2 + i % 3));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(tasks.get(2), tasks.get(3), tasks.get(4), tasks.get(1)),
+                tracker.getTopViewed(4, tasks::get));
+    }
+
+    private static List<Task> createTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(null);
+        for (int id = 1; id <= TASKS; id++) {
+            Task task = new Task("Task" + id, "Desc", TaskStatus.NEW, null, Duration.ZERO);
+            task.setId(id);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,76 @@
+package service.offheap;
+
+import model.Epic;
+import model.SubTask;
+import model.Task;
+import model.TaskStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.CopyingTaskManagerTest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OffHeapTaskManagerTest extends CopyingTaskManagerTest<OffHeapTaskManager> {
+    @Override
+    protected OffHeapTaskManager createManager() {
+        return new OffHeapTaskManager();
+    }
+
+    @DisplayName("Строки должны сохраняться после уплотнения области строк")
+    @Test
+    void shouldKeepStringsAfterCompaction() {
+        Task task = taskManager.create(new Task("Task", "Desc", TaskStatus.NEW, START, Duration.ofMinutes(15)));
+        String description = "x".repeat(1000);
+        for (int i = 0; i < 200; i++) {
+            Task updated = new Task("Task" + i, description + i, TaskStatus.NEW, START, Duration.ofMinutes(15));
+            updated.setId(task.getId());
+            taskManager.update(updated);
+        }
+
+        Task saved = taskManager.get(task.getId());
+
+        assertEquals("Task199", saved.getName());
+        assertEquals(description + 199, saved.getDescription());
+    }
+
+    @DisplayName("Сводка эпика должна совпадать с пересчётом по подзадачам после случайных изменений")
+    @Test
+    void shouldKeepEpicBoundsAfterRandomUpdates() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Desc"));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            ids.add(taskManager.createSubTask(new SubTask(epic.getId(), "Sub" + i, "Desc", TaskStatus.NEW,
+                    START.plusHours(i), Duration.ofMinutes(15))).getId());
+        }
+        Random random = new Random(42);
+        TaskStatus[] statuses = TaskStatus.values();
+        for (int i = 0; i < 2000; i++) {
+            int id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(10) == 0) {
+                taskManager.deleteSubTask(id);
+                ids.remove(Integer.valueOf(id));
+                continue;
+            }
+            SubTask changed = new SubTask(epic.getId(), "Sub", "Desc", statuses[random.nextInt(statuses.length)],
+                    START.plusMinutes(1000L * (i + 300) + random.nextInt(500)), Duration.ofMinutes(10));
+            changed.setId(id);
+            taskManager.updateSubTask(changed);
+        }
+
+        List<SubTask> subTasks = taskManager.getEpicSubtasks(epic.getId());
+        Epic saved = taskManager.getEpic(epic.getId());
+        assertEquals(ids.size(), subTasks.size());
+        assertEquals(subTasks.stream().map(SubTask::getStartTime).min(Comparator.naturalOrder()).orElseThrow(),
+                saved.getStartTime());
+        assertEquals(subTasks.stream().map(SubTask::getEndTime).max(Comparator.naturalOrder()).orElseThrow(),
+                saved.getEndTime());
+        assertEquals(Duration.ofMinutes(subTasks.stream().mapToLong(SubTask::getDurationMinutes).sum()),
+                saved.getDuration());
+    }
+}
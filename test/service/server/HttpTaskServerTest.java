@@ -4,6 +4,7 @@ import model.Epic;
 import model.SubTask;
 import model.Task;
 import model.TaskStatus;
+import model.TimeSlot;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -728,4 +729,101 @@ public class HttpTaskServerTest {
             assertEquals(jsonText, response.body(), "Текст json со списком задач в порядке приоритета некорректен");
         }
     }
+
+    @Test
+    @DisplayName("Должен возвращать диапазон задач в порядке приоритета")
+    public void shouldGetPrioritizedTasksRange() throws IOException, InterruptedException {
+        LocalDateTime startTime = LocalDateTime.of(2024, 6, 25, 10, 15);
+        Task task1 = new Task("Task1", "Desc1", TaskStatus.NEW, startTime,
+                Duration.ofMinutes(15));
+        Task task2 = new Task("Task2", "Desc2", TaskStatus.NEW, startTime.plusHours(1),
+                Duration.ofMinutes(25));
+        Task task3 = new Task("Task3", "Desc3", TaskStatus.NEW, startTime.plusHours(2),
+                Duration.ofMinutes(75));
+
+        manager.create(task1);
+        manager.create(task2);
+        manager.create(task3);
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI url = URI.create("http://localhost:8080/prioritized?from=25.06.2024%2011:00&to=25.06.2024%2013:00");
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode(), "Должен бытьо возвращён код успеха 200");
+            assertEquals(gson.toJson(List.of(task2, task3)), response.body(), "Некорректный диапазон задач");
+
+            url = URI.create("http://localhost:8080/prioritized?from=25.06.2024%2010:00&limit=2");
+            response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode(), "Должен бытьо возвращён код успеха 200");
+            assertEquals(gson.toJson(List.of(task1, task2)), response.body(), "Некорректные ближайшие задачи");
+
+            url = URI.create("http://localhost:8080/prioritized?from=yesterday");
+            response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(400, response.statusCode(), "Должен бытьо возвращён код ошибки 400");
+        }
+    }
+
+    @Test
+    @DisplayName("Должен возвращать свободные окна расписания")
+    public void shouldGetFreeSlots() throws IOException, InterruptedException {
+        LocalDateTime startTime = LocalDateTime.of(2024, 6, 25, 10, 0);
+        manager.create(new Task("Task1", "Desc1", TaskStatus.NEW, startTime, Duration.ofMinutes(30)));
+        manager.create(new Task("Task2", "Desc2", TaskStatus.NEW, startTime.plusHours(1), Duration.ofMinutes(30)));
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI url = URI.create("http://localhost:8080/prioritized/free?from=25.06.2024%2010:00&duration=40");
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode(), "Должен бытьо возвращён код успеха 200");
+            assertEquals(gson.toJson(new TimeSlot(startTime.plusMinutes(90), startTime.plusMinutes(130))),
+                    response.body(), "Некорректное свободное окно");
+
+            url = URI.create("http://localhost:8080/prioritized/free?from=25.06.2024%2010:00"
+                    + "&to=25.06.2024%2012:00&duration=0");
+            response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode(), "Должен бытьо возвращён код успеха 200");
+            assertEquals(gson.toJson(List.of(new TimeSlot(startTime.plusMinutes(30), startTime.plusMinutes(60)),
+                    new TimeSlot(startTime.plusMinutes(90), startTime.plusMinutes(120)))),
+                    response.body(), "Некорректный список свободных окон");
+
+            url = URI.create("http://localhost:8080/prioritized/free?from=25.06.2024%2010:00");
+            response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(400, response.statusCode(), "Должен бытьо возвращён код ошибки 400");
+        }
+    }
+
+    @Test
+    @DisplayName("Должен возвращать самые просматриваемые задачи")
+    public void shouldReturnTopViewed() throws IOException, InterruptedException {
+        Task task1 = manager.create(new Task("Task1", "Desc1", TaskStatus.NEW, null, Duration.ZERO));
+        Task task2 = manager.create(new Task("Task2", "Desc2", TaskStatus.NEW, null, Duration.ZERO));
+        manager.get(task1.getId());
+        manager.get(task2.getId());
+        manager.get(task2.getId());
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI url = URI.create("http://localhost:8080/history/top?k=1");
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode(), "Должен бытьо возвращён код успеха 200");
+            assertEquals(gson.toJson(List.of(task2)), response.body(), "Некорректный топ просмотров");
+
+            url = URI.create("http://localhost:8080/history/top?k=many");
+            response = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(400, response.statusCode(), "Должен бытьо возвращён код ошибки 400");
+        }
+    }
 }
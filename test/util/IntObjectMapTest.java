@@ -0,0 +1,73 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @DisplayName("Карта должна возвращать значения по ключу и заменять их")
+    @Test
+    void shouldPutAndGetValues() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(-7, "minus seven"));
+        assertEquals("one", map.put(1, "first"), "put должен возвращать предыдущее значение");
+
+        assertEquals(2, map.size());
+        assertEquals("first", map.get(1));
+        assertEquals("minus seven", map.get(-7));
+        assertNull(map.get(2));
+        assertTrue(map.containsKey(-7));
+        assertFalse(map.containsKey(2));
+    }
+
+    @DisplayName("Значения должны возвращаться в порядке добавления")
+    @Test
+    void shouldKeepInsertionOrder() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int i = 100; i > 0; i--) {
+            map.put(i, "v" + i);
+        }
+        map.remove(50);
+        map.remove(1);
+
+        List<String> values = map.values();
+
+        assertEquals(98, values.size());
+        assertEquals("v100", values.get(0));
+        assertEquals("v2", values.get(values.size() - 1));
+        assertFalse(values.contains("v50"));
+    }
+
+    @DisplayName("Карта должна совпадать с LinkedHashMap на случайных операциях")
+    @Test
+    void shouldMatchLinkedHashMap() {
+        Random random = new Random(7);
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        LinkedHashMap<Integer, Integer> expected = new LinkedHashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(expected.keySet().iterator().next()));
+    }
+}
@@ -0,0 +1,73 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntOrderedSetTest {
+
+    @DisplayName("Множество должно хранить элементы в порядке добавления без повторов")
+    @Test
+    void shouldKeepInsertionOrderWithoutDuplicates() {
+        IntOrderedSet set = new IntOrderedSet();
+
+        assertTrue(set.add(5));
+        assertTrue(set.add(1));
+        assertTrue(set.add(3));
+        assertFalse(set.add(1), "Повторное добавление не должно менять множество");
+
+        assertEquals(3, set.size());
+        assertEquals(List.of(5, 1, 3), set.stream().boxed().toList());
+    }
+
+    @DisplayName("Удаление из середины должно сохранять порядок остальных элементов")
+    @Test
+    void shouldRemoveFromMiddle() {
+        IntOrderedSet set = new IntOrderedSet();
+        for (int i = 1; i <= 10; i++) {
+            set.add(i);
+        }
+
+        assertTrue(set.remove(4));
+        assertTrue(set.remove(10));
+        assertFalse(set.remove(4), "Повторное удаление должно возвращать false");
+        assertFalse(set.contains(4));
+
+        assertEquals(List.of(1, 2, 3, 5, 6, 7, 8, 9), set.stream().boxed().toList());
+
+        set.add(4);
+        assertEquals(List.of(1, 2, 3, 5, 6, 7, 8, 9, 4), set.stream().boxed().toList());
+    }
+
+    @DisplayName("Множество должно совпадать с LinkedHashSet на случайных операциях")
+    @Test
+    void shouldMatchLinkedHashSet() {
+        Random random = new Random(42);
+        IntOrderedSet set = new IntOrderedSet();
+        LinkedHashSet<Integer> expected = new LinkedHashSet<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(500) - 250;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        List<Integer> actual = new ArrayList<>();
+        set.forEach(actual::add);
+        assertEquals(new ArrayList<>(expected), actual);
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.iterator().hasNext());
+    }
+}
@@ -0,0 +1,48 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongMultisetTest {
+
+    @DisplayName("Крайние значения должны учитывать повторы и удаления")
+    @Test
+    void shouldTrackBoundsWithDuplicates() {
+        LongMultiset set = new LongMultiset();
+        set.add(5);
+        set.add(1);
+        set.add(9);
+        set.add(1);
+
+        assertEquals(4, set.size());
+        assertEquals(1, set.first());
+        assertEquals(9, set.last());
+
+        assertTrue(set.remove(1));
+        assertEquals(1, set.first(), "Повтор минимума должен оставаться в множестве");
+        assertTrue(set.remove(1));
+        assertTrue(set.remove(9));
+        assertFalse(set.remove(9), "Удалённое значение не должно находиться");
+
+        assertEquals(5, set.first());
+        assertEquals(5, set.last());
+        assertEquals(1, set.size());
+    }
+
+    @DisplayName("Очищенное множество должно быть пустым")
+    @Test
+    void shouldClear() {
+        LongMultiset set = new LongMultiset();
+        set.add(Long.MIN_VALUE);
+        set.add(Long.MAX_VALUE);
+
+        set.clear();
+
+        assertTrue(set.isEmpty());
+        assertThrows(NoSuchElementException.class, set::first);
+    }
+}
@@ -0,0 +1,49 @@
+package util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @DisplayName("Точные счётчики пока число элементов не превышает размер")
+    @Test
+    void shouldCountExactlyWithinCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        for (int i = 0; i < 5; i++) {
+            sketch.offer(3);
+        }
+        sketch.offer(1);
+        sketch.offer(2);
+        sketch.offer(2);
+
+        assertArrayEquals(new int[]{3, 2}, sketch.top(2));
+        assertEquals(5, sketch.estimate(3));
+        assertEquals(0, sketch.estimate(4));
+
+        sketch.remove(3);
+        assertArrayEquals(new int[]{2, 1}, sketch.top(5), "Удалённый элемент не должен попадать в топ");
+    }
+
+    @DisplayName("Частые элементы должны находиться при ограниченной памяти")
+    @Test
+    void shouldFindHeavyHittersInLongStream() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(16);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 5 == 0) {
+                sketch.offer(-1);
+            } else if (i % 7 == 0) {
+                sketch.offer(-2);
+            } else {
+                sketch.offer(random.nextInt(10_000));
+            }
+        }
+
+        assertArrayEquals(new int[]{-1, -2}, sketch.top(2), "Не найдены самые частые элементы");
+        assertTrue(sketch.estimate(-1) >= 20_000, "Оценка не должна быть меньше истинной частоты");
+    }
+}